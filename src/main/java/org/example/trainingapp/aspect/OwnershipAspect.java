@@ -77,7 +77,7 @@ public class OwnershipAspect {
                 }
                 if (!StringUtils.hasText(dtoUsername)) continue;
 
-                Optional<Trainee> dbTrainee = traineeRepository.findByUsername(dtoUsername);
+                Optional<Trainee> dbTrainee = traineeRepository.findByNaturalId(dtoUsername);  //  cached
                 if (dbTrainee.isEmpty()) {
                     log.warn("Trainee not found: {}", dtoUsername);
                     throw new UsernameNotFoundException("Trainee not found: " + dtoUsername);
@@ -104,7 +104,7 @@ public class OwnershipAspect {
                 }
                 if (!StringUtils.hasText(dtoUsername)) continue;
 
-                Optional<Trainer> dbTrainer = trainerRepository.findByUsername(dtoUsername);
+                Optional<Trainer> dbTrainer = trainerRepository.findByNaturalId(dtoUsername);  //  cached
                 if (dbTrainer.isEmpty()) {
                     log.warn("Trainer not found: {}", dtoUsername);
                     throw new UsernameNotFoundException("Trainer not found: " + dtoUsername);
@@ -127,11 +127,11 @@ public class OwnershipAspect {
                 throw new ForbiddenAccessException("Access denied for trainee: " + current);
             }
             if (role == Role.TRAINER) {
-                if (!trainerRepository.existsByUsername(usernameArg)) {
+                if (trainerRepository.findByNaturalId(usernameArg).isEmpty()) {    //  cached, unlike exists query
                     throw new UsernameNotFoundException("Trainer not found: " + usernameArg);
                 }
             } else if (role == Role.TRAINEE) {
-                if (!traineeRepository.existsByUsername(usernameArg)) {
+                if (traineeRepository.findByNaturalId(usernameArg).isEmpty()) {
                     throw new UsernameNotFoundException("Trainee not found: " + usernameArg);
                 }
             }
@@ -0,0 +1,43 @@
+package org.example.trainingapp.config;
+
+import org.example.trainingapp.jwt.TokenBlacklistUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+
+@Configuration
+public class RedisConfig {
+    private static final Logger log = LoggerFactory.getLogger(RedisConfig.class);
+
+
+    @Bean                                                                   // blacklist updates from other nodes
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       TokenBlacklistUtil tokenBlacklistUtil) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            @Override
+            public boolean isAutoStartup() {
+                return false;                                               // started below, must not fail boot
+            }
+        };
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(tokenBlacklistUtil, new ChannelTopic(TokenBlacklistUtil.BLACKLIST_CHANNEL));
+        return container;
+    }
+
+    @Bean                                                                   // without it every check goes to Redis
+    public ApplicationRunner blacklistSubscription(RedisMessageListenerContainer container) {
+        return args -> {
+            try {
+                container.start();
+            } catch (Exception e) {
+                log.warn("Token blacklist channel not subscribed, Bloom filter stays off: {}", e.getMessage());
+            }
+        };
+    }
+}
@@ -39,6 +39,8 @@ public class SecurityConfig {
                 .passwordEncoder(passwordEncoder());
         http
                 .authorizeHttpRequests((authorize) -> authorize
+                        .requestMatchers("/api/users/register-trainees", "/api/users/register-trainers")
+                        .hasRole("TRAINER")                     //  bulk uploads cost one BCrypt hash per row
                         .requestMatchers("/api/users/**").permitAll()
                         .requestMatchers("/api/trainees/**").hasRole("TRAINEE")
                         .requestMatchers("/api/trainers/**").hasRole("TRAINER")
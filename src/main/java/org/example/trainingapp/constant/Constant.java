@@ -8,4 +8,8 @@ public final class Constant {
     public static final String ROLE = "role";
     public static final String BEARER = "Bearer ";
     public static final String DEFAULT_PW = "pw123";
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
 }
@@ -2,6 +2,7 @@ package org.example.trainingapp.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,7 +14,9 @@ import org.example.trainingapp.aspect.CheckOwnership;
 import org.example.trainingapp.dto.ActiveStatusDto;
 import org.example.trainingapp.dto.TraineeRequestDto;
 import org.example.trainingapp.dto.TraineeResponseDto;
+import org.example.trainingapp.dto.TrainerPage;
 import org.example.trainingapp.dto.TrainerShortDto;
+import org.example.trainingapp.dto.TrainingPage;
 import org.example.trainingapp.dto.TrainingResponseDto;
 import org.example.trainingapp.dto.UpdateTrainerListDto;
 import org.example.trainingapp.service.TraineeService;
@@ -32,6 +35,11 @@ import org.springframework.web.bind.annotation.RestController;
 import java.time.LocalDate;
 import java.util.List;
 
+import static org.example.trainingapp.constant.Constant.DEFAULT_PAGE_SIZE;
+import static org.example.trainingapp.constant.Constant.MAX_PAGE_SIZE;
+import static org.example.trainingapp.constant.Constant.NEXT_CURSOR_HEADER;
+import static org.example.trainingapp.constant.Constant.TOTAL_COUNT_HEADER;
+
 
 @RestController
 @RequestMapping("/api/trainees")
@@ -105,20 +113,35 @@ public class TraineeController {
     @GetMapping("/{username}/available-trainers")
     @PreAuthorize("hasRole('TRAINEE')")
     @CheckOwnership
-    @Operation(summary = "Get available trainers", description = "Returns trainers not yet assigned to trainee")
+    @Operation(summary = "Get available trainers", description = "Returns trainers not yet assigned to trainee, " +
+            "ordered by username, one page per request: pass X-Next-Cursor of the previous page as 'after'")
     @ApiResponses({
             @ApiResponse(
                     responseCode = "200", description = "List of available trainers",
-                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = TrainerShortDto.class)))),
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = TrainerShortDto.class))),
+                    headers = @Header(name = NEXT_CURSOR_HEADER, description = "Cursor of the next page, absent on the last page")),
             @ApiResponse(responseCode = "400", description = "Validation error"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "403", description = "Forbidden")
     })
     public ResponseEntity<List<TrainerShortDto>> getAvailableTrainers(
             @Parameter(description = "Trainee username", required = true)
-            @PathVariable("username") String username) {
-        List<TrainerShortDto> dtos = traineeService.getAvailableTrainersForTrainee(username);
-        return ResponseEntity.ok(dtos);
+            @PathVariable("username") String username,
+            @Parameter(description = "Specialization (training type) filter (optional)")
+            @RequestParam(name = "specialization", required = false) String specialization,
+            @Parameter(description = "Active status filter (optional)")
+            @RequestParam(name = "active", required = false) Boolean active,
+            @Parameter(description = "Cursor from X-Next-Cursor of the previous page (optional)")
+            @RequestParam(name = "after", required = false) String after,
+            @Parameter(description = "Page size, 1-" + MAX_PAGE_SIZE + ". Without size and cursor all trainers are " +
+                    "returned in one response; with a cursor only, " + DEFAULT_PAGE_SIZE + " per page")
+            @RequestParam(name = "size", required = false) Integer size) {
+        TrainerPage page = traineeService.getAvailableTrainersForTrainee(username, specialization, active, after, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.trainers());
     }
 
 
@@ -145,11 +168,16 @@ public class TraineeController {
     @GetMapping("/{username}/trainings")
     @PreAuthorize("hasRole('TRAINEE')")
     @CheckOwnership
-    @Operation(summary = "Get trainee trainings", description = "Filter trainee trainings by date, trainer or type")
+    @Operation(summary = "Get trainee trainings", description = "Filter trainee trainings by date, trainer or type. " +
+            "Ordered by date. Paged when size or after is given: pass X-Next-Cursor of the previous page as 'after'")
     @ApiResponses({
             @ApiResponse(
                     responseCode = "200", description = "List of trainings",
-                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = TrainingResponseDto.class)))),
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = TrainingResponseDto.class))),
+                    headers = {
+                            @Header(name = NEXT_CURSOR_HEADER, description = "Cursor of the next page, absent on the last page"),
+                            @Header(name = TOTAL_COUNT_HEADER, description = "Number of matching trainings, only with count=true")
+                    }),
             @ApiResponse(responseCode = "400", description = "Validation error"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "403", description = "Forbidden")
@@ -164,10 +192,24 @@ public class TraineeController {
             @Parameter(description = "Trainer username (optional)")
             @RequestParam(name = "trainerName", required = false) String trainerName,
             @Parameter(description = "Training type (optional)")
-            @RequestParam(name = "type", required = false) String type) {
-        List<TrainingResponseDto> dtos = traineeService.getTraineeTrainings(username, fromDate, toDate,
-                trainerName, type);
-        return ResponseEntity.ok(dtos);
+            @RequestParam(name = "type", required = false) String type,
+            @Parameter(description = "Cursor from X-Next-Cursor of the previous page (optional)")
+            @RequestParam(name = "after", required = false) String after,
+            @Parameter(description = "Page size, 1-" + MAX_PAGE_SIZE + ". Without size and cursor all trainings are " +
+                    "returned in one response; with a cursor only, " + DEFAULT_PAGE_SIZE + " per page")
+            @RequestParam(name = "size", required = false) Integer size,
+            @Parameter(description = "Return total number of matching trainings in X-Total-Count")
+            @RequestParam(name = "count", defaultValue = "false") boolean count) {
+        TrainingPage page = traineeService.getTraineeTrainings(username, fromDate, toDate, trainerName, type,
+                after, size, count);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        if (page.totalCount() != null) {
+            response.header(TOTAL_COUNT_HEADER, String.valueOf(page.totalCount()));
+        }
+        return response.body(page.trainings());
     }
 
 
@@ -2,6 +2,7 @@ package org.example.trainingapp.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,6 +14,7 @@ import org.example.trainingapp.aspect.CheckOwnership;
 import org.example.trainingapp.dto.ActiveStatusDto;
 import org.example.trainingapp.dto.TrainerRequestDto;
 import org.example.trainingapp.dto.TrainerResponseDto;
+import org.example.trainingapp.dto.TrainingPage;
 import org.example.trainingapp.dto.TrainingResponseDto;
 import org.example.trainingapp.service.TrainerService;
 import org.springframework.http.ResponseEntity;
@@ -28,6 +30,10 @@ import org.springframework.web.bind.annotation.RestController;
 import java.time.LocalDate;
 import java.util.List;
 
+import static org.example.trainingapp.constant.Constant.DEFAULT_PAGE_SIZE;
+import static org.example.trainingapp.constant.Constant.MAX_PAGE_SIZE;
+import static org.example.trainingapp.constant.Constant.NEXT_CURSOR_HEADER;
+
 
 @RestController
 @RequestMapping("/api/trainers")
@@ -79,11 +85,13 @@ public class TrainerController {
     @GetMapping("/{username}/trainings")
     @PreAuthorize("hasRole('TRAINER')")
     @CheckOwnership
-    @Operation(summary = "Get trainer's trainings", description = "Returns list of trainings conducted by the trainer")
+    @Operation(summary = "Get trainer's trainings", description = "Returns trainings conducted by the trainer, " +
+            "ordered by date. Paged when size or after is given: pass X-Next-Cursor of the previous page as 'after'")
     @ApiResponses({
             @ApiResponse(
                     responseCode = "200", description = "List of trainings",
-                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = TrainingResponseDto.class)))),
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = TrainingResponseDto.class))),
+                    headers = @Header(name = NEXT_CURSOR_HEADER, description = "Cursor of the next page, absent on the last page")),
             @ApiResponse(responseCode = "400", description = "Validation error"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "403", description = "Access denied")
@@ -96,10 +104,18 @@ public class TrainerController {
             @Parameter(description = "End date filter (optional)")
             @RequestParam(name = "toDate", required = false) LocalDate toDate,
             @Parameter(description = "Trainee username filter (optional)")
-            @RequestParam(name = "traineeName", required = false) String traineeName) {
-        List<TrainingResponseDto> dtos = trainerService.getTrainerTrainings(username, fromDate, toDate,
-                traineeName);
-        return ResponseEntity.ok(dtos);
+            @RequestParam(name = "traineeName", required = false) String traineeName,
+            @Parameter(description = "Cursor from X-Next-Cursor of the previous page (optional)")
+            @RequestParam(name = "after", required = false) String after,
+            @Parameter(description = "Page size, 1-" + MAX_PAGE_SIZE + ". Without size and cursor all trainings are " +
+                    "returned in one response; with a cursor only, " + DEFAULT_PAGE_SIZE + " per page")
+            @RequestParam(name = "size", required = false) Integer size) {
+        TrainingPage page = trainerService.getTrainerTrainings(username, fromDate, toDate, traineeName, after, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.trainings());
     }
 
 
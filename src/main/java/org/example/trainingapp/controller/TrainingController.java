@@ -1,19 +1,29 @@
 package org.example.trainingapp.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.example.trainingapp.aspect.CheckOwnership;
+import org.example.trainingapp.dto.SyncMode;
 import org.example.trainingapp.dto.SyncResult;
+import org.example.trainingapp.dto.TrainingImportResult;
 import org.example.trainingapp.dto.TrainingRequestDto;
 import org.example.trainingapp.service.TrainingService;
+import org.example.trainingapp.service.impl.TrainingImportService;
 import org.example.trainingapp.service.impl.TrainingSyncService;
+import org.example.trainingapp.util.AuthContextUtil;
+import org.example.trainingapp.util.NdjsonUtil;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -21,8 +31,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+
 
 @RestController
 @RequestMapping("/api/trainings")
@@ -32,6 +45,9 @@ public class TrainingController {
 
     private final TrainingService trainingService;
     private final TrainingSyncService trainingSyncService;
+    private final TrainingImportService trainingImportService;
+    private final AuthContextUtil authContextUtil;
+    private final ObjectMapper objectMapper;
 
 
     @PostMapping()
@@ -54,6 +70,34 @@ public class TrainingController {
     }
 
 
+    @PostMapping(value = "/import",
+            consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('TRAINER')")
+    @Operation(summary = "Import trainings",
+            description = "Reads trainings of the current trainer from CSV (header: name,date,duration,traineeName"
+                    + "[,trainerName]), a JSON array or NDJSON and streams back one NDJSON line per row "
+                    + "with the created training name or error")
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Trainings to import", content = @Content(
+            array = @ArraySchema(schema = @Schema(implementation = TrainingRequestDto.class))))
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200", description = "Rows processed, see per-row results",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = TrainingImportResult.class))),
+            @ApiResponse(responseCode = "400", description = "CSV header misses columns"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    public void importTrainings(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean csv = request.getContentType() != null && request.getContentType().startsWith("text/csv");
+        String trainerUsername = authContextUtil.getUsername();
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        trainingImportService.importTrainings(request.getInputStream(), csv, trainerUsername,
+                NdjsonUtil.lines(response, objectMapper));
+    }
+
+
     @DeleteMapping("/{trainingName}")
     @PreAuthorize("hasRole('TRAINER')")
     @Operation(summary = "Delete training", description = "Deletes a training by its name")
@@ -80,8 +124,10 @@ public class TrainingController {
             @ApiResponse(responseCode = "403", description = "Forbidden"),
             @ApiResponse(responseCode = "422", description = "Unprocessible request")
     })
-    public ResponseEntity<SyncResult> syncTrainerHours() {
-        SyncResult result = trainingSyncService.syncTrainerHours();
+    public ResponseEntity<SyncResult> syncTrainerHours(
+            @Parameter(description = "Sync mode: SEQUENTIAL (default), PIPELINED or AGGREGATED (one total per trainer-month)")
+            @RequestParam(name = "mode", required = false, defaultValue = "SEQUENTIAL") SyncMode mode) {
+        SyncResult result = trainingSyncService.syncTrainerHours(mode);
         return ResponseEntity.ok(result);
     }
 
@@ -1,14 +1,19 @@
 package org.example.trainingapp.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.example.trainingapp.aspect.CheckOwnership;
+import org.example.trainingapp.dto.BulkRegistrationResult;
 import org.example.trainingapp.dto.ChangePasswordDto;
 import org.example.trainingapp.dto.CredentialsDto;
 import org.example.trainingapp.dto.JwtResponse;
@@ -16,7 +21,10 @@ import org.example.trainingapp.dto.TraineeRegisterDto;
 import org.example.trainingapp.dto.TrainerRegisterDto;
 import org.example.trainingapp.service.AuthenticationService;
 import org.example.trainingapp.service.UserService;
+import org.example.trainingapp.service.impl.BulkRegistrationService;
+import org.example.trainingapp.util.NdjsonUtil;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -25,6 +33,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+
 
 @RestController
 @RequestMapping("/api/users")
@@ -34,6 +44,8 @@ public class UserController {
 
     private final AuthenticationService authenticationService;
     private final UserService userService;
+    private final BulkRegistrationService bulkRegistrationService;
+    private final ObjectMapper objectMapper;
 
 
     @PostMapping("/register-trainee")
@@ -70,6 +82,54 @@ public class UserController {
     }
 
 
+    @PostMapping(value = "/register-trainees",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Register trainees in bulk",
+            description = "Reads a JSON array or NDJSON stream of trainees and streams back one NDJSON line "
+                    + "per row with its credentials or error")
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Trainees to register", content = @Content(
+            array = @ArraySchema(schema = @Schema(implementation = TraineeRegisterDto.class))))
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200", description = "Rows processed, see per-row results",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = BulkRegistrationResult.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "413", description = "Upload exceeds the row or size limit")
+    })
+    @PreAuthorize("hasRole('TRAINER')")
+    public void registerTrainees(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        bulkRegistrationService.checkUploadSize(request.getContentLengthLong());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        bulkRegistrationService.registerTrainees(request.getInputStream(), NdjsonUtil.lines(response, objectMapper));
+    }
+
+
+    @PostMapping(value = "/register-trainers",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Register trainers in bulk",
+            description = "Reads a JSON array or NDJSON stream of trainers and streams back one NDJSON line "
+                    + "per row with its credentials or error")
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Trainers to register", content = @Content(
+            array = @ArraySchema(schema = @Schema(implementation = TrainerRegisterDto.class))))
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200", description = "Rows processed, see per-row results",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = BulkRegistrationResult.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "413", description = "Upload exceeds the row or size limit")
+    })
+    @PreAuthorize("hasRole('TRAINER')")
+    public void registerTrainers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        bulkRegistrationService.checkUploadSize(request.getContentLengthLong());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        bulkRegistrationService.registerTrainers(request.getInputStream(), NdjsonUtil.lines(response, objectMapper));
+    }
+
+
     @PostMapping("/login")
     @Operation(summary = "User login", description = "Authenticates user credentials and returns user role")
     @ApiResponses({
@@ -122,5 +182,4 @@ public class UserController {
         authenticationService.logout();
         return ResponseEntity.ok("User logged out successfully");
     }
-
 }
@@ -6,10 +6,13 @@ import org.example.trainingapp.dto.ActionType;
 import org.example.trainingapp.dto.TraineeRegisterDto;
 import org.example.trainingapp.dto.TraineeResponseDto;
 import org.example.trainingapp.dto.TraineeShortDto;
+import org.example.trainingapp.dto.TrainerMonthHours;
 import org.example.trainingapp.dto.TrainerRegisterDto;
 import org.example.trainingapp.dto.TrainerResponseDto;
 import org.example.trainingapp.dto.TrainerShortDto;
-import org.example.trainingapp.dto.TrainingRequestDto;
+import org.example.trainingapp.dto.TrainingHoursRow;
+import org.example.trainingapp.dto.TrainingListRow;
+import org.example.trainingapp.dto.TrainingParties;
 import org.example.trainingapp.dto.TrainingResponseDto;
 import org.example.trainingapp.dto.TrainingTypeDto;
 import org.example.trainingapp.dto.TrainingUpdateRequest;
@@ -17,14 +20,11 @@ import org.example.trainingapp.entity.Trainee;
 import org.example.trainingapp.entity.Trainer;
 import org.example.trainingapp.entity.Training;
 import org.example.trainingapp.entity.TrainingType;
-
-import org.example.trainingapp.repository.TraineeRepository;
-import org.example.trainingapp.repository.TrainerRepository;
-import org.example.trainingapp.repository.TrainingTypeRepository;
-
+import org.example.trainingapp.service.TrainingTypeRegistry;
 import org.example.trainingapp.util.ValidationUtils;
 import org.springframework.stereotype.Component;
 
+import java.time.YearMonth;
 import java.util.List;
 
 
@@ -32,9 +32,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class Converter {
 
-    private final TrainingTypeRepository trainingTypeRepository;
-    private final TrainerRepository trainerRepository;
-    private final TraineeRepository traineeRepository;
+    private final TrainingTypeRegistry trainingTypeRegistry;
 
 
     public Trainee dtoToEntity(TraineeRegisterDto traineeRegisterDto) {
@@ -47,11 +45,14 @@ public class Converter {
     }
 
     public Trainer dtoToEntity(TrainerRegisterDto dto) {
-        TrainingType type = resolveAndValidateTrainingType(dto.getSpecializationName());
+        return dtoToEntity(dto, resolveAndValidateTrainingType(dto.getSpecializationName()));
+    }
+
+    public Trainer dtoToEntity(TrainerRegisterDto dto, TrainingType specialization) {
         return Trainer.builder()
                 .firstName(dto.getFirstName())
                 .lastName(dto.getLastName())
-                .specialization(type)
+                .specialization(specialization)
                 .build();
     }
 
@@ -105,24 +106,6 @@ public class Converter {
                 .build();
     }
 
-    public Training dtoToEntity(TrainingRequestDto dto) {
-        String trainerName = dto.getTrainerName();
-        String traineeName = dto.getTraineeName();
-        Trainer trainer = trainerRepository.findByUsername(trainerName)
-                .orElseThrow(() -> new EntityNotFoundException("Trainer not found: " + trainerName));
-        TrainingType type = getTrainingTypeByName(trainer.getSpecialization().getName());
-        Trainee trainee = traineeRepository.findByUsername(traineeName)
-                .orElseThrow(() -> new EntityNotFoundException("Trainee not found: " + traineeName));
-        return Training.builder()
-                .trainingName(dto.getName())
-                .trainingDate(dto.getDate())
-                .trainingDuration(dto.getDuration())
-                .trainee(trainee)
-                .trainer(trainer)
-                .trainingType(type)
-                .build();
-    }
-
     public TrainingResponseDto entityToDtoWithNullTrainer(Training training) {
         return TrainingResponseDto.builder()
                 .name(training.getTrainingName())
@@ -143,6 +126,26 @@ public class Converter {
                 .build();
     }
 
+    public TrainingResponseDto rowToDtoWithNullTrainer(TrainingListRow row) {
+        return TrainingResponseDto.builder()
+                .name(row.name())
+                .type(row.type())
+                .date(row.date())
+                .duration(row.duration())
+                .traineeName(row.traineeName())
+                .build();
+    }
+
+    public TrainingResponseDto rowToDtoWithNullTrainee(TrainingListRow row) {
+        return TrainingResponseDto.builder()
+                .name(row.name())
+                .type(row.type())
+                .date(row.date())
+                .duration(row.duration())
+                .trainerName(row.trainerName())
+                .build();
+    }
+
     public TrainingType getTrainingTypeByName(String trainingTypeName) {
         return resolveAndValidateTrainingType(trainingTypeName);
     }
@@ -158,7 +161,7 @@ public class Converter {
         if (!ValidationUtils.isValidTrainingTypeEnum(typeName)) {
             throw new IllegalArgumentException("TrainingType '" + typeName + "' is not supported.");
         }
-        return trainingTypeRepository.findByName(typeName)
+        return trainingTypeRegistry.find(typeName)
                 .orElseThrow(() -> new EntityNotFoundException("TrainingType not found: " + typeName));
     }
 
@@ -173,4 +176,54 @@ public class Converter {
                 .actionType(actionType)
                 .build();
     }
+
+    //  one ADD carrying the total minutes of a trainer-month, dated to the 1st of the month
+    public TrainingUpdateRequest trainerMonthToAddRequest(Trainer trainer, YearMonth month, int minutes) {
+        return TrainingUpdateRequest.builder()
+                .trainerUsername(trainer.getUsername())
+                .trainerFirstName(trainer.getFirstName())
+                .trainerLastName(trainer.getLastName())
+                .active(trainer.isActive())
+                .trainingDate(month.atDay(1))
+                .trainingDuration(minutes)
+                .actionType(ActionType.ADD)
+                .build();
+    }
+
+    //  one DELETE taking the total minutes of a trainer-month, dated to the 1st of the month
+    public TrainingUpdateRequest monthHoursToDeleteRequest(TrainerMonthHours hours) {
+        return TrainingUpdateRequest.builder()
+                .trainerUsername(hours.trainerUsername())
+                .trainerFirstName(hours.trainerFirstName())
+                .trainerLastName(hours.trainerLastName())
+                .active(hours.active())
+                .trainingDate(YearMonth.of(hours.year(), hours.month()).atDay(1))
+                .trainingDuration(Math.toIntExact(hours.totalMinutes()))
+                .actionType(ActionType.DELETE)
+                .build();
+    }
+
+    public TrainingUpdateRequest partiesToAddRequest(TrainingParties parties, Training training) {
+        return TrainingUpdateRequest.builder()
+                .trainerUsername(parties.trainerUsername())
+                .trainerFirstName(parties.trainerFirstName())
+                .trainerLastName(parties.trainerLastName())
+                .active(parties.trainerActive())
+                .trainingDate(training.getTrainingDate())
+                .trainingDuration(training.getTrainingDuration())
+                .actionType(ActionType.ADD)
+                .build();
+    }
+
+    public TrainingUpdateRequest rowAndActionToUpdateRequest(TrainingHoursRow row, ActionType actionType) {
+        return TrainingUpdateRequest.builder()
+                .trainerUsername(row.trainerUsername())
+                .trainerFirstName(row.trainerFirstName())
+                .trainerLastName(row.trainerLastName())
+                .active(row.active())
+                .trainingDate(row.trainingDate())
+                .trainingDuration(row.trainingDuration())
+                .actionType(actionType)
+                .build();
+    }
 }
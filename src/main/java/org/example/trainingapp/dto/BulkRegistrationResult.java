@@ -0,0 +1,30 @@
+package org.example.trainingapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Result of one row of a bulk registration: credentials or error")
+public record BulkRegistrationResult(
+        @Schema(description = "1-based row number in the upload", example = "1")
+        int row,
+
+        @Schema(description = "Generated username", example = "Ivan.Petrov")
+        String username,
+
+        @Schema(description = "Generated password", example = "aB3dE5gH7j")
+        String password,
+
+        @Schema(description = "Why the row was not registered", example = "First name is required.")
+        String error) {
+
+    public static BulkRegistrationResult created(int row, String username, String password) {
+        return new BulkRegistrationResult(row, username, password, null);
+    }
+
+
+    public static BulkRegistrationResult failed(int row, String error) {
+        return new BulkRegistrationResult(row, null, null, error);
+    }
+}
@@ -3,6 +3,7 @@ package org.example.trainingapp.dto;
 
 public enum EventType {
     UPDATE,             // ADD/DELETE from actionType
-    CLEAR_ALL
+    CLEAR_ALL,
+    MONTH_SNAPSHOT      // full total of one trainer-month, replaces whatever the consumer has for it
 }
 
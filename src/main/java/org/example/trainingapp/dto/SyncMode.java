@@ -0,0 +1,8 @@
+package org.example.trainingapp.dto;
+
+
+public enum SyncMode {
+    SEQUENTIAL,         // one publish at a time from the calling thread
+    PIPELINED,          // reader -> converter -> N publisher workers
+    AGGREGATED          // one MONTH_SNAPSHOT per trainer-month, summed in the DB
+}
@@ -8,12 +8,28 @@ public record SyncResult (
         @Schema(description = "Sync transaction ID", example = "550e8400-e29b-41d4-a716-446655440000")
         String txId,
 
-        @Schema(description = "Trainings total count", example = "150")
+        @Schema(description = "Trainings total count (trainer-months in AGGREGATED mode)", example = "150")
         int total,
 
-        @Schema(description = "Sent trainings count", example = "147")
+        @Schema(description = "Sent trainings count (trainer-months in AGGREGATED mode)", example = "147")
         int sent,
 
         @Schema(description = "Spent time in millis", example = "1234")
-        long tookMs) {
+        long tookMs,
+
+        @Schema(description = "Time spent reading trainings from DB in millis", example = "120")
+        long readMs,
+
+        @Schema(description = "Time spent converting trainings to events in millis", example = "15")
+        long convertMs,
+
+        @Schema(description = "Time spent publishing events in millis, summed over publisher workers", example = "1050")
+        long publishMs,
+
+        @Schema(description = "Achieved throughput in messages per second", example = "119.1")
+        double messagesPerSecond) {
+
+    public static double perSecond(int count, long tookMs) {
+        return tookMs > 0 ? count * 1000.0 / tookMs : count;
+    }
 }
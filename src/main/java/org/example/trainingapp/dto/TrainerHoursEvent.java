@@ -21,6 +21,9 @@ public class TrainerHoursEvent {
 
     @Schema(description = "Training update payload (only for UPDATE (ADD/DELETE) events)")
     private TrainingUpdateRequest trainingUpdate;
+
+    @Schema(description = "Trainer-month total (only for MONTH_SNAPSHOT events)")
+    private TrainerMonthHours monthSnapshot;
 }
 
 
@@ -0,0 +1,28 @@
+package org.example.trainingapp.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+
+@Schema(description = "Total training minutes of a trainer in one month (aggregated resync payload)")
+public record TrainerMonthHours(
+        @Schema(description = "Username of the trainer", example = "Elena.Sokolova")
+        String trainerUsername,
+
+        @Schema(description = "First name of the trainer", example = "Elena")
+        String trainerFirstName,
+
+        @Schema(description = "Last name of the trainer", example = "Sokolova")
+        String trainerLastName,
+
+        @Schema(description = "Active status of the trainer", example = "true")
+        boolean active,
+
+        @Schema(description = "Year", example = "2024")
+        Integer year,
+
+        @Schema(description = "Month (1-12)", example = "5")
+        Integer month,
+
+        @Schema(description = "Sum of training durations in the month, minutes", example = "540")
+        Long totalMinutes) {
+}
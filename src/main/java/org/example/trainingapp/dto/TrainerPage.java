@@ -0,0 +1,10 @@
+package org.example.trainingapp.dto;
+
+import java.util.List;
+
+
+// One page of trainers ordered by username: nextCursor (last username of the page) is null on the last page
+public record TrainerPage(
+        List<TrainerShortDto> trainers,
+        String nextCursor) {
+}
@@ -0,0 +1,32 @@
+package org.example.trainingapp.dto;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+
+// Keyset position in a training history ordered by (date, id), passed to clients as "<date>_<id>"
+public record TrainingCursor(LocalDate date, Long id) {
+
+    public static TrainingCursor of(TrainingListRow row) {
+        return new TrainingCursor(row.date(), row.id());
+    }
+
+
+    public static TrainingCursor parse(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        int separator = cursor.indexOf('_');
+        try {
+            return new TrainingCursor(LocalDate.parse(cursor.substring(0, separator)),
+                    Long.valueOf(cursor.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid page cursor: " + cursor);
+        }
+    }
+
+
+    public String encode() {
+        return date + "_" + id;
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.trainingapp.dto;
+
+import java.time.LocalDate;
+
+
+// Flat projection of a training with the trainer columns needed for trainer-hours events (no entity loading)
+public record TrainingHoursRow(
+        Long id,
+        String trainerUsername,
+        String trainerFirstName,
+        String trainerLastName,
+        boolean active,
+        LocalDate trainingDate,
+        Integer trainingDuration) {
+}
@@ -0,0 +1,27 @@
+package org.example.trainingapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Result of one row of a training import: generated training name or error")
+public record TrainingImportResult(
+        @Schema(description = "1-based row number in the upload (CSV header not counted)", example = "1")
+        int row,
+
+        @Schema(description = "Name of the created training", example = "2024-05-10#3 - Power Yoga")
+        String trainingName,
+
+        @Schema(description = "Why the row was not imported", example = "Not found trainee with username: Anna.Ivanova")
+        String error) {
+
+    public static TrainingImportResult created(int row, String trainingName) {
+        return new TrainingImportResult(row, trainingName, null);
+    }
+
+
+    public static TrainingImportResult failed(int row, String error) {
+        return new TrainingImportResult(row, null, error);
+    }
+}
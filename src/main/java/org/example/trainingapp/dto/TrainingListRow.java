@@ -0,0 +1,15 @@
+package org.example.trainingapp.dto;
+
+import java.time.LocalDate;
+
+
+// Flat projection of a training for trainee/trainer history lists; id is only used for the keyset cursor
+public record TrainingListRow(
+        Long id,
+        String name,
+        LocalDate date,
+        String type,
+        Integer duration,
+        String traineeName,
+        String trainerName) {
+}
@@ -0,0 +1,11 @@
+package org.example.trainingapp.dto;
+
+import java.util.List;
+
+
+// One page of a training history: nextCursor is null on the last page, totalCount only when requested
+public record TrainingPage(
+        List<TrainingResponseDto> trainings,
+        String nextCursor,
+        Long totalCount) {
+}
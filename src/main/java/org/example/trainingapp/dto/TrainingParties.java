@@ -0,0 +1,13 @@
+package org.example.trainingapp.dto;
+
+
+// Trainer and trainee columns creating a training needs, resolved by username in one query (no entity loading)
+public record TrainingParties(
+        Long trainerId,
+        String trainerUsername,
+        String trainerFirstName,
+        String trainerLastName,
+        boolean trainerActive,
+        Long specializationId,
+        Long traineeId) {
+}
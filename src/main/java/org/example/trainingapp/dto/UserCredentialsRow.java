@@ -0,0 +1,9 @@
+package org.example.trainingapp.dto;
+
+
+// What authentication needs about a user, resolved in one query: role is TRAINER or TRAINEE by subclass table
+public record UserCredentialsRow(
+        String username,
+        String password,
+        String role) {
+}
@@ -0,0 +1,43 @@
+package org.example.trainingapp.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+
+// Trainer-hours event stored in the same transaction as the business change, relayed to the broker later
+@Entity
+@Table(name = "trainer_hours_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trainer_hours_outbox_id_seq")
+    @SequenceGenerator(name = "trainer_hours_outbox_id_seq", sequenceName = "trainer_hours_outbox_id_seq",
+            allocationSize = 50)                                //  V10 increment
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "tx_id", nullable = false, length = 64)
+    private String txId;
+
+    @Column(name = "payload", nullable = false, length = 4000)
+    private String payload;                                     //  TrainerHoursEvent as JSON
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
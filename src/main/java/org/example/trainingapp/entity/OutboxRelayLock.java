@@ -0,0 +1,27 @@
+package org.example.trainingapp.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+// Single row (V11) ordering the outbox relay against a trainer-hours resync: each relay batch holds it shared,
+// the resync holds it exclusively until its snapshot is sent, so no later event overtakes CLEAR_ALL
+@Entity
+@Table(name = "trainer_hours_outbox_lock")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxRelayLock {
+    public static final long ID = 1L;
+
+    @Id
+    @Column(name = "id")
+    private Long id;
+}
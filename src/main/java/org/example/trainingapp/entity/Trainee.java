@@ -11,9 +11,12 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 
 @Entity
@@ -34,11 +37,12 @@ public class Trainee extends User {
     private List<Training> trainings;
 
     @ManyToMany(mappedBy = "trainees")
-    private List<Trainer> trainers;
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)             //  inverse side: change both sides together
+    private Set<Trainer> trainers;
 
 
     public Trainee(Long id, String firstName, String lastName, String username, String password, boolean isActive,
-                   LocalDate dateOfBirth, String address, List<Training> trainings, List<Trainer> trainers) {
+                   LocalDate dateOfBirth, String address, List<Training> trainings, Set<Trainer> trainers) {
         super(id, firstName, lastName, username, password, isActive, 0, null, null);
         this.dateOfBirth = dateOfBirth;
         this.address = address;
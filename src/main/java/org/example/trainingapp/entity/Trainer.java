@@ -13,8 +13,11 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
+import java.util.Set;
 
 
 @Entity
@@ -32,17 +35,18 @@ public class Trainer extends User {
     @OneToMany(mappedBy = "trainer", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Training> trainings;
 
-    @ManyToMany
+    @ManyToMany                                                     //  Set: single-row writes, no bag rewrite
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(
             name = "trainers_trainees",
             joinColumns = @JoinColumn(name = "trainer_id"),
             inverseJoinColumns = @JoinColumn(name = "trainee_id")
     )
-    private List<Trainee> trainees;
+    private Set<Trainee> trainees;
 
 
     public Trainer(Long id, String firstName, String lastName, String username, String password, boolean isActive,
-                   TrainingType specialization, List<Training> trainings, List<Trainee> trainees) {
+                   TrainingType specialization, List<Training> trainings, Set<Trainee> trainees) {
         super(id, firstName, lastName, username, password, isActive, 0, null, null);
         this.specialization = specialization;
         this.trainings = trainings;
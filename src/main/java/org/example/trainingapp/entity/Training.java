@@ -4,10 +4,12 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Column;
 import jakarta.persistence.Table;
+import jakarta.persistence.Index;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -18,7 +20,11 @@ import java.time.LocalDate;
 
 
 @Entity
-@Table(name = "trainings")
+@Table(name = "trainings", indexes = {                      //  created by V8__add_lookup_indexes.sql
+        @Index(name = "ix_trainings_training_name", columnList = "training_name"),
+        @Index(name = "ix_trainings_trainer_date", columnList = "trainer_id, training_date, id"),
+        @Index(name = "ix_trainings_trainee_date", columnList = "trainee_id, training_date, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -26,7 +32,9 @@ import java.time.LocalDate;
 @Builder
 public class Training {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trainings_id_seq")
+    @SequenceGenerator(name = "trainings_id_seq", sequenceName = "trainings_id_seq",
+            allocationSize = 50)                                //  V10 increment
     @Column(name = "id")
     private Long id;
 
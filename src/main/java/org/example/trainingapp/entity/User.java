@@ -1,5 +1,6 @@
 package org.example.trainingapp.entity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Inheritance;
@@ -8,19 +9,31 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Table;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
 
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {                          //  created by V8__add_lookup_indexes.sql
+        @Index(name = "ux_users_username", columnList = "username", unique = true),
+        @Index(name = "ix_users_first_name_last_name", columnList = "first_name, last_name")
+})
 @Inheritance(strategy = InheritanceType.JOINED)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)                 //  one region for trainers and trainees
+@NaturalIdCache                                                     //  username -> id, see NaturalIdRepository
 @Getter
 @Setter
 @NoArgsConstructor
@@ -28,7 +41,8 @@ import java.util.Objects;
 @SuperBuilder
 public abstract class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = 50)  //  V9 increment
     @Column(name = "id")
     private Long id;
 
@@ -38,7 +52,8 @@ public abstract class User {
     @Column(name = "last_name", nullable = false)
     private String lastName;
 
-    @Column(name = "username", nullable = false, unique = true)
+    @NaturalId                                                      //  never changed after registration
+    @Column(name = "username", nullable = false)
     private String username;
 
     @Column(name = "password", nullable = false)
@@ -49,6 +49,11 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
     }
 
+    @ExceptionHandler(PayloadTooLargeException.class)
+    public ResponseEntity<String> handlePayloadTooLarge(PayloadTooLargeException ex) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(ex.getMessage());
+    }
+
     @ExceptionHandler(JWTVerificationException.class)                                  // JWT validation failed
     public ResponseEntity<String> handleJWTVerification(JWTVerificationException ex) {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("JWT verification error: " + ex.getMessage());
@@ -0,0 +1,8 @@
+package org.example.trainingapp.exception;
+
+
+public class PayloadTooLargeException extends RuntimeException {
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
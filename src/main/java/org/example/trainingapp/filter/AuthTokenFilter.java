@@ -1,6 +1,7 @@
 package org.example.trainingapp.filter;
 
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,6 +9,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.example.trainingapp.jwt.JwtTokenUtil;
 import org.example.trainingapp.jwt.TokenBlacklistUtil;
+import org.example.trainingapp.jwt.VerifiedTokenCache;
 import org.example.trainingapp.service.impl.CustomUserDetailsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +36,7 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     private final JwtTokenUtil jwtTokenUtil;
     private final CustomUserDetailsService userDetailsService;
     private final TokenBlacklistUtil tokenBlacklistUtil;
+    private final VerifiedTokenCache verifiedTokenCache;
     private static final Logger log = LoggerFactory.getLogger(AuthTokenFilter.class.getName());
     // check token being Base64URL (A-Z, a-z, 0-9, -, _, .)
     private static final Pattern JWT_PATTERN = Pattern.compile("^[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+$");
@@ -45,26 +48,29 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         try {
             String token = getTokenFromJwt(request);
             if (token != null) {
-
-                if (!isValidJwtFormat(token)) {
-                    log.warn("Rejected malformed JWT: {}", token);
-                    response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Malformed JWT");
-                    return;
-                }
-
-                log.debug("Token found");
-
-                if (tokenBlacklistUtil.isTokenBlacklisted(token)) {                 //  if token is in the black list
-                    log.warn("Token is blacklisted: {}... (len={}), user logged out",
-                            token.substring(0, Math.min(10, token.length())), token.length());     // first 10 symbols of token
-                    throw new SecurityException("User is logged out");
+                UserDetails userDetails = verifiedTokenCache.get(token);  //  token already verified before
+                if (userDetails == null) {
+                    if (!isValidJwtFormat(token)) {
+                        log.warn("Rejected malformed JWT: {}", token);
+                        response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Malformed JWT");
+                        return;
+                    }
+
+                    log.debug("Token found");
+
+                    if (tokenBlacklistUtil.isTokenBlacklisted(token)) {             //  if token is in the black list
+                        log.warn("Token is blacklisted: {}... (len={}), user logged out",
+                                token.substring(0, Math.min(10, token.length())), token.length());     // first 10 symbols of token
+                        throw new SecurityException("User is logged out");
+                    }
+
+                    DecodedJWT jwt = jwtTokenUtil.validateAndParseToken(token);     //  if no exception thrown go further
+                    String username = jwt.getSubject();
+                    log.debug("Token is valid for user: {}", username);
+
+                    userDetails = userDetailsService.loadUserByUsername(username);
+                    verifiedTokenCache.put(token, userDetails, jwt.getExpiresAt().toInstant());
                 }
-
-                jwtTokenUtil.validateAndParseToken(token);          //  if no exception thrown go further
-                String username = jwtTokenUtil.getUsernameFromToken(token);
-                log.debug("Token is valid for user: {}", username);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(
                                 userDetails,
@@ -72,7 +78,7 @@ public class AuthTokenFilter extends OncePerRequestFilter {
                                 userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authentication);
-                log.debug("Authentication set for user: {}", username);
+                log.debug("Authentication set for user: {}", userDetails.getUsername());
             }
         } catch (JWTVerificationException | SecurityException e) {
             log.warn("Authentication failed: {}", e.getMessage());
@@ -29,8 +29,13 @@ public class RestLoggingFilter extends OncePerRequestFilter {               // l
             "/api/users/login",
             "/api/users/register-trainee",
             "/api/users/register-trainer",
+            "/api/users/register-trainees",                                 //  bulk responses carry passwords
+            "/api/users/register-trainers",
             "/api/users/change-password"
     );
+    private static final Set<String> STREAMED_ENDPOINTS = Set.of(           //  uploads too large to cache for the log
+            "/api/trainings/import"
+    );
 
 
     @Override
@@ -38,38 +43,53 @@ public class RestLoggingFilter extends OncePerRequestFilter {               // l
                                     @NonNull FilterChain chain)
             throws ServletException, IOException {
 
+        String uri = req.getRequestURI();
+        String method = req.getMethod();
+        String query = StringUtils.hasText(req.getQueryString()) ? "?" + req.getQueryString() : "";
+        long start = System.currentTimeMillis();
+
+        String path = uri.substring(req.getContextPath().length());
+        if (isSensitive(method, path) || isStreamed(method, path)) {
+            String hidden = isSensitive(method, path) ? "<hidden>" : "<streamed>";
+            try {                                                           //  bodies not logged - no caching,
+                chain.doFilter(req, res);                                   //  so bulk uploads stay streamed
+            } finally {
+                logExchange(method, uri, query, res.getStatus(), System.currentTimeMillis() - start, hidden, hidden);
+            }
+            return;
+        }
+
         ContentCachingRequestWrapper requestWrapper = new ContentCachingRequestWrapper(req);
         ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(res);
-
-        long start = System.currentTimeMillis();
         try {
             chain.doFilter(requestWrapper, responseWrapper);
         } finally {
             long tookMs = System.currentTimeMillis() - start;
-            String uri = req.getRequestURI();
-            String method = req.getMethod();
-            String query = StringUtils.hasText(req.getQueryString()) ? "?" + req.getQueryString() : "";
-
-            boolean sensitive = isSensitive(method, uri);
-            String reqBody = sensitive ? "<hidden>" :
-                    safeBody(requestWrapper.getContentAsByteArray(), requestWrapper.getCharacterEncoding());
-            String resBody = sensitive ? "<hidden>" :
-                    safeBody(responseWrapper.getContentAsByteArray(), responseWrapper.getCharacterEncoding());
-
-            if (responseWrapper.getStatus() < 400) {
-                log.info("REST {} {}{} -> {} ({} ms)\nREQ:{}\nRES:{}",
-                        method, uri, query, responseWrapper.getStatus(), tookMs, reqBody, resBody);
-            } else {
-                log.warn("REST {} {}{} -> {} ({} ms)\nREQ:{}\nRES:{}",
-                        method, uri, query, responseWrapper.getStatus(), tookMs, reqBody, resBody);
-            }
+            String reqBody = safeBody(requestWrapper.getContentAsByteArray(), requestWrapper.getCharacterEncoding());
+            String resBody = safeBody(responseWrapper.getContentAsByteArray(), responseWrapper.getCharacterEncoding());
+            logExchange(method, uri, query, responseWrapper.getStatus(), tookMs, reqBody, resBody);
             responseWrapper.copyBodyToResponse();                           //  return body to client
         }
     }
 
 
-    private boolean isSensitive(String method, String uri) {
-        return "POST".equalsIgnoreCase(method) && SENSITIVE_ENDPOINTS.stream().anyMatch(uri::startsWith);
+    private void logExchange(String method, String uri, String query, int status, long tookMs,
+                             String reqBody, String resBody) {
+        if (status < 400) {
+            log.info("REST {} {}{} -> {} ({} ms)\nREQ:{}\nRES:{}", method, uri, query, status, tookMs, reqBody, resBody);
+        } else {
+            log.warn("REST {} {}{} -> {} ({} ms)\nREQ:{}\nRES:{}", method, uri, query, status, tookMs, reqBody, resBody);
+        }
+    }
+
+
+    private boolean isSensitive(String method, String path) {
+        return "POST".equalsIgnoreCase(method) && SENSITIVE_ENDPOINTS.contains(path);
+    }
+
+
+    private boolean isStreamed(String method, String path) {
+        return "POST".equalsIgnoreCase(method) && STREAMED_ENDPOINTS.contains(path);
     }
 
 
@@ -1,23 +1,23 @@
 package org.example.trainingapp.health;
 
-import org.example.trainingapp.repository.TrainingTypeRepository;
+import org.example.trainingapp.service.TrainingTypeRegistry;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.stereotype.Component;
 
 
 @Component
-public class TrainingTypeCountHealthIndicator implements HealthIndicator {      //  check if DB contains Training Types
+public class TrainingTypeCountHealthIndicator implements HealthIndicator {      //  check if Training Types are loaded
 
-    private final TrainingTypeRepository trainingTypeRepository;
+    private final TrainingTypeRegistry trainingTypeRegistry;
 
-    public TrainingTypeCountHealthIndicator(TrainingTypeRepository repository) {
-        this.trainingTypeRepository = repository;
+    public TrainingTypeCountHealthIndicator(TrainingTypeRegistry registry) {
+        this.trainingTypeRegistry = registry;
     }
 
     @Override
     public Health health() {
-        long count = trainingTypeRepository.count();
+        long count = trainingTypeRegistry.size();
         if (count == 0) {
             return Health.down()
                     .withDetail("error", "No training types defined")
@@ -0,0 +1,50 @@
+package org.example.trainingapp.jwt;
+
+import java.nio.ByteBuffer;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+// Bloom filter over blacklisted token digests: "no" is definite, "maybe" has to be confirmed in Redis.
+// Digests are SHA-256, so their bytes are used directly as the two base hashes (double hashing)
+final class BlacklistBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+
+    BlacklistBloomFilter(int expectedTokens, double falsePositiveRate) {
+        long m = (long) Math.ceil(-expectedTokens * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64, m);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedTokens * Math.log(2)));
+        this.bits = new AtomicLongArray((int) ((bitCount + 63) / 64));
+    }
+
+
+    void put(String digest) {
+        ByteBuffer hashes = ByteBuffer.wrap(HexFormat.of().parseHex(digest));
+        long h1 = hashes.getLong();
+        long h2 = hashes.getLong();
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            bits.getAndAccumulate(word, mask, (current, m) -> current | m);
+        }
+    }
+
+
+    boolean mightContain(String digest) {
+        ByteBuffer hashes = ByteBuffer.wrap(HexFormat.of().parseHex(digest));
+        long h1 = hashes.getLong();
+        long h2 = hashes.getLong();
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
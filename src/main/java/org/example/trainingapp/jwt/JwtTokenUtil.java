@@ -1,28 +1,41 @@
 package org.example.trainingapp.jwt;
 
+import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.auth0.jwt.interfaces.JWTVerifier;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.GeneralSecurityException;
 import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
+import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
-import java.security.spec.EncodedKeySpec;
-import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.JWT;
 
@@ -32,30 +45,117 @@ import static org.example.trainingapp.constant.Constant.ROLE;
 @Service
 public class JwtTokenUtil {
 
-    private final JWTVerifier verifier;
+    private static final Logger log = LoggerFactory.getLogger(JwtTokenUtil.class);
+    private static final Set<String> KEY_FILES = Set.of("public.key", "private.key");
+    private static final long RELOAD_DELAY_MS = 200;            //  let the second key file land before reloading
+
     private final Path keysPath;
     private final Integer jwtLifetime;
+    private volatile KeyRing keyRing;                           //  immutable, swapped as a whole on rotation
+    private WatchService watchService;
 
 
     public JwtTokenUtil(@Value("${jwt.keys-path:secret}") String keysDir,
                         @Value("${jwt.lifetime}") Integer jwtLifetime) throws Exception {
         this.keysPath = Paths.get(keysDir);
         this.jwtLifetime = jwtLifetime;
-        PublicKey publicKey = loadPublicKey();
-        this.verifier  = JWT.require(Algorithm.RSA256((RSAPublicKey) publicKey, null))
-                .build();
+        this.keyRing = new KeyRing(loadSigningKey(), Map.of());
     }
 
 
-    private PublicKey loadPublicKey() throws Exception {
+    // Key pair parsed once into a signing Algorithm; kid is derived from the public key, so it is the same
+    // on every instance sharing the key files
+    private SigningKey loadSigningKey() throws IOException, GeneralSecurityException {
         byte[] publicKeyBytes = Files.readAllBytes(keysPath.resolve("public.key"));
-        X509EncodedKeySpec keySpec = new X509EncodedKeySpec(publicKeyBytes);
-        return KeyFactory.getInstance("RSA").generatePublic(keySpec);
+        byte[] privateKeyBytes = Files.readAllBytes(keysPath.resolve("private.key"));
+        KeyFactory kf = KeyFactory.getInstance("RSA");
+        PublicKey publicKey = kf.generatePublic(new X509EncodedKeySpec(publicKeyBytes));
+        PrivateKey privateKey = kf.generatePrivate(new PKCS8EncodedKeySpec(privateKeyBytes));
+        String kid = HexFormat.of().formatHex(
+                Arrays.copyOf(MessageDigest.getInstance("SHA-256").digest(publicKeyBytes), 8));
+        Algorithm algorithm = Algorithm.RSA256((RSAPublicKey) publicKey, (RSAPrivateKey) privateKey);
+        JWTVerifier verifier = JWT.require(algorithm).build();
+        verifier.verify(JWT.create().withKeyId(kid).sign(algorithm));  //  files of different pairs are rejected
+        return new SigningKey(kid, algorithm, verifier);
+    }
+
+
+    // Picks up new key files; the replaced key keeps verifying for one token lifetime
+    public synchronized void reloadKeys() {
+        SigningKey loaded;
+        try {
+            loaded = loadSigningKey();
+        } catch (Exception e) {
+            log.warn("JWT keys in {} not reloaded, keeping current key: {}", keysPath, e.getMessage());
+            return;
+        }
+        KeyRing ring = keyRing;
+        if (loaded.kid().equals(ring.current().kid())) {
+            return;
+        }
+        Instant now = Instant.now();
+        Map<String, RetiredKey> retired = new HashMap<>();
+        ring.retired().forEach((kid, key) -> {
+            if (key.validUntil().isAfter(now)) {
+                retired.put(kid, key);
+            }
+        });
+        retired.put(ring.current().kid(),
+                new RetiredKey(ring.current().verifier(), now.plusMillis(jwtLifetime)));
+        retired.remove(loaded.kid());                           //  rolled back to an earlier key
+        keyRing = new KeyRing(loaded, Map.copyOf(retired));
+        log.info("JWT signing key rotated: kid {} -> {}", ring.current().kid(), loaded.kid());
+    }
+
+
+    @PostConstruct
+    public void watchKeys() throws IOException {
+        watchService = keysPath.getFileSystem().newWatchService();
+        keysPath.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread.ofPlatform().daemon().name("jwt-keys-watcher").start(this::watchLoop);
+    }
+
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean keyFileChanged = key.pollEvents().stream()
+                        .anyMatch(event -> KEY_FILES.contains(String.valueOf(event.context())));
+                key.reset();
+                if (keyFileChanged) {
+                    Thread.sleep(RELOAD_DELAY_MS);
+                    reloadKeys();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("JWT keys watcher stopped");
+        }
+    }
+
+
+    @PreDestroy
+    public void stopWatching() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
     }
 
 
     public DecodedJWT validateAndParseToken(String token) {
-        return verifier.verify(token);                          // thrown Exceptions to be handled in @ExceptionHandler
+        DecodedJWT jwt = JWT.decode(token);                     // thrown Exceptions to be handled in @ExceptionHandler
+        KeyRing ring = keyRing;
+        String kid = jwt.getKeyId();
+        if (kid == null || kid.equals(ring.current().kid())) {  //  tokens issued before kid header was added
+            return ring.current().verifier().verify(jwt);
+        }
+        RetiredKey retired = ring.retired().get(kid);
+        if (retired == null || retired.validUntil().isBefore(Instant.now())) {
+            throw new JWTVerificationException("Unknown signing key id: " + kid);
+        }
+        return retired.verifier().verify(jwt);
     }
 
 
@@ -75,38 +175,31 @@ public class JwtTokenUtil {
     }
 
 
-    private Algorithm buildJwtAlgorithm(byte[] publicKeyBytes, byte[] privateKeyBytes) throws NoSuchAlgorithmException,
-            InvalidKeySpecException {
-        KeyFactory kf = KeyFactory.getInstance("RSA");
-        EncodedKeySpec publicKeySpec = new X509EncodedKeySpec(publicKeyBytes);
-        PublicKey publicKey = kf.generatePublic(publicKeySpec);
-        PrivateKey privateKey = kf.generatePrivate(new PKCS8EncodedKeySpec(privateKeyBytes));
-        return Algorithm.RSA256((RSAPublicKey) publicKey, (RSAPrivateKey) privateKey);
-    }
-
-
-    public String generateToken(UserDetails userDetails) throws IOException, NoSuchAlgorithmException, InvalidKeySpecException {
+    public String generateToken(UserDetails userDetails) {
         String role = userDetails.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority).toList().getFirst();   //  UserDetails has only 1 role
         Date issuedDate = new Date();                                       //  token creation datetime
         Date expiredDate = new Date(issuedDate.getTime() + jwtLifetime);    //  token expiry datetime
+        SigningKey signingKey = keyRing.current();
 
         return JWT.create()
+                .withKeyId(signingKey.kid())                                //  key used for the signature
                 .withClaim(ROLE, role)                           //  user role
                 .withSubject(userDetails.getUsername())                     //  username
                 .withIssuedAt(issuedDate)                                   //  creation datetime
                 .withExpiresAt(expiredDate)                                 //  expiry datetime
-                .sign(buildJwtAlgorithm(getPublicKey(), getPrivateKey()));  //  signature
+                .sign(signingKey.algorithm());                              //  signature
     }
 
 
-    private byte[] getPrivateKey() throws IOException {
-        return Files.readAllBytes(keysPath.resolve("private.key"));
+    private record SigningKey(String kid, Algorithm algorithm, JWTVerifier verifier) {
     }
 
 
-    private byte[] getPublicKey() throws IOException {
-        return Files.readAllBytes(keysPath.resolve("public.key"));
+    private record RetiredKey(JWTVerifier verifier, Instant validUntil) {
     }
-}
 
+
+    private record KeyRing(SigningKey current, Map<String, RetiredKey> retired) {
+    }
+}
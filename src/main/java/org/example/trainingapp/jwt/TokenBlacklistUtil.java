@@ -1,25 +1,190 @@
 package org.example.trainingapp.jwt;
 
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HexFormat;
 
 
+// Blacklist entries are "blacklisted:<sha-256 of token>" and expire in Redis together with the token.
+// A local Bloom filter answers "not blacklisted" without a round-trip; other nodes' logouts reach it
+// through the BLACKLIST_CHANNEL, which also evicts them from the VerifiedTokenCache, as it does for users changed
+// on another node. Until the filter is seeded (or while unsubscribed) every check goes to Redis.
 @Service
 @RequiredArgsConstructor
-public class TokenBlacklistUtil {
+public class TokenBlacklistUtil implements MessageListener, SubscriptionListener {
 
     private final RedisTemplate<String, String> redisTemplate;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private static final Logger log = LoggerFactory.getLogger(TokenBlacklistUtil.class);
     private static final String BLACKLIST_PREFIX = "blacklisted:";
+    public static final String BLACKLIST_CHANNEL = "token-blacklist";
+
+    @Value("${jwt.blacklist.bloom.expected-tokens:100000}")
+    private int expectedTokens = 100000;
+
+    @Value("${jwt.blacklist.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate = 0.01;
+
+    private volatile BlacklistBloomFilter bloomFilter;
+    private volatile BlacklistBloomFilter seeding;              //  filter being rebuilt, receives live adds too
+    private volatile boolean warm;
+
 
     public void blacklistToken(String token, Instant expirationTime) {
-        String key = BLACKLIST_PREFIX + token;
-        redisTemplate.opsForValue().set(key, expirationTime.toString());
+        Duration ttl = Duration.between(Instant.now(), expirationTime);
+        if (ttl.isNegative() || ttl.isZero()) {
+            return;                                             //  expired token is rejected by the verifier anyway
+        }
+        String digest = TokenDigest.sha256Hex(token);
+        redisTemplate.opsForValue().set(BLACKLIST_PREFIX + digest, expirationTime.toString(), ttl);
+        addToBloomFilter(digest);
+        verifiedTokenCache.invalidateDigest(digest);
+        redisTemplate.convertAndSend(BLACKLIST_CHANNEL, digest); //  after SET: a rebuilding node sees it either way
     }
 
+
     public boolean isTokenBlacklisted(String token) {
-        return Boolean.TRUE.equals(redisTemplate.hasKey(BLACKLIST_PREFIX + token));
+        String digest = TokenDigest.sha256Hex(token);
+        if (warm && !bloomFilter.mightContain(digest)) {        //  warm is only set after the filter
+            return false;
+        }
+        return Boolean.TRUE.equals(redisTemplate.hasKey(BLACKLIST_PREFIX + digest));
+    }
+
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.startsWith(VerifiedTokenCache.USER_MESSAGE_PREFIX)) {      //  user deleted or changed on any node
+            verifiedTokenCache.invalidateUserLocally(body.substring(VerifiedTokenCache.USER_MESSAGE_PREFIX.length()));
+        } else if (isDigest(body)) {
+            addToBloomFilter(body);
+            verifiedTokenCache.invalidateDigest(body);          //  a cache hit skips the blacklist check
+        }
+    }
+
+
+    // (Re)subscribed: logouts published while we were not listening are only in Redis, so reseed from there
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        Thread.ofVirtual().name("blacklist-bloom-seed").start(this::seedBloomFilter);
+    }
+
+
+    @Override
+    public void onChannelUnsubscribed(byte[] channel, long count) {
+        warm = false;
+    }
+
+
+    // Expired digests stay in the filter as false positives until it is rebuilt
+    @Scheduled(fixedDelayString = "${jwt.blacklist.bloom.rebuild-interval-ms:3600000}",
+            initialDelayString = "${jwt.blacklist.bloom.rebuild-interval-ms:3600000}")
+    public void rebuildBloomFilter() {
+        if (warm) {
+            seedBloomFilter();
+        }
+    }
+
+
+    // SCAN is incremental, unlike KEYS, and only live digests are left thanks to the TTL
+    synchronized void seedBloomFilter() {
+        BlacklistBloomFilter fresh = new BlacklistBloomFilter(expectedTokens, falsePositiveRate);
+        seeding = fresh;
+        int seeded = 0;
+        try (Cursor<String> keys = redisTemplate.scan(
+                ScanOptions.scanOptions().match(BLACKLIST_PREFIX + "*").count(1000).build())) {
+            while (keys.hasNext()) {
+                String key = keys.next();
+                String digest = key.substring(BLACKLIST_PREFIX.length());
+                if (!isDigest(digest)) {
+                    digest = migrateLegacyKey(key);             //  raw-token entry written before digests
+                }
+                if (digest != null) {
+                    fresh.put(digest);
+                    seeded++;
+                }
+            }
+            bloomFilter = fresh;
+            warm = true;
+            log.info("Token blacklist Bloom filter seeded with {} digests", seeded);
+        } catch (Exception e) {
+            log.warn("Token blacklist Bloom filter not seeded, checking Redis for every token: {}", e.getMessage());
+        } finally {
+            seeding = null;
+        }
+    }
+
+
+    // "blacklisted:<raw token>" without TTL, value is the token's expiration. Rewritten as a digest entry living
+    // for the rest of the token's lifetime; the raw key is removed only once the new one is stored, so the token
+    // stays blacklisted if anything fails. Returns the digest, or null if the token needs no entry any more
+    private String migrateLegacyKey(String key) {
+        String token = key.substring(BLACKLIST_PREFIX.length());
+        Instant expirationTime = legacyExpiration(key);
+        if (expirationTime == null) {
+            log.warn("Legacy blacklist entry without readable expiration kept as is: {}...",
+                    token.substring(0, Math.min(10, token.length())));
+            return null;
+        }
+        Duration ttl = Duration.between(Instant.now(), expirationTime);
+        String digest = TokenDigest.sha256Hex(token);
+        if (ttl.isNegative() || ttl.isZero()) {
+            digest = null;                                      //  expired token is rejected by the verifier anyway
+        } else {
+            redisTemplate.opsForValue().set(BLACKLIST_PREFIX + digest, expirationTime.toString(), ttl);
+        }
+        redisTemplate.delete(key);
+        return digest;
+    }
+
+
+    // Remaining TTL if the key has one, otherwise the expiration stored as its value
+    private Instant legacyExpiration(String key) {
+        Long ttlSeconds = redisTemplate.getExpire(key);
+        if (ttlSeconds != null && ttlSeconds > 0) {
+            return Instant.now().plusSeconds(ttlSeconds);
+        }
+        String stored = redisTemplate.opsForValue().get(key);
+        if (stored == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(stored);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+
+    private void addToBloomFilter(String digest) {
+        BlacklistBloomFilter filter = bloomFilter;
+        if (filter != null) {
+            filter.put(digest);
+        }
+        BlacklistBloomFilter rebuilding = seeding;
+        if (rebuilding != null) {
+            rebuilding.put(digest);
+        }
+    }
+
+
+    private static boolean isDigest(String value) {
+        return value.length() == 64 && value.chars().allMatch(HexFormat::isHexDigit);
     }
 }
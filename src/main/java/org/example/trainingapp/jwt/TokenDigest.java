@@ -0,0 +1,24 @@
+package org.example.trainingapp.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+
+// Fixed-size stand-in for a raw token wherever tokens are used as keys (raw tokens are not kept or stored)
+final class TokenDigest {
+
+    private TokenDigest() {
+    }
+
+
+    static String sha256Hex(String token) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);  //  guaranteed by every JRE
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.trainingapp.jwt;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+// Tokens that already passed format, blacklist and signature checks, with the principal loaded for them.
+// Keyed by SHA-256 of the token (raw tokens are not kept in memory), each entry lives until the token's exp.
+@Service
+@RequiredArgsConstructor
+public class VerifiedTokenCache {
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(VerifiedTokenCache.class);
+    public static final String USER_MESSAGE_PREFIX = "user:";   //  on the blacklist channel, next to digests
+
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private int maxSize = 10000;
+
+
+    public UserDetails get(String token) {
+        String key = TokenDigest.sha256Hex(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.expiresAt().isAfter(Instant.now())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.userDetails();
+    }
+
+
+    public void put(String token, UserDetails userDetails, Instant expiresAt) {
+        if (entries.size() >= maxSize) {
+            Instant now = Instant.now();
+            entries.values().removeIf(entry -> !entry.expiresAt().isAfter(now));
+            if (entries.size() >= maxSize) {
+                return;                                         //  full of live tokens - just verify them again
+            }
+        }
+        entries.put(TokenDigest.sha256Hex(token), new Entry(userDetails, expiresAt));
+    }
+
+
+    public void invalidate(String token) {
+        invalidateDigest(TokenDigest.sha256Hex(token));
+    }
+
+
+    // Blacklisted on another node: only the digest travels over the blacklist channel
+    public void invalidateDigest(String digest) {
+        entries.remove(digest);
+    }
+
+
+    // All cached tokens of a user, after deletes, password and active status changes. Invalidated again
+    // after commit, so a token verified in between cannot keep the old user details cached; other nodes are
+    // told over the blacklist channel once the change is committed
+    public void invalidateUser(String username) {
+        invalidateUserLocally(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateUserLocally(username);
+                    publishUserInvalidation(username);
+                }
+            });
+        } else {
+            publishUserInvalidation(username);
+        }
+    }
+
+
+    // Invalidated on another node (TokenBlacklistUtil.onMessage)
+    public void invalidateUserLocally(String username) {
+        entries.values().removeIf(entry -> entry.userDetails().getUsername().equals(username));
+    }
+
+
+    private void publishUserInvalidation(String username) {
+        try {
+            redisTemplate.convertAndSend(TokenBlacklistUtil.BLACKLIST_CHANNEL, USER_MESSAGE_PREFIX + username);
+        } catch (DataAccessException e) {                       //  other nodes drop the entries at token expiry
+            log.warn("Cached tokens of {} not invalidated on other nodes: {}", username, e.getMessage());
+        }
+    }
+
+
+    private record Entry(UserDetails userDetails, Instant expiresAt) {
+    }
+}
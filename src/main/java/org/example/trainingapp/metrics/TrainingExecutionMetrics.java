@@ -4,6 +4,9 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.function.Supplier;
 
 
@@ -11,9 +14,13 @@ import java.util.function.Supplier;
 public class TrainingExecutionMetrics {
 
     private final Timer timer;
+    private final Map<Phase, Timer> phaseTimers = new EnumMap<>(Phase.class);
 
     public TrainingExecutionMetrics(MeterRegistry registry) {               //  training creation time metric
         this.timer = registry.timer("training.creation.timer");
+        for (Phase phase : Phase.values()) {                                //  same time split by creation step
+            phaseTimers.put(phase, registry.timer("training.creation.phase.timer", "phase", phase.tag()));
+        }
     }
 
     public <T> T record(Supplier<T> supplier) {
@@ -23,5 +30,25 @@ public class TrainingExecutionMetrics {
     public void record(Runnable runnable) {
         timer.record(runnable);
     }
-}
 
+    public <T> T record(Phase phase, Supplier<T> supplier) {
+        return phaseTimers.get(phase).record(supplier);
+    }
+
+    public void record(Phase phase, Runnable runnable) {
+        phaseTimers.get(phase).record(runnable);
+    }
+
+
+    public enum Phase {
+        RESOLVE,                //  trainer and trainee lookup
+        LINK,                   //  conditional trainers_trainees insert
+        NAME,                   //  trainer-day name sequence
+        INSERT,                 //  training row
+        ENQUEUE;                //  trainer-hours outbox event
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+}
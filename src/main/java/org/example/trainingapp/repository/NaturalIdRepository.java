@@ -0,0 +1,11 @@
+package org.example.trainingapp.repository;
+
+import java.util.Optional;
+
+
+// Lookup by username as Hibernate natural id: a repeated read is answered by the second-level natural-id
+// and entity caches without SQL, while derived findByUsername queries always go to the DB
+public interface NaturalIdRepository<T> {
+
+    Optional<T> findByNaturalId(String username);
+}
@@ -0,0 +1,28 @@
+package org.example.trainingapp.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.example.trainingapp.entity.OutboxRelayLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+
+@Repository
+public interface OutboxRelayLockRepository extends JpaRepository<OutboxRelayLock, Long> {
+
+    //  relay batch: shared with other relay instances, empty while a resync holds it (-2 = SKIP LOCKED)
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT l FROM OutboxRelayLock l")
+    List<OutboxRelayLock> lockForRelay();
+
+    //  resync: waits for the relay batches in flight, then keeps the relay out until the resync commits
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM OutboxRelayLock l")
+    List<OutboxRelayLock> lockForResync();
+}
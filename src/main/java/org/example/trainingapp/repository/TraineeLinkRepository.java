@@ -0,0 +1,17 @@
+package org.example.trainingapp.repository;
+
+import java.util.Collection;
+
+
+// Join-table statements run past the second-level cache, so the trainer-trainee collections they change
+// are evicted by key: right away and once more after the transaction completes
+public interface TraineeLinkRepository {
+
+    //  query space of the join-table statements; no entity or collection is mapped to it, so Hibernate neither
+    //  evicts cache regions nor auto-flushes for them - the statements flush explicitly, eviction is by key
+    String LINK_QUERY_SPACE = "trainer_trainee_links";
+
+    void evictTraineeLinks(Long traineeId, Collection<Long> trainerIds);
+
+    void evictTrainerLinks(Long trainerId, Collection<Long> traineeIds);
+}
@@ -10,19 +10,18 @@ import java.util.Optional;
 
 
 @Repository
-public interface TraineeRepository extends JpaRepository<Trainee, Long> {
+public interface TraineeRepository extends JpaRepository<Trainee, Long>, NaturalIdRepository<Trainee> {
 
     Optional<Trainee> findByUsername(String username);
 
-    @Query("SELECT DISTINCT t FROM Trainee t LEFT JOIN FETCH t.trainings tr LEFT JOIN FETCH tr.trainer " +
-            "LEFT JOIN FETCH tr.trainingType WHERE t.username = :username")
-    Optional<Trainee> findByUsernameWithTrainings(@Param("username") String username);
-
     @Query("SELECT DISTINCT t FROM Trainee t LEFT JOIN FETCH t.trainers WHERE t.username = :username")
     Optional<Trainee> findByUsernameWithTrainers(@Param("username") String username);
 
     void deleteByUsername(String username);
 
     boolean existsByUsername(String username);
+
+    @Query("SELECT t.id FROM Trainee t WHERE t.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
 }
 
@@ -0,0 +1,23 @@
+package org.example.trainingapp.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.trainingapp.entity.Trainee;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+
+class TraineeRepositoryImpl implements NaturalIdRepository<Trainee> {            //  custom part of TraineeRepository
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Trainee> findByNaturalId(String username) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Trainee.class).loadOptional(username);
+    }
+}
@@ -1,26 +1,83 @@
 package org.example.trainingapp.repository;
 
+import jakarta.persistence.QueryHint;
+import org.example.trainingapp.dto.TrainerShortDto;
+import org.example.trainingapp.dto.TrainingParties;
 import org.example.trainingapp.entity.Trainer;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
 @Repository
-public interface TrainerRepository extends JpaRepository<Trainer, Long> {
+public interface TrainerRepository extends JpaRepository<Trainer, Long>, NaturalIdRepository<Trainer>,
+        TraineeLinkRepository {
 
     Optional<Trainer> findByUsername(String username);
 
-    @Query("SELECT DISTINCT t FROM Trainer t LEFT JOIN FETCH t.trainings tr LEFT JOIN FETCH tr.trainee " +
-            "LEFT JOIN FETCH tr.trainingType WHERE t.username = :username")
-    Optional<Trainer> findByUsernameWithTrainings(@Param("username") String username);
-
     @Query("SELECT DISTINCT t FROM Trainer t LEFT JOIN FETCH t.trainees WHERE t.username = :username")
     Optional<Trainer> findByUsernameWithTrainees(@Param("username") String username);
 
     boolean existsByUsername(String username);
+
+    List<Trainer> findByUsernameIn(Collection<String> usernames);
+
+    //  both sides of a new training in one round trip: two username index lookups, no entity is loaded
+    @Query("SELECT new org.example.trainingapp.dto.TrainingParties(tr.id, tr.username, tr.firstName, tr.lastName, " +
+            "tr.active, tr.specialization.id, te.id) FROM Trainer tr, Trainee te " +
+            "WHERE tr.username = :trainerUsername AND te.username = :traineeUsername")
+    Optional<TrainingParties> findTrainingParties(@Param("trainerUsername") String trainerUsername,
+                                                  @Param("traineeUsername") String traineeUsername);
+
+    //  trainer list delta of one trainee, applied to the join table as is; the caller evicts the changed links
+    //  (TraineeLinkRepository). Pending inserts are flushed first, the private query space does not auto-flush
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM trainers_trainees WHERE trainee_id = :traineeId AND trainer_id IN (:trainerIds)",
+            nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = LINK_QUERY_SPACE))
+    int unlinkTrainee(@Param("traineeId") Long traineeId, @Param("trainerIds") Collection<Long> trainerIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM trainers_trainees WHERE trainee_id = :traineeId", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = LINK_QUERY_SPACE))
+    int unlinkTraineeFromAll(@Param("traineeId") Long traineeId);
+
+    //  conditional inserts: an existing link is skipped by the primary key, no collection has to be loaded to check it
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO trainers_trainees (trainer_id, trainee_id) " +
+            "SELECT t.id, :traineeId FROM trainers t WHERE t.id IN (:trainerIds) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = LINK_QUERY_SPACE))
+    int linkTrainee(@Param("traineeId") Long traineeId, @Param("trainerIds") Collection<Long> trainerIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO trainers_trainees (trainer_id, trainee_id) " +
+            "SELECT :trainerId, t.id FROM trainees t WHERE t.id IN (:traineeIds) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = LINK_QUERY_SPACE))
+    int linkTrainees(@Param("trainerId") Long trainerId, @Param("traineeIds") Collection<Long> traineeIds);
+
+    //  trainers not assigned to the trainee (anti-join on trainers_trainees), keyset-paged by username
+    @Query("SELECT new org.example.trainingapp.dto.TrainerShortDto(tr.username, tr.firstName, tr.lastName, s.name) " +
+            "FROM Trainer tr JOIN tr.specialization s " +
+            "WHERE NOT EXISTS (SELECT 1 FROM tr.trainees te WHERE te.username = :traineeUsername) " +
+            "AND (:specialization IS NULL OR LOWER(s.name) = LOWER(:specialization)) " +
+            "AND (:active IS NULL OR tr.active = :active) " +
+            "AND (:afterUsername IS NULL OR tr.username > :afterUsername) " +
+            "ORDER BY tr.username")
+    List<TrainerShortDto> findNotAssignedToTrainee(@Param("traineeUsername") String traineeUsername,
+                                                   @Param("specialization") String specialization,
+                                                   @Param("active") Boolean active,
+                                                   @Param("afterUsername") String afterUsername,
+                                                   Limit limit);
 }
 
@@ -0,0 +1,62 @@
+package org.example.trainingapp.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.trainingapp.entity.Trainee;
+import org.example.trainingapp.entity.Trainer;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+
+class TrainerRepositoryImpl implements NaturalIdRepository<Trainer>, TraineeLinkRepository {    //  custom part
+
+    private static final String TRAINEE_TRAINERS = Trainee.class.getName() + ".trainers";
+    private static final String TRAINER_TRAINEES = Trainer.class.getName() + ".trainees";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Trainer> findByNaturalId(String username) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Trainer.class).loadOptional(username);
+    }
+
+
+    @Override
+    public void evictTraineeLinks(Long traineeId, Collection<Long> trainerIds) {
+        evictLinks(List.copyOf(trainerIds), List.of(traineeId));
+    }
+
+
+    @Override
+    public void evictTrainerLinks(Long trainerId, Collection<Long> traineeIds) {
+        evictLinks(List.of(trainerId), List.copyOf(traineeIds));
+    }
+
+
+    private void evictLinks(List<Long> trainerIds, List<Long> traineeIds) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache().unwrap(Cache.class);
+        Runnable evict = () -> {
+            trainerIds.forEach(trainerId -> cache.evictCollectionData(TRAINER_TRAINEES, trainerId));
+            traineeIds.forEach(traineeId -> cache.evictCollectionData(TRAINEE_TRAINERS, traineeId));
+        };
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {           //  a read inside the transaction may re-cache
+                    evict.run();
+                }
+            });
+        }
+    }
+}
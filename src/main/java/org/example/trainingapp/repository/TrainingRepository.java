@@ -1,7 +1,14 @@
 package org.example.trainingapp.repository;
 
+import org.example.trainingapp.dto.TrainerMonthHours;
+import org.example.trainingapp.dto.TrainingHoursRow;
+import org.example.trainingapp.dto.TrainingListRow;
 import org.example.trainingapp.entity.Training;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -11,9 +18,84 @@ import java.util.Optional;
 
 @Repository
 public interface TrainingRepository extends JpaRepository<Training, Long> {
-    List<Training> findByTrainer_UsernameAndTrainingDate(String trainerUsername, LocalDate trainingDate);
+    //  names only, to reseed the trainer-day name counter; (trainer_id, training_date) index
+    @Query("SELECT t.trainingName FROM Training t JOIN t.trainer tr WHERE tr.username = :trainerUsername " +
+            "AND t.trainingDate = :trainingDate")
+    List<String> findNamesByTrainerAndDate(@Param("trainerUsername") String trainerUsername,
+                                           @Param("trainingDate") LocalDate trainingDate);
     boolean existsByTrainingName(String trainingName);
     Optional<Training> findByTrainingName(String trainingName);
     void deleteByTrainingName(String trainingName);
-}
 
+    //  keyset page for trainer-hours sync: only trainer columns needed for the event, ordered by id
+    @Query("SELECT new org.example.trainingapp.dto.TrainingHoursRow(t.id, tr.username, tr.firstName, tr.lastName, " +
+            "tr.active, t.trainingDate, t.trainingDuration) FROM Training t JOIN t.trainer tr " +
+            "WHERE t.id > :afterId ORDER BY t.id")
+    List<TrainingHoursRow> findHoursPageAfterId(@Param("afterId") long afterId, Limit limit);
+
+    //  trainer-month totals summed by the DB for aggregated resync
+    @Query("SELECT new org.example.trainingapp.dto.TrainerMonthHours(tr.username, tr.firstName, tr.lastName, " +
+            "tr.active, YEAR(t.trainingDate), MONTH(t.trainingDate), SUM(t.trainingDuration)) " +
+            "FROM Training t JOIN t.trainer tr " +
+            "GROUP BY tr.username, tr.firstName, tr.lastName, tr.active, YEAR(t.trainingDate), MONTH(t.trainingDate)")
+    List<TrainerMonthHours> sumDurationsByTrainerAndMonth();
+
+    //  what deleting a trainee takes off each of its trainers' months, summed by the DB
+    @Query("SELECT new org.example.trainingapp.dto.TrainerMonthHours(tr.username, tr.firstName, tr.lastName, " +
+            "tr.active, YEAR(t.trainingDate), MONTH(t.trainingDate), SUM(t.trainingDuration)) " +
+            "FROM Training t JOIN t.trainer tr WHERE t.trainee.id = :traineeId " +
+            "GROUP BY tr.username, tr.firstName, tr.lastName, tr.active, YEAR(t.trainingDate), MONTH(t.trainingDate)")
+    List<TrainerMonthHours> sumDurationsByTrainerAndMonthForTrainee(@Param("traineeId") Long traineeId);
+
+    //  one statement for all trainings of a trainee; trainings are not in the second-level cache
+    @Modifying
+    @Query("DELETE FROM Training t WHERE t.trainee.id = :traineeId")
+    int deleteByTraineeId(@Param("traineeId") Long traineeId);
+
+    //  trainee history page: filters and keyset (training_date, id) applied by the DB, null filter = not applied
+    @Query("SELECT new org.example.trainingapp.dto.TrainingListRow(t.id, t.trainingName, t.trainingDate, tt.name, " +
+            "t.trainingDuration, te.username, tr.username) " +
+            "FROM Training t JOIN t.trainee te JOIN t.trainer tr JOIN t.trainingType tt " +
+            "WHERE te.username = :username " +
+            "AND (:fromDate IS NULL OR t.trainingDate >= :fromDate) AND (:toDate IS NULL OR t.trainingDate <= :toDate) " +
+            "AND (:trainerName IS NULL OR LOWER(tr.username) = LOWER(:trainerName)) " +
+            "AND (:type IS NULL OR LOWER(tt.name) = LOWER(:type)) " +
+            "AND (:afterDate IS NULL OR t.trainingDate > :afterDate OR (t.trainingDate = :afterDate AND t.id > :afterId)) " +
+            "ORDER BY t.trainingDate, t.id")
+    List<TrainingListRow> findTraineeTrainings(@Param("username") String username,
+                                               @Param("fromDate") LocalDate fromDate,
+                                               @Param("toDate") LocalDate toDate,
+                                               @Param("trainerName") String trainerName,
+                                               @Param("type") String type,
+                                               @Param("afterDate") LocalDate afterDate,
+                                               @Param("afterId") Long afterId,
+                                               Limit limit);
+
+    @Query("SELECT COUNT(t) FROM Training t JOIN t.trainee te JOIN t.trainer tr JOIN t.trainingType tt " +
+            "WHERE te.username = :username " +
+            "AND (:fromDate IS NULL OR t.trainingDate >= :fromDate) AND (:toDate IS NULL OR t.trainingDate <= :toDate) " +
+            "AND (:trainerName IS NULL OR LOWER(tr.username) = LOWER(:trainerName)) " +
+            "AND (:type IS NULL OR LOWER(tt.name) = LOWER(:type))")
+    long countTraineeTrainings(@Param("username") String username,
+                               @Param("fromDate") LocalDate fromDate,
+                               @Param("toDate") LocalDate toDate,
+                               @Param("trainerName") String trainerName,
+                               @Param("type") String type);
+
+    //  trainer history page, same shape as the trainee one; (trainer_id, training_date) index keeps it flat
+    @Query("SELECT new org.example.trainingapp.dto.TrainingListRow(t.id, t.trainingName, t.trainingDate, tt.name, " +
+            "t.trainingDuration, te.username, tr.username) " +
+            "FROM Training t JOIN t.trainer tr JOIN t.trainee te JOIN t.trainingType tt " +
+            "WHERE tr.username = :username " +
+            "AND (:fromDate IS NULL OR t.trainingDate >= :fromDate) AND (:toDate IS NULL OR t.trainingDate <= :toDate) " +
+            "AND (:traineeName IS NULL OR LOWER(te.username) = LOWER(:traineeName)) " +
+            "AND (:afterDate IS NULL OR t.trainingDate > :afterDate OR (t.trainingDate = :afterDate AND t.id > :afterId)) " +
+            "ORDER BY t.trainingDate, t.id")
+    List<TrainingListRow> findTrainerTrainings(@Param("username") String username,
+                                               @Param("fromDate") LocalDate fromDate,
+                                               @Param("toDate") LocalDate toDate,
+                                               @Param("traineeName") String traineeName,
+                                               @Param("afterDate") LocalDate afterDate,
+                                               @Param("afterId") Long afterId,
+                                               Limit limit);
+}
@@ -1,11 +1,13 @@
 package org.example.trainingapp.repository;
 
+import org.example.trainingapp.dto.UserCredentialsRow;
 import org.example.trainingapp.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -16,6 +18,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByUsername(String username);
 
+    boolean existsByUsername(String username);
+
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    Set<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("SELECT new org.example.trainingapp.dto.UserCredentialsRow(u.username, u.password, " +
+            "CASE TYPE(u) WHEN Trainer THEN 'TRAINER' ELSE 'TRAINEE' END) FROM User u WHERE u.username = :username")
+    Optional<UserCredentialsRow> findCredentialsByUsername(@Param("username") String username);
+
     @Query("SELECT u.username FROM User u WHERE u.firstName = :firstName AND u.lastName = :lastName")
     Set<String> findUsernamesByFirstNameAndLastName(@Param("firstName") String firstName,
                                                     @Param("lastName") String lastName);
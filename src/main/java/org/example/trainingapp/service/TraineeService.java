@@ -3,8 +3,9 @@ package org.example.trainingapp.service;
 import org.example.trainingapp.dto.ActiveStatusDto;
 import org.example.trainingapp.dto.TraineeRequestDto;
 import org.example.trainingapp.dto.TraineeResponseDto;
+import org.example.trainingapp.dto.TrainerPage;
 import org.example.trainingapp.dto.TrainerShortDto;
-import org.example.trainingapp.dto.TrainingResponseDto;
+import org.example.trainingapp.dto.TrainingPage;
 import org.example.trainingapp.dto.UpdateTrainerListDto;
 
 import java.time.LocalDate;
@@ -16,9 +17,10 @@ public interface TraineeService {
     void deleteTrainee(String username);
     TraineeResponseDto getTraineeByUsername(String username);
     Boolean setTraineeActiveStatus(ActiveStatusDto activeStatusDto);
-    List<TrainingResponseDto> getTraineeTrainings(String username, LocalDate fromDate, LocalDate toDate,
-                                                  String trainerName, String trainingTypeName);
+    TrainingPage getTraineeTrainings(String username, LocalDate fromDate, LocalDate toDate, String trainerName,
+                                     String trainingTypeName, String after, Integer size, boolean withCount);
     List<TrainerShortDto> updateTraineeTrainers(UpdateTrainerListDto updateTrainerListDto);
-    List<TrainerShortDto> getAvailableTrainersForTrainee(String username);
+    TrainerPage getAvailableTrainersForTrainee(String username, String specialization, Boolean active, String after,
+                                               Integer size);
     void setNewPassword(String username, String newPassword);
 }
@@ -0,0 +1,14 @@
+package org.example.trainingapp.service;
+
+import org.example.trainingapp.entity.TrainingType;
+
+import java.util.List;
+import java.util.Optional;
+
+
+public interface TrainingTypeRegistry {
+    Optional<TrainingType> find(String name);
+    List<TrainingType> getAll();
+    int size();
+    void refresh();
+}
@@ -0,0 +1,332 @@
+package org.example.trainingapp.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.example.trainingapp.converter.Converter;
+import org.example.trainingapp.dto.BulkRegistrationResult;
+import org.example.trainingapp.dto.TraineeRegisterDto;
+import org.example.trainingapp.dto.TrainerRegisterDto;
+import org.example.trainingapp.entity.Trainee;
+import org.example.trainingapp.entity.Trainer;
+import org.example.trainingapp.entity.TrainingType;
+import org.example.trainingapp.entity.User;
+import org.example.trainingapp.exception.PayloadTooLargeException;
+import org.example.trainingapp.metrics.RegistrationMetrics;
+import org.example.trainingapp.repository.TraineeRepository;
+import org.example.trainingapp.repository.TrainerRepository;
+import org.example.trainingapp.repository.UserRepository;
+import org.example.trainingapp.service.TrainingTypeRegistry;
+import org.example.trainingapp.util.CredentialsUtil;
+import org.example.trainingapp.util.ValidationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+
+// Bulk registration: rows are read one by one from a JSON array or NDJSON body and registered in chunks.
+// Per chunk, usernames are reserved once per distinct name, passwords are hashed in parallel on a bounded pool
+// and the users are inserted in one transaction as JDBC batches. Results of a chunk (credentials or error per row)
+// are handed to the caller as soon as it is committed, so memory stays bounded whatever the upload size.
+// Uploads are capped in rows and bytes: over the cap before the first chunk is sent, the upload is rejected (413),
+// later the rows read so far are registered and the last result line says where the upload was cut.
+@Service
+@RequiredArgsConstructor
+public class BulkRegistrationService {
+
+    private final ObjectMapper objectMapper;
+    private final Converter converter;
+    private final UsernameAllocator usernameAllocator;
+    private final PasswordEncoder passwordEncoder;
+    private final TraineeRepository traineeRepository;
+    private final TrainerRepository trainerRepository;
+    private final UserRepository userRepository;
+    private final TrainingTypeRegistry trainingTypeRegistry;
+    private final RegistrationMetrics registrationMetrics;
+    private final PlatformTransactionManager transactionManager;
+    private static final Logger log = LoggerFactory.getLogger(BulkRegistrationService.class);
+    private static final int MAX_USERNAME_ATTEMPTS = 5;
+
+    @Value("${registration.bulk.chunk-size:500}")
+    private int chunkSize = 500;                                            //  rows per insert transaction
+
+    @Value("${registration.bulk.max-rows:10000}")
+    private int maxRows = 10000;                                            //  one BCrypt hash per row
+
+    @Value("${registration.bulk.max-body-size:10MB}")
+    private DataSize maxBodySize = DataSize.ofMegabytes(10);
+
+    @Value("${registration.bulk.hash-threads:4}")
+    private int hashThreads = 4;                                            //  BCrypt is CPU-bound
+
+    private ExecutorService hashPool;
+
+
+    @PostConstruct
+    public void startHashPool() {
+        hashPool = Executors.newFixedThreadPool(hashThreads,
+                Thread.ofPlatform().daemon().name("bulk-hash-", 0).factory());
+    }
+
+
+    @PreDestroy
+    public void stopHashPool() {
+        hashPool.shutdownNow();
+    }
+
+
+    // Declared Content-Length, -1 for a chunked upload (then counted while reading)
+    public void checkUploadSize(long contentLength) {
+        if (contentLength > maxBodySize.toBytes()) {
+            throw new PayloadTooLargeException("Upload exceeds " + maxBodySize.toBytes() + " bytes.");
+        }
+    }
+
+
+    public void registerTrainees(InputStream body, Consumer<List<BulkRegistrationResult>> sink) throws IOException {
+        register(body, TraineeRegisterDto.class, sink, (chunk, firstRow) -> registerChunk(chunk, firstRow,
+                dto -> {
+                    ValidationUtils.validateTrainee(dto);
+                    return converter.dtoToEntity(dto);
+                },
+                traineeRepository::saveAll, registrationMetrics::incrementTrainee));
+    }
+
+
+    public void registerTrainers(InputStream body, Consumer<List<BulkRegistrationResult>> sink) throws IOException {
+        register(body, TrainerRegisterDto.class, sink, (chunk, firstRow) -> registerChunk(chunk, firstRow,
+                dto -> {
+                    ValidationUtils.validateTrainer(dto);
+                    String name = dto.getSpecializationName();
+                    if (!ValidationUtils.isValidTrainingTypeEnum(name)) {
+                        throw new IllegalArgumentException("TrainingType '" + name + "' is not supported.");
+                    }
+                    TrainingType specialization = trainingTypeRegistry.find(name)
+                            .orElseThrow(() -> new NoSuchElementException("TrainingType not found: " + name));
+                    return converter.dtoToEntity(dto, specialization);
+                },
+                trainerRepository::saveAll, registrationMetrics::incrementTrainer));
+    }
+
+
+    private <T> void register(InputStream body, Class<T> rowType, Consumer<List<BulkRegistrationResult>> sink,
+                              ChunkRegistration<T> registration) throws IOException {
+        int firstRow = 1;
+        List<T> chunk = new ArrayList<>(chunkSize);
+        String cutReason = null;
+        try (MappingIterator<T> rows = objectMapper.readerFor(rowType)
+                .readValues(new LimitedInputStream(body, maxBodySize.toBytes()))) {
+            while (rows.hasNextValue()) {                                   //  root array or one value per line
+                if (firstRow + chunk.size() > maxRows) {
+                    cutReason = "Upload exceeds " + maxRows + " rows.";
+                    break;
+                }
+                chunk.add(rows.nextValue());
+                if (chunk.size() == chunkSize) {
+                    sink.accept(registration.register(chunk, firstRow));
+                    firstRow += chunk.size();
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (JsonProcessingException e) {                               //  rows after a malformed one are lost
+            if (!chunk.isEmpty()) {
+                sink.accept(registration.register(chunk, firstRow));
+            }
+            sink.accept(List.of(BulkRegistrationResult.failed(firstRow + chunk.size(),
+                    "Malformed row, upload stopped: " + e.getOriginalMessage())));
+            return;
+        } catch (PayloadTooLargeException e) {
+            cutReason = e.getMessage();
+        }
+        if (cutReason != null && firstRow == 1) {                          //  nothing sent yet, nothing registered
+            throw new PayloadTooLargeException(cutReason);
+        }
+        int cutRow = firstRow + chunk.size();
+        if (!chunk.isEmpty()) {
+            sink.accept(registration.register(chunk, firstRow));
+        }
+        if (cutReason != null) {
+            sink.accept(List.of(BulkRegistrationResult.failed(cutRow, cutReason + " Rows from here were not read.")));
+        }
+    }
+
+
+    private <T, U extends User> List<BulkRegistrationResult> registerChunk(List<T> chunk, int firstRow,
+                                                                         Function<T, U> toEntity,
+                                                                         Consumer<List<U>> saveAll,
+                                                                         Runnable countRegistration) {
+        BulkRegistrationResult[] results = new BulkRegistrationResult[chunk.size()];
+        List<U> users = new ArrayList<>(chunk.size());
+        List<Integer> positions = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                users.add(toEntity.apply(chunk.get(i)));
+                positions.add(i);
+            } catch (IllegalArgumentException | NoSuchElementException e) {
+                results[i] = BulkRegistrationResult.failed(firstRow + i, e.getMessage());
+            }
+        }
+        if (!users.isEmpty()) {
+            List<String> passwords = assignCredentials(users);
+            try {
+                saveWithFreeUsernames(users, saveAll);
+                for (int k = 0; k < users.size(); k++) {
+                    int i = positions.get(k);
+                    results[i] = BulkRegistrationResult.created(firstRow + i, users.get(k).getUsername(),
+                            passwords.get(k));
+                    countRegistration.run();                                //  add to Prometheus metric
+                }
+                log.info("Bulk registration: {} users created from rows {}-{}", users.size(), firstRow,
+                        firstRow + chunk.size() - 1);
+            } catch (DataAccessException | TransactionException e) {
+                log.warn("Bulk registration: rows {}-{} not saved: {}", firstRow, firstRow + chunk.size() - 1,
+                        e.getMessage());
+                for (int i : positions) {
+                    results[i] = BulkRegistrationResult.failed(firstRow + i, "Not saved, please retry the row.");
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+
+    // The allocator only checks that usernames are free, so a concurrent registration can still insert one first:
+    // ux_users_username rolls the chunk back, and it is saved again with the namesakes of the taken names reallocated
+    private <U extends User> void saveWithFreeUsernames(List<U> users, Consumer<List<U>> saveAll) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> saveAll.accept(users));
+                return;
+            } catch (DataIntegrityViolationException e) {
+                Set<String> taken = userRepository.findExistingUsernames(users.stream().map(User::getUsername)
+                        .toList());
+                if (taken.isEmpty() || attempt == MAX_USERNAME_ATTEMPTS) {
+                    throw e;                                        //  not a username clash, or clashing again
+                }
+                log.warn("Usernames {} were taken by a concurrent registration, allocating others", taken);
+                Set<String> clashingNames = users.stream()
+                        .filter(user -> taken.contains(user.getUsername()))
+                        .map(BulkRegistrationService::baseName)
+                        .collect(Collectors.toSet());
+                users.forEach(user -> user.setId(null));            //  ids from the rolled back inserts are not reused
+                assignUsernames(users.stream().filter(user -> clashingNames.contains(baseName(user))).toList());
+            }
+        }
+    }
+
+
+    // Usernames per distinct first/last name in one reservation; plain passwords are returned for the response
+    private <U extends User> List<String> assignCredentials(List<U> users) {
+        assignUsernames(users);
+        List<String> passwords = new ArrayList<>(users.size());
+        List<Callable<String>> hashing = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            String password = CredentialsUtil.generatePassword(10);
+            passwords.add(password);
+            hashing.add(() -> passwordEncoder.encode(password));
+        }
+        try {
+            List<Future<String>> hashes = hashPool.invokeAll(hashing);
+            for (int i = 0; i < users.size(); i++) {
+                users.get(i).setPassword(hashes.get(i).get());
+                users.get(i).setActive(true);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bulk registration interrupted while hashing passwords", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        return passwords;
+    }
+
+
+    // A whole namesake group is allocated at once, so its usernames never clash with each other
+    private <U extends User> void assignUsernames(List<U> users) {
+        Map<String, List<U>> namesakes = new LinkedHashMap<>();
+        for (U user : users) {
+            namesakes.computeIfAbsent(baseName(user), k -> new ArrayList<>()).add(user);
+        }
+        namesakes.values().forEach(group -> {
+            List<String> usernames = usernameAllocator.allocate(group.getFirst().getFirstName(),
+                    group.getFirst().getLastName(), group.size());
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).setUsername(usernames.get(i));
+            }
+        });
+    }
+
+
+    private static String baseName(User user) {
+        return user.getFirstName() + "." + user.getLastName();
+    }
+
+
+    // Counts the bytes of a chunked upload, which has no Content-Length to check up front
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long read;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            count(b < 0 ? 0 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            count(Math.max(n, 0));
+            return n;
+        }
+
+        private void count(int n) {
+            read += n;
+            if (read > limit) {
+                throw new PayloadTooLargeException("Upload exceeds " + limit + " bytes.");
+            }
+        }
+    }
+
+
+    @FunctionalInterface
+    private interface ChunkRegistration<T> {
+        List<BulkRegistrationResult> register(List<T> chunk, int firstRow);
+    }
+}
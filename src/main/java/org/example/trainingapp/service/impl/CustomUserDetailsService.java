@@ -1,53 +1,82 @@
 package org.example.trainingapp.service.impl;
 
 import lombok.RequiredArgsConstructor;
-import org.example.trainingapp.aspect.Role;
-import org.example.trainingapp.entity.Trainee;
-import org.example.trainingapp.entity.Trainer;
-import org.example.trainingapp.repository.TraineeRepository;
-import org.example.trainingapp.repository.TrainerRepository;
+import org.example.trainingapp.dto.UserCredentialsRow;
+import org.example.trainingapp.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.Optional;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @Service
 @RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
-    private final TraineeRepository traineeRepository;
-    private final TrainerRepository trainerRepository;
+    private final UserRepository userRepository;
+    private final Map<String, CachedUser> cache = new ConcurrentHashMap<>();     //  username -> loaded details
     private static final Logger log = LoggerFactory.getLogger(CustomUserDetailsService.class);
 
+    @Value("${security.user-cache.ttl:PT5M}")
+    private Duration ttl = Duration.ofMinutes(5);
+
+    @Value("${security.user-cache.max-size:10000}")
+    private int maxSize = 10000;
+
 
     @Override
     public UserDetails loadUserByUsername(String username) {
-        Optional<Trainer> trainerOpt = trainerRepository.findByUsername(username);
-        if (trainerOpt.isPresent()) {
-            Trainer trainer = trainerOpt.get();
-            return User.builder()
-                    .username(trainer.getUsername())
-                    .password(trainer.getPassword())
-                    .roles(Role.TRAINER.name())
-                    .build();
+        CachedUser cached = cache.get(username);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return cached.userDetails();
+        }
+        UserCredentialsRow row = userRepository.findCredentialsByUsername(username)      //  one query, no entity
+                .orElseThrow(() -> {
+                    log.warn("User '{}' not found: ", username);
+                    return new UsernameNotFoundException("User not found: " + username);
+                });
+        UserDetails userDetails = User.builder()
+                .username(row.username())
+                .password(row.password())
+                .roles(row.role())
+                .build();
+        if (cache.size() >= maxSize) {
+            Instant now = Instant.now();
+            cache.values().removeIf(entry -> !entry.expiresAt().isAfter(now));
         }
-        Optional<Trainee> traineeOpt = traineeRepository.findByUsername(username);
-        if (traineeOpt.isPresent()) {
-            Trainee trainee = traineeOpt.get();
-            return User.builder()
-                    .username(trainee.getUsername())
-                    .password(trainee.getPassword())
-                    .roles(Role.TRAINEE.name())
-                    .build();
+        if (cache.size() < maxSize) {
+            cache.put(username, new CachedUser(userDetails, Instant.now().plus(ttl)));
         }
-        log.warn("User '{}' not found: ", username);
-        throw new UsernameNotFoundException("User not found: " + username);
+        return userDetails;
     }
-}
 
+
+    // Called on password, active status changes and deletes. Evicted again after commit, so a lookup
+    // that ran in between cannot keep the old state cached
+    public void evict(String username) {
+        cache.remove(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.remove(username);
+                }
+            });
+        }
+    }
+
+
+    private record CachedUser(UserDetails userDetails, Instant expiresAt) {
+    }
+}
@@ -9,6 +9,7 @@ import org.example.trainingapp.entity.User;
 import org.example.trainingapp.filter.AuthTokenFilter;
 import org.example.trainingapp.jwt.JwtTokenUtil;
 import org.example.trainingapp.jwt.TokenBlacklistUtil;
+import org.example.trainingapp.jwt.VerifiedTokenCache;
 import org.example.trainingapp.repository.UserRepository;
 import org.example.trainingapp.service.AuthenticationService;
 import org.example.trainingapp.util.ValidationUtils;
@@ -22,9 +23,6 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
-import java.io.IOException;
-import java.security.NoSuchAlgorithmException;
-import java.security.spec.InvalidKeySpecException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -40,6 +38,7 @@ public class JpaAuthenticationService implements AuthenticationService {
     private final UserRepository userRepository;
     private final AuthTokenFilter authTokenFilter;
     private final TokenBlacklistUtil tokenBlacklistUtil;
+    private final VerifiedTokenCache verifiedTokenCache;
     private static final Logger log = LoggerFactory.getLogger(JpaAuthenticationService.class.getName());
     private static final int MAX_FAILED_ATTEMPTS = 3;
     private static final Duration BLOCK_DURATION = Duration.ofMinutes(5);
@@ -69,9 +68,8 @@ public class JpaAuthenticationService implements AuthenticationService {
             log.info("Failed attempts reset");
             user.setFailedAttempts(0);
         }
-                                                                //  4. checking credentials
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-        if (!passwordEncoder.matches(rawPassword, userDetails.getPassword())) {
+                                                                //  4. checking credentials against the loaded row:
+        if (!passwordEncoder.matches(rawPassword, user.getPassword())) {    //  cached details are node-local
             user.setFailedAttempts(user.getFailedAttempts() + 1);
             user.setLastFailedLogin(LocalDateTime.now());
             if (user.getFailedAttempts() >= MAX_FAILED_ATTEMPTS) {              //  blocking user after 3 attempts
@@ -82,6 +80,7 @@ public class JpaAuthenticationService implements AuthenticationService {
             throw new SecurityException("Invalid credentials");
         }
 
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
         String roleName = userDetails.getAuthorities().stream()
                 .findFirst()
                 .orElseThrow(() -> {
@@ -89,19 +88,14 @@ public class JpaAuthenticationService implements AuthenticationService {
                     return new SecurityException("No role assigned");
                 })
                 .getAuthority();                                // 5. assigning role
-        try {                                                   // 6. generating token
-           String token = jwtTokenUtil.generateToken(userDetails);
-            Role role = Role.valueOf(roleName.replace("ROLE_", ""));    // convert role to enum
-            user.setFailedAttempts(0);                                                  // reset failed attempts
-            user.setLastFailedLogin(null);
-            user.setLockTime(null);
-            userRepository.save(user);
-            log.info("{} authentication successful: {}", role.name(), username);
-            return new JwtResponse(token, role.name());
-        } catch (IOException | NoSuchAlgorithmException | InvalidKeySpecException e) {
-            log.warn("Generating token error: {}", e.getMessage());
-            throw new SecurityException("Cannot validate token: " + e.getMessage());
-        }
+        String token = jwtTokenUtil.generateToken(userDetails);        // 6. generating token
+        Role role = Role.valueOf(roleName.replace("ROLE_", ""));        // convert role to enum
+        user.setFailedAttempts(0);                                      // reset failed attempts
+        user.setLastFailedLogin(null);
+        user.setLockTime(null);
+        userRepository.save(user);
+        log.info("{} authentication successful: {}", role.name(), username);
+        return new JwtResponse(token, role.name());
     }
 
 
@@ -116,6 +110,7 @@ public class JpaAuthenticationService implements AuthenticationService {
         String token = authTokenFilter.getTokenFromJwt(request);
         Instant expirationTime = jwtTokenUtil.getTokenExpiration(token);
         tokenBlacklistUtil.blacklistToken(token, expirationTime);
+        verifiedTokenCache.invalidate(token);                   //  otherwise accepted from cache until exp
     }
 
 
@@ -2,37 +2,44 @@ package org.example.trainingapp.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import org.example.trainingapp.converter.Converter;
-import org.example.trainingapp.dto.ActionType;
 import org.example.trainingapp.dto.ActiveStatusDto;
 import org.example.trainingapp.dto.TraineeRequestDto;
 import org.example.trainingapp.dto.TraineeResponseDto;
+import org.example.trainingapp.dto.TrainerPage;
 import org.example.trainingapp.dto.TrainerShortDto;
-import org.example.trainingapp.dto.TrainingResponseDto;
+import org.example.trainingapp.dto.TrainingCursor;
+import org.example.trainingapp.dto.TrainingListRow;
+import org.example.trainingapp.dto.TrainingPage;
 import org.example.trainingapp.dto.TrainingUpdateRequest;
 import org.example.trainingapp.dto.UpdateTrainerListDto;
 import org.example.trainingapp.entity.Trainee;
 import org.example.trainingapp.entity.Trainer;
-import org.example.trainingapp.entity.Training;
-import org.example.trainingapp.entity.User;
 import org.example.trainingapp.exception.ForbiddenAccessException;
+import org.example.trainingapp.jwt.VerifiedTokenCache;
 import org.example.trainingapp.repository.TraineeRepository;
 import org.example.trainingapp.repository.TrainerRepository;
+import org.example.trainingapp.repository.TrainingRepository;
 import org.example.trainingapp.service.TraineeService;
 import org.example.trainingapp.util.AuthContextUtil;
 import org.example.trainingapp.util.ValidationUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.Set;
-
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 @Service
@@ -44,8 +51,11 @@ public class TraineeServiceImpl implements TraineeService {
     private final Converter converter;
     private final AuthContextUtil authContextUtil;
     private final TraineeRepository traineeRepository;
+    private final TrainingRepository trainingRepository;
     private final PasswordEncoder passwordEncoder;
-    private final TrainerHoursPublisher trainerHoursPublisher;
+    private final CustomUserDetailsService userDetailsService;
+    private final TrainerHoursOutbox trainerHoursOutbox;
+    private final VerifiedTokenCache verifiedTokenCache;
 
 
     @Override
@@ -68,7 +78,7 @@ public class TraineeServiceImpl implements TraineeService {
         existing.setActive(traineeRequestDto.getActive());
         traineeRepository.save(existing);
         log.info("Trainee updated: {}", existing.getId());
-        List<TrainerShortDto> trainers = getTrainersForTrainee(username);
+        List<TrainerShortDto> trainers = getTrainersForTrainee(existing);
         return converter.entityToResponseDto(existing, trainers);           //  with username
     }
 
@@ -79,22 +89,21 @@ public class TraineeServiceImpl implements TraineeService {
         if (!username.equals(authContextUtil.getUsername())) {
             throw new ForbiddenAccessException("User is not the owner of entity");
         } else {
-            Trainee trainee = traineeRepository.findByUsernameWithTrainings(username)
+            Trainee trainee = traineeRepository.findByNaturalId(username)
                     .orElseThrow(() -> new NoSuchElementException("Trainee not found: " + username));
-            for (Training training : trainee.getTrainings()) {
-                try {
-                    TrainingUpdateRequest update = converter.trainingAndActionToUpdateRequest(training, ActionType.DELETE);
-                    trainerHoursPublisher.publishUpdate(update);
-                } catch (Exception e) {
-                    log.warn("Failed to notify trainer hours for training {}: {}", training.getTrainingName(), e.getMessage());
-                }
-            }
-            for (Trainer trainer : new ArrayList<>(trainee.getTrainers())) {
-                trainer.getTrainees().remove(trainee);
-            }
-            trainee.getTrainers().clear();
+            Long traineeId = trainee.getId();
+            List<TrainingUpdateRequest> updates = trainingRepository.sumDurationsByTrainerAndMonthForTrainee(traineeId)
+                    .stream().map(converter::monthHoursToDeleteRequest).toList();
+            trainerHoursOutbox.enqueueUpdates(updates);         // events are committed together with the deletion
+            List<Long> trainerIds = trainee.getTrainers().stream().map(Trainer::getId).toList();
+            int deletedTrainings = trainingRepository.deleteByTraineeId(traineeId);     //  set-based, no row cascade
+            trainerRepository.unlinkTraineeFromAll(traineeId);
+            trainerRepository.evictTraineeLinks(traineeId, trainerIds);
             traineeRepository.delete(trainee);
-            log.info("Trainee {} deleted with all trainings, trainers hours updated", username);
+            verifiedTokenCache.invalidateUser(username);        //  cached tokens must not outlive the user
+            userDetailsService.evict(username);
+            log.info("Trainee {} deleted with {} trainings, {} trainer-month hours updates queued", username,
+                    deletedTrainings, updates.size());
         }
     }
 
@@ -107,6 +116,8 @@ public class TraineeServiceImpl implements TraineeService {
         Boolean active = activeStatusDto.getActive();
         trainee.setActive(active);
         traineeRepository.save(trainee);
+        verifiedTokenCache.invalidateUser(trainee.getUsername());     //  cached tokens carry the old status
+        userDetailsService.evict(trainee.getUsername());
         log.info("Trainee active status changed: {} to {}", trainee.getId(), active);
         return active;
     }
@@ -117,48 +128,48 @@ public class TraineeServiceImpl implements TraineeService {
     public List<TrainerShortDto> updateTraineeTrainers(UpdateTrainerListDto updateTrainerListDto) {
         ValidationUtils.validateUpdateTrainerList(updateTrainerListDto);
         String username = updateTrainerListDto.getUsername();
-        Trainee trainee = traineeRepository.findByUsernameWithTrainers(username)
+        Trainee trainee = traineeRepository.findByNaturalId(username)
                 .orElseThrow(() -> {
                     log.warn("Trainee '{}' not found during updating trainers", username);
                     return new NoSuchElementException("Not found trainee with username: " + username);
                 });
 
-        if (trainee.getTrainers() != null) {            // delete trainee from old trainers
-            for (Trainer oldTr : new ArrayList<>(trainee.getTrainers())) {
-                Trainer fullOld = trainerRepository.findByUsernameWithTrainees(oldTr.getUsername())
-                        .orElseThrow(() -> new NoSuchElementException(
-                                "Trainer not found: " + oldTr.getUsername()));
-                fullOld.getTrainees().remove(trainee);
-                trainerRepository.save(fullOld);
-            }
-            trainee.getTrainers().clear();
-        }
+        Set<String> requested = new LinkedHashSet<>(updateTrainerListDto.getTrainerUsernames());
+        Map<String, Trainer> trainersByUsername = trainerRepository.findByUsernameIn(requested).stream()
+                .collect(Collectors.toMap(Trainer::getUsername, Function.identity()));  //  one IN query for all
+        List<Trainer> updatedTrainers = requested.stream()
+                .map(u -> Optional.ofNullable(trainersByUsername.get(u)).orElseThrow(() -> new NoSuchElementException(
+                        "Not found trainer with username: " + u)))
+                .toList();
 
-        List<Trainer> updatedTrainers = updateTrainerListDto.getTrainerUsernames().stream()
-                .map(u -> trainerRepository.findByUsernameWithTrainees(u).orElseThrow(() -> new NoSuchElementException(
-                                "Not found trainer with username: " + u)))
-                .peek(trainer -> {
-                    if (!trainer.getTrainees().contains(trainee)) {         //  add trainee to new trainers
-                        trainer.getTrainees().add(trainee);
-                    }
-                    trainerRepository.save(trainer);
-                })
-                .collect(Collectors.toCollection(ArrayList::new));          //  must be modifiable list here because .peek() is a lazy operation
-        trainee.setTrainers(updatedTrainers);
-        traineeRepository.save(trainee);
-        log.info("Trainee trainers updated for: {}", username);
+        Set<Long> currentIds = trainee.getTrainers().stream().map(Trainer::getId).collect(Collectors.toSet());
+        Set<Long> updatedIds = updatedTrainers.stream().map(Trainer::getId).collect(Collectors.toSet());
+        List<Long> removedIds = currentIds.stream().filter(id -> !updatedIds.contains(id)).toList();
+        List<Long> addedIds = updatedIds.stream().filter(id -> !currentIds.contains(id)).toList();
+        if (!removedIds.isEmpty()) {                    //  only the delta touches trainers_trainees
+            trainerRepository.unlinkTrainee(trainee.getId(), removedIds);
+        }
+        if (!addedIds.isEmpty()) {
+            trainerRepository.linkTrainee(trainee.getId(), addedIds);
+        }
+        List<Long> changedIds = Stream.concat(removedIds.stream(), addedIds.stream()).toList();
+        if (!changedIds.isEmpty()) {
+            trainerRepository.evictTraineeLinks(trainee.getId(), changedIds);
+        }
+        log.info("Trainee trainers updated for: {} (+{} / -{})", username, addedIds.size(), removedIds.size());
         return updatedTrainers.stream().map(converter::entityToShortDto).toList();
     }
 
 
     @Override
+    @Transactional(readOnly = true)                                 //  trainers collection is read lazily
     public TraineeResponseDto getTraineeByUsername(String username) {
         if (!username.equals(authContextUtil.getUsername())) {
             throw new ForbiddenAccessException("User is not the owner of entity");
         } else {
             ValidationUtils.validateUsername(username);
             Trainee trainee = getTrainee(username);
-            List<TrainerShortDto> trainers = getTrainersForTrainee(username);
+            List<TrainerShortDto> trainers = getTrainersForTrainee(trainee);
             log.info("Retrieved Trainee by username: {}", username);
             return converter.entityToDtoWithoutUsername(trainee, trainers);
         }
@@ -166,53 +177,55 @@ public class TraineeServiceImpl implements TraineeService {
 
 
     @Override
-    public List<TrainerShortDto> getAvailableTrainersForTrainee(String username) {
+    public TrainerPage getAvailableTrainersForTrainee(String username, String specialization, Boolean active,
+                                                      String after, Integer size) {
         if (!username.equals(authContextUtil.getUsername())) {
             throw new ForbiddenAccessException("User is not the owner of entity");
         } else {
             ValidationUtils.validateUsername(username);
-            Trainee trainee = traineeRepository.findByUsernameWithTrainers(username)
-                    .orElseThrow(() -> {
-                        log.warn("Trainee '{}' not found during getting not assigned trainers", username);
-                        return new NoSuchElementException("Not found trainee with username: " + username);
-                    });
-            Set<Long> assignedTrainerIds = trainee.getTrainers().stream()
-                    .map(User::getId)
-                    .collect(Collectors.toSet());                           //  collecting assigned trainers' id
-            List<Trainer> trainers = trainerRepository.findAll().stream()          //  select only NOT assigned trainers
-                    .filter(trainer -> !assignedTrainerIds.contains(trainer.getId()))
-                    .toList();
-            log.info("Retrieved available trainers for Trainee: {}", username);
-            return trainers.stream().map(converter::entityToShortDto).toList();
+            Integer pageSize = ValidationUtils.validateOptionalPageSize(size, after != null);
+            if (!traineeRepository.existsByUsername(username)) {
+                log.warn("Trainee '{}' not found during getting not assigned trainers", username);
+                throw new NoSuchElementException("Not found trainee with username: " + username);
+            }
+            List<TrainerShortDto> trainers = trainerRepository.findNotAssignedToTrainee(username, specialization,
+                    active, after,
+                    pageSize == null ? Limit.unlimited() : Limit.of(pageSize + 1));    //  one extra row = next page exists
+            boolean hasNext = pageSize != null && trainers.size() > pageSize;
+            List<TrainerShortDto> page = hasNext ? trainers.subList(0, pageSize) : trainers;
+            log.info("Retrieved {} available trainers for Trainee: {} (filters: specialization={}, active={}, after={})",
+                    page.size(), username, specialization, active, after);
+            return new TrainerPage(page, hasNext ? page.getLast().getUsername() : null);
         }
     }
 
 
     @Override
-    public List<TrainingResponseDto> getTraineeTrainings(String username, LocalDate fromDate, LocalDate toDate,
-                                                         String trainerName, String trainingTypeName) {
+    public TrainingPage getTraineeTrainings(String username, LocalDate fromDate, LocalDate toDate, String trainerName,
+                                            String trainingTypeName, String after, Integer size, boolean withCount) {
         if (!username.equals(authContextUtil.getUsername())) {
             throw new ForbiddenAccessException("User is not the owner of entity");
         } else {
             ValidationUtils.validateUsername(username);
-            Trainee trainee = traineeRepository.findByUsernameWithTrainings(username)
-                    .orElseThrow(() -> {
-                        log.warn("Trainee '{}' not found during getting trainings", username);
-                        return new NoSuchElementException("Not found trainee with username: " + username);
-                    });
-            List<Training> trainings = trainee.getTrainings().stream()
-                    .filter(training -> {
-                        boolean dateMatch = (fromDate == null || !training.getTrainingDate().isBefore(fromDate)) &&
-                                (toDate == null || !training.getTrainingDate().isAfter(toDate));
-                        boolean trainerMatch = (trainerName == null ||
-                                training.getTrainer().getUsername().equalsIgnoreCase(trainerName));
-                        boolean typeMatch = (trainingTypeName == null ||
-                                training.getTrainingType().getName().equalsIgnoreCase(trainingTypeName));
-                        return dateMatch && trainerMatch && typeMatch;
-                    })      //  3 filter conditions here - on date period, on trainer name and on training type
-                    .toList();
-            log.info("Retrieved trainings for Trainee: {} (filters: fromDate={}, toDate={}, trainerName={}, trainingTypeName={})", username, fromDate, toDate, trainerName, trainingTypeName);
-            return trainings.stream().map(converter::entityToDtoWithNullTrainee).toList();      //  trainee name not included
+            TrainingCursor cursor = TrainingCursor.parse(after);
+            Integer pageSize = ValidationUtils.validateOptionalPageSize(size, cursor != null);
+            if (!traineeRepository.existsByUsername(username)) {
+                log.warn("Trainee '{}' not found during getting trainings", username);
+                throw new NoSuchElementException("Not found trainee with username: " + username);
+            }
+            List<TrainingListRow> rows = trainingRepository.findTraineeTrainings(username, fromDate, toDate,
+                    trainerName, trainingTypeName, cursor == null ? null : cursor.date(),
+                    cursor == null ? null : cursor.id(),
+                    pageSize == null ? Limit.unlimited() : Limit.of(pageSize + 1));    //  one extra row = next page exists
+            boolean hasNext = pageSize != null && rows.size() > pageSize;
+            List<TrainingListRow> page = hasNext ? rows.subList(0, pageSize) : rows;
+            Long totalCount = withCount
+                    ? trainingRepository.countTraineeTrainings(username, fromDate, toDate, trainerName, trainingTypeName)
+                    : null;
+            log.info("Retrieved {} trainings for Trainee: {} (filters: fromDate={}, toDate={}, trainerName={}, trainingTypeName={}, after={})",
+                    page.size(), username, fromDate, toDate, trainerName, trainingTypeName, after);
+            return new TrainingPage(page.stream().map(converter::rowToDtoWithNullTrainee).toList(),  //  trainee name not included
+                    hasNext ? TrainingCursor.of(page.getLast()).encode() : null, totalCount);
         }
     }
 
@@ -223,24 +236,22 @@ public class TraineeServiceImpl implements TraineeService {
         Trainee trainee = getTrainee(username);
         trainee.setPassword(passwordEncoder.encode(newPassword));
         traineeRepository.save(trainee);
+        verifiedTokenCache.invalidateUser(username);
+        userDetailsService.evict(username);
         log.info("Password updated for trainee {}", username);
     }
 
 
-    private List<TrainerShortDto> getTrainersForTrainee(String username) {
-        Trainee trainee = traineeRepository.findByUsernameWithTrainers(username)
-                .orElseThrow(() -> {
-                    log.warn("Trainee '{}' not found during getting trainers", username);
-                    return new NoSuchElementException("Not found trainee with username: " + username);
-                });
-        List<Trainer> trainers = trainee.getTrainers();
-        log.info("Retrieved all trainers for Trainee: {}", username);
-        return trainers.stream().map(converter::entityToShortDto).toList();
+    private List<TrainerShortDto> getTrainersForTrainee(Trainee trainee) {
+        Set<Trainer> trainers = trainee.getTrainers();                  //  second-level collection cache
+        log.info("Retrieved all trainers for Trainee: {}", trainee.getUsername());
+        return trainers.stream().sorted(Comparator.comparing(Trainer::getUsername))
+                .map(converter::entityToShortDto).toList();
     }
 
 
     private Trainee getTrainee(String username) {
-        return traineeRepository.findByUsername(username).orElseThrow(() -> {
+        return traineeRepository.findByNaturalId(username).orElseThrow(() -> {
             log.warn("Trainee not found: {}", username);
             return new NoSuchElementException("Trainee not found: " + username);
         });
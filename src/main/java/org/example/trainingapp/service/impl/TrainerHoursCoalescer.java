@@ -0,0 +1,89 @@
+package org.example.trainingapp.service.impl;
+
+import org.example.trainingapp.dto.ActionType;
+import org.example.trainingapp.dto.EventType;
+import org.example.trainingapp.dto.TrainerHoursEvent;
+import org.example.trainingapp.dto.TrainingUpdateRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+// Merges ADD/DELETE updates of the same trainer and month into one net-duration UPDATE, so a batch carries
+// one event per active trainer-month instead of one per training. Non-UPDATE events (CLEAR_ALL, MONTH_SNAPSHOT)
+// are never merged across: pending deltas are emitted before them to keep the order the consumer relies on.
+@Service
+public class TrainerHoursCoalescer {
+
+    public List<TrainerHoursEvent> coalesce(List<TrainerHoursEvent> events) {
+        List<TrainerHoursEvent> result = new ArrayList<>(events.size());
+        Map<TrainerMonth, NetDelta> pending = new LinkedHashMap<>();        //  first appearance order
+        for (TrainerHoursEvent event : events) {
+            TrainingUpdateRequest update = event.getTrainingUpdate();
+            if (event.getType() != EventType.UPDATE || update == null || update.getTrainingDate() == null) {
+                flush(pending, result);
+                result.add(event);
+                continue;
+            }
+            TrainerMonth key = new TrainerMonth(update.getTrainerUsername(), YearMonth.from(update.getTrainingDate()));
+            pending.computeIfAbsent(key, k -> new NetDelta()).add(event);
+        }
+        flush(pending, result);
+        return result;
+    }
+
+
+    private void flush(Map<TrainerMonth, NetDelta> pending, List<TrainerHoursEvent> result) {
+        for (NetDelta delta : pending.values()) {
+            if (delta.minutes != 0) {                                       //  create + delete cancel each other
+                result.add(delta.toEvent());
+            }
+        }
+        pending.clear();
+    }
+
+
+    private record TrainerMonth(String trainerUsername, YearMonth month) {
+    }
+
+
+    private static class NetDelta {
+        private long minutes;
+        private TrainerHoursEvent first;
+        private TrainerHoursEvent last;                                     //  latest trainer name/status wins
+
+        void add(TrainerHoursEvent event) {
+            TrainingUpdateRequest update = event.getTrainingUpdate();
+            minutes += update.getActionType() == ActionType.DELETE
+                    ? -update.getTrainingDuration() : update.getTrainingDuration();
+            if (first == null) {
+                first = event;
+            }
+            last = event;
+        }
+
+        TrainerHoursEvent toEvent() {
+            if (first == last) {
+                return first;                                               //  nothing merged - send as is
+            }
+            TrainingUpdateRequest latest = last.getTrainingUpdate();
+            return TrainerHoursEvent.builder()
+                    .txId(last.getTxId())
+                    .type(EventType.UPDATE)
+                    .trainingUpdate(TrainingUpdateRequest.builder()
+                            .trainerUsername(latest.getTrainerUsername())
+                            .trainerFirstName(latest.getTrainerFirstName())
+                            .trainerLastName(latest.getTrainerLastName())
+                            .active(latest.isActive())
+                            .trainingDate(first.getTrainingUpdate().getTrainingDate())
+                            .trainingDuration((int) Math.abs(minutes))
+                            .actionType(minutes > 0 ? ActionType.ADD : ActionType.DELETE)
+                            .build())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.trainingapp.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.example.trainingapp.dto.EventType;
+import org.example.trainingapp.dto.TrainerHoursEvent;
+import org.example.trainingapp.dto.TrainingUpdateRequest;
+import org.example.trainingapp.entity.OutboxEvent;
+import org.example.trainingapp.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+
+// Write side of the trainer-hours outbox: events are stored in the caller's transaction,
+// so they are committed (and later relayed) only together with the business change
+@Service
+@RequiredArgsConstructor
+public class TrainerHoursOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private static final Logger log = LoggerFactory.getLogger(TrainerHoursOutbox.class);
+
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueUpdate(TrainingUpdateRequest update) {
+        String txId = currentTxId();
+        outboxEventRepository.save(toOutboxEvent(txId, update));
+        log.debug("Queued UPDATE in outbox, txId={}, trainer={}, action={}", txId, update.getTrainerUsername(),
+                update.getActionType());
+    }
+
+
+    // Events of one business change share the txId and are stored by one saveAll (JDBC-batched inserts)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueUpdates(List<TrainingUpdateRequest> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        String txId = currentTxId();
+        outboxEventRepository.saveAll(updates.stream().map(update -> toOutboxEvent(txId, update)).toList());
+        log.debug("Queued {} UPDATEs in outbox, txId={}", updates.size(), txId);
+    }
+
+
+    private static String currentTxId() {
+        return Optional.ofNullable(MDC.get("txId"))                     //  request txId travels with the event
+                .orElseGet(() -> UUID.randomUUID().toString());
+    }
+
+
+    private OutboxEvent toOutboxEvent(String txId, TrainingUpdateRequest update) {
+        TrainerHoursEvent event = TrainerHoursEvent.builder()
+                .txId(txId)
+                .type(EventType.UPDATE)
+                .trainingUpdate(update)
+                .build();
+        try {
+            return OutboxEvent.builder()
+                    .txId(txId)
+                    .payload(objectMapper.writeValueAsString(event))
+                    .createdAt(LocalDateTime.now())
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize trainer-hours event, txId=" + txId, e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.trainingapp.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.example.trainingapp.dto.TrainerHoursEvent;
+import org.example.trainingapp.entity.OutboxEvent;
+import org.example.trainingapp.entity.OutboxRelayLock;
+import org.example.trainingapp.exception.MessagingException;
+import org.example.trainingapp.repository.OutboxEventRepository;
+import org.example.trainingapp.repository.OutboxRelayLockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+// Read side of the trainer-hours outbox: drains stored events to the broker in batches.
+// Events piling up between runs are coalesced per trainer-month, so the relay interval works as the merge
+// window and batch-size as the flush-on-size limit.
+// A row is deleted only after its batch was sent, so delivery is at-least-once; while the broker is down
+// events stay in the table and are retried on the next run, in their original order.
+@Service
+@RequiredArgsConstructor
+public class TrainerHoursOutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final TrainerHoursPublisher trainerHoursPublisher;
+    private final TrainerHoursCoalescer trainerHoursCoalescer;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+    private final OutboxRelayLockRepository outboxRelayLockRepository;
+    private static final Logger log = LoggerFactory.getLogger(TrainerHoursOutboxRelay.class);
+
+    @Value("${outbox.relay.batch-size:100}")
+    private int batchSize = 100;                                            //  events per relay transaction
+
+    @Value("${outbox.relay.coalesce:true}")
+    private boolean coalesce = true;                                        //  net delta per trainer-month per batch
+
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+    public int relay() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int relayed = 0;
+        BatchResult batch;
+        do {                                                                //  full batch - more may be waiting
+            batch = transaction.execute(status -> relayBatch());
+            relayed += batch.removed();
+        } while (batch.more());
+        if (relayed > 0) {
+            log.info("Relayed {} trainer-hours events from outbox", relayed);
+        }
+        return relayed;
+    }
+
+
+    // The whole batch goes to the broker in one transacted JMS session, so it is either delivered and deleted
+    // or kept completely. Paused while a resync holds the relay lock; a schema without the lock row relays anyway
+    private BatchResult relayBatch() {
+        if (outboxRelayLockRepository.lockForRelay().isEmpty()
+                && outboxRelayLockRepository.existsById(OutboxRelayLock.ID)) {
+            log.debug("Trainer-hours resync in progress, outbox relay paused");
+            return new BatchResult(0, false);
+        }
+        List<OutboxEvent> batch = outboxEventRepository.findBatchForRelay(Limit.of(batchSize));
+        List<TrainerHoursEvent> events = new ArrayList<>(batch.size());
+        List<OutboxEvent> unreadable = new ArrayList<>();
+        for (OutboxEvent row : batch) {
+            try {
+                events.add(objectMapper.readValue(row.getPayload(), TrainerHoursEvent.class));
+            } catch (JsonProcessingException e) {
+                log.error("Dropping unreadable outbox event id={}, txId={}: {}", row.getId(), row.getTxId(),
+                        e.getMessage());                                    //  would block the outbox forever
+                unreadable.add(row);
+            }
+        }
+        List<TrainerHoursEvent> toSend = coalesce ? trainerHoursCoalescer.coalesce(events) : events;
+        if (toSend.size() < events.size()) {
+            log.debug("Coalesced {} outbox events into {}", events.size(), toSend.size());
+        }
+        try {
+            trainerHoursPublisher.publishEvents(toSend);
+        } catch (MessagingException e) {
+            log.warn("Broker unavailable, {} outbox events postponed to next run: {}", events.size(), e.getMessage());
+            outboxEventRepository.deleteAllInBatch(unreadable);
+            return new BatchResult(unreadable.size(), false);
+        }
+        outboxEventRepository.deleteAllInBatch(batch);
+        return new BatchResult(batch.size(), batch.size() == batchSize);
+    }
+
+
+    private record BatchResult(int removed, boolean more) {
+    }
+}
@@ -1,9 +1,18 @@
 package org.example.trainingapp.service.impl;
 
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
 import lombok.RequiredArgsConstructor;
 import org.example.trainingapp.config.JmsConfig;
 import org.example.trainingapp.dto.EventType;
 import org.example.trainingapp.dto.TrainerHoursEvent;
+import org.example.trainingapp.dto.TrainerMonthHours;
 import org.example.trainingapp.dto.TrainingUpdateRequest;
 import org.example.trainingapp.exception.MessagingException;
 import org.slf4j.Logger;
@@ -13,8 +22,14 @@ import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
 import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
 import org.springframework.jms.JmsException;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.stereotype.Service;
+
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
 
 
 @Service
@@ -23,6 +38,8 @@ public class TrainerHoursPublisher {
 
     private final JmsTemplate jmsTemplate;
     private final CircuitBreakerFactory<?, ?> cbFactory;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;            //  same breakers as cbFactory
+    private static final String CIRCUIT_BREAKER = "trainerHoursService";
     private static final Logger log = LoggerFactory.getLogger(TrainerHoursPublisher.class);
 
 
@@ -45,7 +62,7 @@ public class TrainerHoursPublisher {
                     .type(EventType.UPDATE)
                     .trainingUpdate(update)
                     .build();
-            CircuitBreaker cb = cbFactory.create("trainerHoursService");
+            CircuitBreaker cb = cbFactory.create(CIRCUIT_BREAKER);
             cb.run(() -> {
                 try {
                     jmsTemplate.convertAndSend(JmsConfig.TRAINING_QUEUE, event);
@@ -70,6 +87,68 @@ public class TrainerHoursPublisher {
     }
 
 
+    // Batch of updates under one txId: one JMS session for all messages, see publishEvents
+    public void publishUpdates(List<TrainingUpdateRequest> updates, String txId) {
+        String previousTxId = MDC.get("txId");
+        MDC.put("txId", txId);
+        try {
+            publishEvents(updates.stream()
+                    .map(update -> TrainerHoursEvent.builder()
+                            .txId(txId)                         //  forwarding transactionId in dto
+                            .type(EventType.UPDATE)
+                            .trainingUpdate(update)
+                            .build())
+                    .toList());
+        } finally {
+            if (previousTxId != null) {
+                MDC.put("txId", previousTxId);
+            } else {
+                MDC.remove("txId");
+            }
+        }
+    }
+
+
+    // Sends all events through one connection and one transacted session with a single commit,
+    // instead of a connection/session/producer per message. All or nothing: on failure nothing is delivered.
+    // Guarded by the circuit breaker only: the TimeLimiter behind cbFactory would run the batch on another thread
+    // and give up on it while that thread may still commit, so the caller would resend a delivered batch
+    public void publishEvents(List<TrainerHoursEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        ConnectionFactory connectionFactory = jmsTemplate.getConnectionFactory();
+        MessageConverter messageConverter = jmsTemplate.getMessageConverter();
+        if (connectionFactory == null || messageConverter == null) {
+            throw new IllegalStateException("JmsTemplate has no connection factory or message converter");
+        }
+        try {
+            circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER).executeRunnable(() -> {
+                try (Connection connection = connectionFactory.createConnection();
+                     Session session = connection.createSession(true, Session.SESSION_TRANSACTED)) {
+                    MessageProducer producer = session.createProducer(session.createQueue(JmsConfig.TRAINING_QUEUE));
+                    producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+                    for (TrainerHoursEvent event : events) {
+                        producer.send(messageConverter.toMessage(event, session));
+                    }
+                    session.commit();
+                    log.info("Published batch of {} events, first txId={}", events.size(), events.getFirst().getTxId());
+                } catch (JMSException e) {
+                    log.error("Failed to publish batch of {} events", events.size(), e);
+                    throw new MessagingException("Publish failed for batch of " + events.size() + " events",
+                            JmsUtils.convertJmsAccessException(e));
+                } catch (RuntimeException e) {                  //  e.g. MessageConversionException
+                    log.error("Failed to publish batch of {} events", events.size(), e);
+                    throw new MessagingException("Publish failed for batch of " + events.size() + " events", e);
+                }
+            });
+        } catch (CallNotPermittedException e) {
+            log.error("TrainerHours batch publish failed: {}", e.getMessage());
+            throw new MessagingException("Batch publish failed (circuit breaker open)", e);
+        }
+    }
+
+
     // Clearing all data in the second service
     public void publishClearAll(String txId) {
         String previousTxId = MDC.get("txId");
@@ -79,7 +158,7 @@ public class TrainerHoursPublisher {
                     .txId(txId)                                 //  forwarding transactionId in dto
                     .type(EventType.CLEAR_ALL)
                     .build();
-            CircuitBreaker cb = cbFactory.create("trainerHoursService");
+            CircuitBreaker cb = cbFactory.create(CIRCUIT_BREAKER);
             cb.run(() -> {
                 try {
                     jmsTemplate.convertAndSend(JmsConfig.TRAINING_QUEUE, event);
@@ -102,5 +181,79 @@ public class TrainerHoursPublisher {
         }
     }
 
-}
 
+    // Trainer-month totals for aggregated resync: each replaces the month on the consumer side.
+    // Sent as one batch (see publishEvents)
+    public void publishMonthSnapshots(List<TrainerMonthHours> snapshots, String txId) {
+        String previousTxId = MDC.get("txId");
+        MDC.put("txId", txId);
+        try {
+            publishEvents(snapshots.stream()
+                    .map(snapshot -> TrainerHoursEvent.builder()
+                            .txId(txId)                         //  forwarding transactionId in dto
+                            .type(EventType.MONTH_SNAPSHOT)
+                            .monthSnapshot(snapshot)
+                            .build())
+                    .toList());
+        } finally {
+            if (previousTxId != null) {
+                MDC.put("txId", previousTxId);
+            } else {
+                MDC.remove("txId");
+            }
+        }
+    }
+
+
+    // Sync worker: sends events taken from the queue through one JMS session/producer held for the whole run
+    // and one circuit breaker lookup. Sends stay on this thread, which owns the session, so the breaker is used
+    // without the TimeLimiter (see publishEvents). Always consumes the queue up to endMarker, even if the broker
+    // is gone, so upstream stages never block on a dead worker. Time spent sending is added to busyNanos.
+    // Returns the number of events sent.
+    public int publishFromQueue(BlockingQueue<TrainerHoursEvent> queue, TrainerHoursEvent endMarker,
+                                Runnable throttle, LongAdder busyNanos) throws InterruptedException {
+        io.github.resilience4j.circuitbreaker.CircuitBreaker breaker =
+                circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER);
+        int[] sent = {0};
+        boolean[] finished = {false};
+        try {
+            jmsTemplate.execute(JmsConfig.TRAINING_QUEUE, (session, producer) -> {
+                try {
+                    for (TrainerHoursEvent event = queue.take(); event != endMarker; event = queue.take()) {
+                        throttle.run();
+                        TrainerHoursEvent toSend = event;
+                        long sendStarted = System.nanoTime();
+                        try {
+                            breaker.executeRunnable(() -> {
+                                try {
+                                    producer.send(jmsTemplate.getMessageConverter().toMessage(toSend, session));
+                                } catch (JMSException e) {
+                                    throw JmsUtils.convertJmsAccessException(e);
+                                }
+                            });
+                            sent[0]++;
+                        } catch (RuntimeException e) {
+                            log.warn("Failed to publish UPDATE, txId={}: {}", toSend.getTxId(), e.getMessage());
+                        } finally {
+                            busyNanos.add(System.nanoTime() - sendStarted);
+                        }
+                    }
+                    finished[0] = true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            });
+        } catch (JmsException e) {
+            log.error("Sync publisher worker lost its JMS session, skipping remaining events: {}", e.getMessage(), e);
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException("Sync publisher worker interrupted");
+        }
+        while (!finished[0]) {                                  // draining up to the end marker
+            finished[0] = queue.take() == endMarker;
+        }
+        return sent[0];
+    }
+
+}
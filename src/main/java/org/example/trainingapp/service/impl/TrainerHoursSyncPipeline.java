@@ -0,0 +1,186 @@
+package org.example.trainingapp.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.example.trainingapp.converter.Converter;
+import org.example.trainingapp.dto.ActionType;
+import org.example.trainingapp.dto.EventType;
+import org.example.trainingapp.dto.SyncResult;
+import org.example.trainingapp.dto.TrainerHoursEvent;
+import org.example.trainingapp.dto.TrainingHoursRow;
+import org.example.trainingapp.repository.TrainingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+
+// Trainer-hours resync as three stages connected by bounded queues:
+// reader (keyset pages, calling thread) -> converter (1 thread) -> N publisher workers (virtual threads)
+@Service
+@RequiredArgsConstructor
+public class TrainerHoursSyncPipeline {
+
+    private final TrainingRepository trainingRepository;
+    private final TrainerHoursPublisher trainerHoursPublisher;
+    private final Converter converter;
+    private static final Logger log = LoggerFactory.getLogger(TrainerHoursSyncPipeline.class);
+    private static final TrainerHoursEvent END_OF_EVENTS = new TrainerHoursEvent();     // end marker for workers
+    private static final List<TrainingHoursRow> END_OF_PAGES = List.of();                // end marker for converter
+    private static final int PAGE_BUFFER = 4;                                            // pages read ahead
+
+    @Value("${sync.page-size:500}")
+    private int pageSize = 500;
+
+    @Value("${sync.pipeline.workers:4}")
+    private int workers = 4;
+
+    @Value("${sync.pipeline.queue-capacity:1000}")
+    private int queueCapacity = 1000;
+
+    @Value("${sync.pipeline.max-messages-per-second:0}")
+    private int maxMessagesPerSecond = 0;                                   //  0 = unlimited
+
+
+    public SyncResult run(String txId) {
+        long started = System.currentTimeMillis();
+        BlockingQueue<List<TrainingHoursRow>> pages = new ArrayBlockingQueue<>(PAGE_BUFFER);
+        BlockingQueue<TrainerHoursEvent> events = new ArrayBlockingQueue<>(queueCapacity);
+        LongAdder convertNanos = new LongAdder();
+        LongAdder publishNanos = new LongAdder();
+        Runnable throttle = throttle();
+        ExecutorService executor = Executors.newFixedThreadPool(workers + 1,
+                Thread.ofVirtual().name("hours-sync-", 0).factory());
+        try {
+            List<Future<Integer>> publishers = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                publishers.add(executor.submit(withTxId(txId,
+                        () -> trainerHoursPublisher.publishFromQueue(events, END_OF_EVENTS, throttle, publishNanos))));
+            }
+            BooleanSupplier publishersAlive = () -> publishers.stream().anyMatch(f -> !f.isDone());
+            Future<Integer> conversion = executor.submit(withTxId(txId,
+                    () -> convert(pages, events, txId, convertNanos, publishersAlive)));
+
+            int total = 0;                                                  //  reader stage
+            long readNanos = 0;
+            long lastId = 0L;
+            List<TrainingHoursRow> page;
+            do {
+                long pageStarted = System.nanoTime();
+                page = trainingRepository.findHoursPageAfterId(lastId, Limit.of(pageSize));
+                readNanos += System.nanoTime() - pageStarted;
+                if (!page.isEmpty()) {
+                    handOver(pages, page, () -> !conversion.isDone());
+                    total += page.size();
+                    lastId = page.getLast().id();
+                }
+            } while (page.size() == pageSize);
+            handOver(pages, END_OF_PAGES, () -> !conversion.isDone());
+
+            conversion.get();
+            int sent = 0;
+            for (Future<Integer> publisher : publishers) {
+                sent += publisher.get();
+            }
+            long took = System.currentTimeMillis() - started;
+            return new SyncResult(txId, total, sent, took, TimeUnit.NANOSECONDS.toMillis(readNanos),
+                    TimeUnit.NANOSECONDS.toMillis(convertNanos.sum()), TimeUnit.NANOSECONDS.toMillis(publishNanos.sum()),
+                    SyncResult.perSecond(sent, took));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Trainer-hours sync interrupted, txId=" + txId, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Trainer-hours sync stage failed, txId=" + txId + ": "
+                    + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    private int convert(BlockingQueue<List<TrainingHoursRow>> pages, BlockingQueue<TrainerHoursEvent> events,
+                        String txId, LongAdder convertNanos, BooleanSupplier publishersAlive) throws InterruptedException {
+        int converted = 0;
+        for (List<TrainingHoursRow> page = pages.take(); page != END_OF_PAGES; page = pages.take()) {
+            for (TrainingHoursRow row : page) {
+                long rowStarted = System.nanoTime();
+                TrainerHoursEvent event;
+                try {
+                    event = TrainerHoursEvent.builder()
+                            .txId(txId)
+                            .type(EventType.UPDATE)
+                            .trainingUpdate(converter.rowAndActionToUpdateRequest(row, ActionType.ADD))
+                            .build();
+                } catch (Exception e) {
+                    log.warn("Failed to convert training with id {}: {}", row.id(), e.getMessage(), e);
+                    continue;
+                } finally {
+                    convertNanos.add(System.nanoTime() - rowStarted);
+                }
+                handOver(events, event, publishersAlive);
+                converted++;
+            }
+        }
+        for (int i = 0; i < workers; i++) {
+            handOver(events, END_OF_EVENTS, publishersAlive);
+        }
+        return converted;
+    }
+
+
+    // Blocking put that gives up if the consuming stage has died instead of waiting forever
+    private static <T> void handOver(BlockingQueue<T> queue, T item, BooleanSupplier consumerAlive)
+            throws InterruptedException {
+        while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+            if (!consumerAlive.getAsBoolean()) {
+                throw new IllegalStateException("Downstream sync stage stopped unexpectedly");
+            }
+        }
+    }
+
+
+    private static <T> Callable<T> withTxId(String txId, Callable<T> task) {
+        return () -> {
+            MDC.put("txId", txId);
+            try {
+                return task.call();
+            } finally {
+                MDC.remove("txId");
+            }
+        };
+    }
+
+
+    // Shared pacing for all workers: hands out send slots maxMessagesPerSecond apart
+    private Runnable throttle() {
+        if (maxMessagesPerSecond <= 0) {
+            return () -> {};
+        }
+        long interval = TimeUnit.SECONDS.toNanos(1) / maxMessagesPerSecond;
+        AtomicLong nextSlot = new AtomicLong(System.nanoTime());
+        return () -> {
+            long slot = nextSlot.accumulateAndGet(interval, (prev, step) -> Math.max(prev, System.nanoTime()) + step)
+                    - interval;
+            long wait = slot - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        };
+    }
+}
@@ -6,26 +6,32 @@ import org.example.trainingapp.dto.ActiveStatusDto;
 import org.example.trainingapp.dto.TraineeShortDto;
 import org.example.trainingapp.dto.TrainerRequestDto;
 import org.example.trainingapp.dto.TrainerResponseDto;
-import org.example.trainingapp.dto.TrainingResponseDto;
+import org.example.trainingapp.dto.TrainingCursor;
+import org.example.trainingapp.dto.TrainingListRow;
+import org.example.trainingapp.dto.TrainingPage;
 import org.example.trainingapp.entity.Trainee;
 import org.example.trainingapp.entity.Trainer;
-import org.example.trainingapp.entity.Training;
 import org.example.trainingapp.entity.TrainingType;
 import org.example.trainingapp.exception.ForbiddenAccessException;
+import org.example.trainingapp.jwt.VerifiedTokenCache;
 import org.example.trainingapp.repository.TrainerRepository;
-import org.example.trainingapp.repository.TrainingTypeRepository;
+import org.example.trainingapp.repository.TrainingRepository;
 import org.example.trainingapp.service.TrainerService;
+import org.example.trainingapp.service.TrainingTypeRegistry;
 import org.example.trainingapp.util.AuthContextUtil;
 import org.example.trainingapp.util.ValidationUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Comparator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 
 @Service
@@ -34,10 +40,13 @@ public class TrainerServiceImpl implements TrainerService {
 
     private static final Logger log = LoggerFactory.getLogger(TrainerServiceImpl.class.getName());
     private final TrainerRepository trainerRepository;
+    private final TrainingRepository trainingRepository;
     private final Converter converter;
-    private final TrainingTypeRepository trainingTypeRepository;
+    private final TrainingTypeRegistry trainingTypeRegistry;
     private final AuthContextUtil authContextUtil;
     private final PasswordEncoder passwordEncoder;
+    private final CustomUserDetailsService userDetailsService;
+    private final VerifiedTokenCache verifiedTokenCache;
 
 
     @Override
@@ -51,33 +60,29 @@ public class TrainerServiceImpl implements TrainerService {
                     return new NoSuchElementException("Not found trainer with username: " + username);
                 });
         String specialization = trainerRequestDto.getSpecializationName();
-        TrainingType type = trainingTypeRepository.findByName(specialization)
+        TrainingType type = trainingTypeRegistry.find(specialization)        //  empty for unsupported names too
                 .orElseThrow(() -> {
                     log.warn("TrainingType not found: {}", specialization);
                     return new NoSuchElementException("TrainingType not found: " + specialization);
                 });
-        //  checking type validity and catching the exception
-        if (!ValidationUtils.isValidTrainingTypeEnum(specialization.toUpperCase())) {
-            log.error("Unsupported TrainingType: {}", specialization);
-            throw new NoSuchElementException("TrainingType '" + specialization + "' is not supported.");
-        }
         existing.setSpecialization(type);
         existing.setActive(trainerRequestDto.getActive());
         trainerRepository.save(existing);
         log.info("Trainer updated: {}", existing.getId());
-        List<TraineeShortDto> trainees = getTraineesForTrainer(username);
+        List<TraineeShortDto> trainees = getTraineesForTrainer(existing);
         return converter.entityToResponseDto(existing, trainees);
     }
 
 
     @Override
+    @Transactional(readOnly = true)                                 //  trainees collection is read lazily
     public TrainerResponseDto getTrainerByUsername(String username) {
         if (!username.equals(authContextUtil.getUsername())) {
             throw new ForbiddenAccessException("User is not the owner of entity");
         } else {
             ValidationUtils.validateUsername(username);
             Trainer trainer = getTrainer(username);
-            List<TraineeShortDto> trainees = getTraineesForTrainer(username);
+            List<TraineeShortDto> trainees = getTraineesForTrainer(trainer);
             log.info("Retrieved Trainer by username: {}", username);
             return converter.entityToDtoWithoutUsername(trainer, trainees);     //  dto without username
         }
@@ -92,35 +97,35 @@ public class TrainerServiceImpl implements TrainerService {
         Boolean active = activeStatusDto.getActive();
         trainer.setActive(active);
         trainerRepository.save(trainer);
+        verifiedTokenCache.invalidateUser(trainer.getUsername());     //  cached tokens carry the old status
+        userDetailsService.evict(trainer.getUsername());
         log.info("Trainer active status changed: {} to {}", trainer.getId(), active);
         return active;
     }
 
 
     @Override
-    public List<TrainingResponseDto> getTrainerTrainings(String username, LocalDate fromDate,
-                                                         LocalDate toDate, String traineeName) {
+    public TrainingPage getTrainerTrainings(String username, LocalDate fromDate, LocalDate toDate, String traineeName,
+                                            String after, Integer size) {
         if (!username.equals(authContextUtil.getUsername())) {
             throw new ForbiddenAccessException("User is not the owner of entity");
         } else {
             ValidationUtils.validateUsername(username);
-            Trainer trainer = trainerRepository.findByUsernameWithTrainings(username)
-                    .orElseThrow(() -> {
-                        log.warn("Trainer '{}' not found during getting trainings", username);
-                        return new NoSuchElementException("Not found trainer with username: " + username);
-                    });
-            List<Training> trainings = trainer.getTrainings().stream()
-                    .filter(training -> {
-                        boolean dateMatch = (fromDate == null || !training.getTrainingDate().isBefore(fromDate)) &&
-                                (toDate == null || !training.getTrainingDate().isAfter(toDate));
-                        boolean traineeMatch = (traineeName == null ||
-                                training.getTrainee().getUsername().equalsIgnoreCase(traineeName));
-                        return dateMatch && traineeMatch;
-                    })          //  2 filter conditions here - on date period and on trainee name
-                    .toList();
-            log.info("Retrieved trainings for Trainer: {} (filters: fromDate={}, toDate={}, traineeName={})", username,
-                    fromDate, toDate, traineeName);
-            return trainings.stream().map(converter::entityToDtoWithNullTrainer).toList();  //  trainer name not included
+            TrainingCursor cursor = TrainingCursor.parse(after);
+            Integer pageSize = ValidationUtils.validateOptionalPageSize(size, cursor != null);
+            if (!trainerRepository.existsByUsername(username)) {
+                log.warn("Trainer '{}' not found during getting trainings", username);
+                throw new NoSuchElementException("Not found trainer with username: " + username);
+            }
+            List<TrainingListRow> rows = trainingRepository.findTrainerTrainings(username, fromDate, toDate,
+                    traineeName, cursor == null ? null : cursor.date(), cursor == null ? null : cursor.id(),
+                    pageSize == null ? Limit.unlimited() : Limit.of(pageSize + 1));    //  one extra row = next page exists
+            boolean hasNext = pageSize != null && rows.size() > pageSize;
+            List<TrainingListRow> page = hasNext ? rows.subList(0, pageSize) : rows;
+            log.info("Retrieved {} trainings for Trainer: {} (filters: fromDate={}, toDate={}, traineeName={}, after={})",
+                    page.size(), username, fromDate, toDate, traineeName, after);
+            return new TrainingPage(page.stream().map(converter::rowToDtoWithNullTrainer).toList(),  //  trainer name not included
+                    hasNext ? TrainingCursor.of(page.getLast()).encode() : null, null);
         }
     }
 
@@ -131,24 +136,22 @@ public class TrainerServiceImpl implements TrainerService {
         Trainer trainer = getTrainer(username);
         trainer.setPassword(passwordEncoder.encode(newPassword));
         trainerRepository.save(trainer);
+        verifiedTokenCache.invalidateUser(username);
+        userDetailsService.evict(username);
         log.info("Password updated for trainer {}", username);
     }
 
 
-    private List<TraineeShortDto> getTraineesForTrainer(String username) {
-        Trainer trainer = trainerRepository.findByUsernameWithTrainees(username)
-                .orElseThrow(() -> {
-                    log.warn("Trainer '{}' not found during getting trainees", username);
-                    return new NoSuchElementException("Not found trainer with username: " + username);
-                });
-        List<Trainee> trainees = trainer.getTrainees();
-        log.info("Retrieved available trainees for Trainer: {}", username);
-        return trainees.stream().map(converter::entityToShortDto).toList();
+    private List<TraineeShortDto> getTraineesForTrainer(Trainer trainer) {
+        Set<Trainee> trainees = trainer.getTrainees();                  //  second-level collection cache
+        log.info("Retrieved available trainees for Trainer: {}", trainer.getUsername());
+        return trainees.stream().sorted(Comparator.comparing(Trainee::getUsername))
+                .map(converter::entityToShortDto).toList();
     }
 
 
     private Trainer getTrainer(String username) {
-        return trainerRepository.findByUsername(username).orElseThrow(() -> {
+        return trainerRepository.findByNaturalId(username).orElseThrow(() -> {
             log.warn("Trainer not found: {}", username);
             return new NoSuchElementException("Trainer not found: " + username);
         });
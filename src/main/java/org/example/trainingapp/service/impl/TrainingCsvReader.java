@@ -0,0 +1,152 @@
+package org.example.trainingapp.service.impl;
+
+import org.example.trainingapp.dto.TrainingRequestDto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+// CSV rows of a training import, read line by line. The header names the columns (name, date, duration,
+// traineeName, optional trainerName) in any order. Fields may be double-quoted ("" is a quote inside quotes);
+// line breaks inside fields are not supported. A bad value fails only its row.
+class TrainingCsvReader implements TrainingImportService.RowReader {
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("name", "date", "duration", "traineeName");
+
+    private final BufferedReader reader;
+    private Map<String, Integer> columns;
+    private String pending;
+
+
+    TrainingCsvReader(InputStream body) {
+        this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+
+
+    @Override
+    public boolean hasNext() throws IOException {
+        if (columns == null) {
+            columns = readHeader();
+        }
+        while (pending == null) {
+            String line = reader.readLine();
+            if (line == null) {
+                return false;
+            }
+            if (!line.isBlank()) {
+                pending = line;
+            }
+        }
+        return true;
+    }
+
+
+    @Override
+    public TrainingRequestDto next() throws IOException {
+        if (!hasNext()) {
+            throw new IllegalStateException("No more CSV rows");
+        }
+        List<String> fields = split(pending);
+        pending = null;
+        return TrainingRequestDto.builder()
+                .name(field(fields, "name"))
+                .date(parseDate(field(fields, "date")))
+                .duration(parseDuration(field(fields, "duration")))
+                .traineeName(field(fields, "traineeName"))
+                .trainerName(field(fields, "trainerName"))
+                .build();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+
+    private Map<String, Integer> readHeader() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+        } while (line != null && line.isBlank());
+        Map<String, Integer> header = new HashMap<>();
+        if (line == null) {
+            return header;                                          //  empty upload, nothing to import
+        }
+        List<String> names = split(line);
+        for (int i = 0; i < names.size(); i++) {
+            header.put(names.get(i).trim(), i);
+        }
+        List<String> missing = REQUIRED_COLUMNS.stream().filter(name -> !header.containsKey(name)).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("CSV header misses columns: " + String.join(", ", missing));
+        }
+        return header;
+    }
+
+
+    private String field(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return value == null ? null : LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid training date: " + value);
+        }
+    }
+
+
+    private static Integer parseDuration(String value) {
+        try {
+            return value == null ? null : Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid training duration: " + value);
+        }
+    }
+
+
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,229 @@
+package org.example.trainingapp.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.example.trainingapp.converter.Converter;
+import org.example.trainingapp.dto.TrainingImportResult;
+import org.example.trainingapp.dto.TrainingRequestDto;
+import org.example.trainingapp.entity.Trainee;
+import org.example.trainingapp.entity.Trainer;
+import org.example.trainingapp.entity.Training;
+import org.example.trainingapp.repository.TraineeRepository;
+import org.example.trainingapp.repository.TrainerRepository;
+import org.example.trainingapp.repository.TrainingRepository;
+import org.example.trainingapp.util.ValidationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+
+// Training import of one trainer: rows are parsed one by one from CSV or JSON/NDJSON and imported in chunks.
+// Trainees are resolved once per distinct username for the whole upload, training names are numbered per
+// trainer-day from one reserved counter range per chunk, trainings are inserted as JDBC batches and the hours
+// service gets one outbox event per trainer-month of the chunk instead of one per training.
+@Service
+@RequiredArgsConstructor
+public class TrainingImportService {
+
+    private final ObjectMapper objectMapper;
+    private final Converter converter;
+    private final TrainerRepository trainerRepository;
+    private final TraineeRepository traineeRepository;
+    private final TrainingRepository trainingRepository;
+    private final TrainingNameSequence trainingNameSequence;
+    private final TrainerHoursOutbox trainerHoursOutbox;
+    private final PlatformTransactionManager transactionManager;
+    private static final Logger log = LoggerFactory.getLogger(TrainingImportService.class);
+
+    @Value("${training.import.chunk-size:500}")
+    private int chunkSize = 500;                                            //  rows per insert transaction
+
+
+    public void importTrainings(InputStream body, boolean csv, String trainerUsername,
+                                Consumer<List<TrainingImportResult>> sink) throws IOException {
+        if (!trainerRepository.existsByUsername(trainerUsername)) {
+            throw new NoSuchElementException("Not found trainer with username: " + trainerUsername);
+        }
+        Map<String, Optional<Long>> traineeIds = new HashMap<>();           //  one lookup per distinct trainee
+        int firstRow = 1;
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        try (RowReader rows = csv ? new TrainingCsvReader(body) : jsonRows(body)) {
+            while (rows.hasNext()) {
+                int row = firstRow + chunk.size();
+                try {
+                    chunk.add(new ImportRow(row, rows.next(), null));
+                } catch (IllegalArgumentException e) {                      //  bad CSV value, next line is fine
+                    chunk.add(new ImportRow(row, null, e.getMessage()));
+                }
+                if (chunk.size() == chunkSize) {
+                    sink.accept(importChunk(chunk, trainerUsername, traineeIds));
+                    firstRow += chunk.size();
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (JsonProcessingException e) {                               //  rows after a malformed one are lost
+            if (!chunk.isEmpty()) {
+                sink.accept(importChunk(chunk, trainerUsername, traineeIds));
+            }
+            sink.accept(List.of(TrainingImportResult.failed(firstRow + chunk.size(),
+                    "Malformed row, import stopped: " + e.getOriginalMessage())));
+            return;
+        }
+        if (!chunk.isEmpty()) {
+            sink.accept(importChunk(chunk, trainerUsername, traineeIds));
+        }
+    }
+
+
+    private List<TrainingImportResult> importChunk(List<ImportRow> chunk, String trainerUsername,
+                                                   Map<String, Optional<Long>> traineeIds) {
+        TrainingImportResult[] results = new TrainingImportResult[chunk.size()];
+        List<Integer> positions = new ArrayList<>(chunk.size());
+        List<Long> trainees = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            ImportRow row = chunk.get(i);
+            try {
+                if (row.error() != null) {
+                    throw new IllegalArgumentException(row.error());
+                }
+                trainees.add(resolveTrainee(row.dto(), trainerUsername, traineeIds));
+                positions.add(i);
+            } catch (IllegalArgumentException | NoSuchElementException e) {
+                results[i] = TrainingImportResult.failed(row.row(), e.getMessage());
+            }
+        }
+        if (positions.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        List<String> names = nameTrainings(positions.stream().map(i -> chunk.get(i).dto()).toList(), trainerUsername);
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    saveChunk(positions.stream().map(i -> chunk.get(i).dto()).toList(), trainees, names,
+                            trainerUsername));
+            for (int k = 0; k < positions.size(); k++) {
+                int i = positions.get(k);
+                results[i] = TrainingImportResult.created(chunk.get(i).row(), names.get(k));
+            }
+            log.info("Training import: {} trainings created for trainer {}", positions.size(), trainerUsername);
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Training import: rows {}-{} of trainer {} not saved: {}", chunk.getFirst().row(),
+                    chunk.getLast().row(), trainerUsername, e.getMessage());
+            for (int i : positions) {
+                results[i] = TrainingImportResult.failed(chunk.get(i).row(), "Not saved, please retry the row.");
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+
+    private Long resolveTrainee(TrainingRequestDto dto, String trainerUsername, Map<String, Optional<Long>> traineeIds) {
+        if (dto.getTrainerName() == null || dto.getTrainerName().isBlank()) {
+            dto.setTrainerName(trainerUsername);                            //  column is optional in the upload
+        }
+        ValidationUtils.validateTraining(dto);
+        if (!trainerUsername.equals(dto.getTrainerName())) {
+            throw new IllegalArgumentException("Trainings can be imported only for trainer " + trainerUsername);
+        }
+        String traineeName = dto.getTraineeName();
+        return traineeIds.computeIfAbsent(traineeName, traineeRepository::findIdByUsername)
+                .orElseThrow(() -> new NoSuchElementException("Not found trainee with username: " + traineeName));
+    }
+
+
+    // One counter reservation per trainer-day of the chunk, names numbered in row order
+    private List<String> nameTrainings(List<TrainingRequestDto> dtos, String trainerUsername) {
+        Map<LocalDate, Integer> perDay = new LinkedHashMap<>();
+        dtos.forEach(dto -> perDay.merge(dto.getDate(), 1, Integer::sum));
+        Map<LocalDate, Long> nextIndex = new HashMap<>();
+        perDay.forEach((date, count) -> nextIndex.put(date, trainingNameSequence.reserve(date, trainerUsername, count)));
+        return dtos.stream()
+                .map(dto -> TrainingNameSequence.name(dto.getName(), dto.getDate(),
+                        nextIndex.merge(dto.getDate(), 1L, Long::sum) - 1))
+                .toList();
+    }
+
+
+    private void saveChunk(List<TrainingRequestDto> dtos, List<Long> traineeIds, List<String> names,
+                           String trainerUsername) {
+        Trainer trainer = trainerRepository.findByNaturalId(trainerUsername)
+                .orElseThrow(() -> new NoSuchElementException("Not found trainer with username: " + trainerUsername));
+        List<Long> chunkTraineeIds = traineeIds.stream().distinct().toList();
+        if (trainerRepository.linkTrainees(trainer.getId(), chunkTraineeIds) > 0) {    //  existing links are skipped
+            trainerRepository.evictTrainerLinks(trainer.getId(), chunkTraineeIds);
+        }
+        List<Training> trainings = new ArrayList<>(dtos.size());
+        Map<YearMonth, Integer> minutesPerMonth = new LinkedHashMap<>();
+        for (int k = 0; k < dtos.size(); k++) {
+            TrainingRequestDto dto = dtos.get(k);
+            Trainee trainee = traineeRepository.getReferenceById(traineeIds.get(k));   //  no select, id is known
+            trainings.add(Training.builder()
+                    .trainingName(names.get(k))
+                    .trainingDate(dto.getDate())
+                    .trainingDuration(dto.getDuration())
+                    .trainingType(trainer.getSpecialization())
+                    .trainer(trainer)
+                    .trainee(trainee)
+                    .build());
+            minutesPerMonth.merge(YearMonth.from(dto.getDate()), dto.getDuration(), Integer::sum);
+        }
+        trainingRepository.saveAll(trainings);
+        minutesPerMonth.forEach((month, minutes) ->
+                trainerHoursOutbox.enqueueUpdate(converter.trainerMonthToAddRequest(trainer, month, minutes)));
+    }
+
+
+    private RowReader jsonRows(InputStream body) throws IOException {
+        MappingIterator<TrainingRequestDto> rows = objectMapper.readerFor(TrainingRequestDto.class).readValues(body);
+        return new RowReader() {
+            @Override
+            public boolean hasNext() throws IOException {
+                return rows.hasNextValue();                                 //  root array or one value per line
+            }
+
+            @Override
+            public TrainingRequestDto next() throws IOException {
+                return rows.nextValue();
+            }
+
+            @Override
+            public void close() throws IOException {
+                rows.close();
+            }
+        };
+    }
+
+
+    // Source of upload rows: IllegalArgumentException fails one row, JsonProcessingException ends the upload
+    interface RowReader extends Closeable {
+        boolean hasNext() throws IOException;
+
+        TrainingRequestDto next() throws IOException;
+    }
+
+
+    private record ImportRow(int row, TrainingRequestDto dto, String error) {
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.trainingapp.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.example.trainingapp.repository.TrainingRepository;
+import org.example.trainingapp.util.RedisCounterUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+
+// Per trainer-day index of "2024-08-01#3 - Power Yoga" names: one Redis INCR hands out the next index, so concurrent
+// creates for the same trainer-day never share one. A missing counter (first training of the day, expired or lost
+// key) is first set, in the same script, to the highest index already stored for that day, then incremented.
+// Without Redis the index follows the stored ones as before, with no guard against concurrent creates.
+@Service
+@RequiredArgsConstructor
+public class TrainingNameSequence {
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final TrainingRepository trainingRepository;
+    private static final Logger log = LoggerFactory.getLogger(TrainingNameSequence.class);
+    private static final String COUNTER_PREFIX = "training-name:";
+
+    @Value("${training.name-counter.ttl-days:30}")
+    private long ttlDays = 30;
+
+
+    public String nextName(String baseName, LocalDate date, String trainerUsername) {
+        return name(baseName, date, reserve(date, trainerUsername, 1));
+    }
+
+
+    public static String name(String baseName, LocalDate date, long index) {
+        return date + "#" + index + " - " + baseName;
+    }
+
+
+    // Reserves count consecutive indexes of the trainer-day with one INCRBY and returns the first of them
+    public long reserve(LocalDate date, String trainerUsername, int count) {
+        String key = COUNTER_PREFIX + trainerUsername + ":" + date;
+        long last;
+        try {
+            last = RedisCounterUtil.incrementSeeded(redisTemplate, key, count, Duration.ofDays(ttlDays),
+                    () -> maxStoredIndex(date, trainerUsername));   //  idle trainer-days do not pile up in Redis
+        } catch (DataAccessException e) {
+            log.warn("Training name counter not available, continuing after stored names of {} on {}: {}",
+                    trainerUsername, date, e.getMessage());
+            return maxStoredIndex(date, trainerUsername) + 1L;
+        }
+        return last - count + 1;
+    }
+
+
+    private int maxStoredIndex(LocalDate date, String trainerUsername) {
+        String datePrefix = date + "#";
+        return trainingRepository.findNamesByTrainerAndDate(trainerUsername, date).stream()
+                .mapToInt(name -> {                         // Parsing index: "2024-08-01#3 - Power Yoga"
+                    try {
+                        String indexPart = name.substring(datePrefix.length(), name.indexOf(" - ")).trim();
+                        return Integer.parseInt(indexPart);
+                    } catch (Exception e) {
+                        log.warn("Failed to parse index from training name: {}", name, e);
+                        return 0;                           // invalid index - return 0
+                    }
+                })
+                .max()
+                .orElse(0);                                 // no trainings that day - counter starts from 1
+    }
+}
@@ -1,18 +1,18 @@
 package org.example.trainingapp.service.impl;
 
-import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.example.trainingapp.converter.Converter;
 import org.example.trainingapp.dto.ActionType;
+import org.example.trainingapp.dto.TrainingParties;
 import org.example.trainingapp.dto.TrainingRequestDto;
 import org.example.trainingapp.dto.TrainingUpdateRequest;
-import org.example.trainingapp.entity.Trainee;
-import org.example.trainingapp.entity.Trainer;
 import org.example.trainingapp.entity.Training;
 import org.example.trainingapp.metrics.TrainingExecutionMetrics;
+import org.example.trainingapp.metrics.TrainingExecutionMetrics.Phase;
 import org.example.trainingapp.repository.TraineeRepository;
 import org.example.trainingapp.repository.TrainerRepository;
 import org.example.trainingapp.repository.TrainingRepository;
+import org.example.trainingapp.repository.TrainingTypeRepository;
 import org.example.trainingapp.service.TrainingService;
 import org.example.trainingapp.util.ValidationUtils;
 import org.slf4j.Logger;
@@ -33,76 +33,62 @@ public class TrainingServiceImpl implements TrainingService {
     private final TrainingRepository trainingRepository;
     private final TrainerRepository trainerRepository;
     private final TraineeRepository traineeRepository;
+    private final TrainingTypeRepository trainingTypeRepository;
     private final Converter converter;
     private final TrainingExecutionMetrics trainingExecutionMetrics;
-    private final TrainerHoursPublisher trainerHoursPublisher;
+    private final TrainerHoursOutbox trainerHoursOutbox;
+    private final TrainingNameSequence trainingNameSequence;
 
 
     @Override
     @Transactional
     public String createTraining(TrainingRequestDto trainingRequestDto) {
         ValidationUtils.validateTraining(trainingRequestDto);
-        Training training;
-        try {
-            training = converter.dtoToEntity(trainingRequestDto);
-        } catch (EntityNotFoundException e) {
-            log.warn("Failed to convert TrainingRequestDto to Training: {}", e.getMessage(), e);
-            throw new NoSuchElementException(e);
-        }
-        String trainerUsername = training.getTrainer().getUsername();
-        String traineeUsername = training.getTrainee().getUsername();
-        Trainer trainer = trainerRepository.findByUsernameWithTrainees(trainerUsername)
-                .orElseThrow(() -> {
-                    log.warn("Trainer '{}' not found during creating training ", trainerUsername);
-                    return new NoSuchElementException("Not found trainer with username: " + trainerUsername);
-                });
-        Trainee trainee = traineeRepository.findByUsernameWithTrainers(traineeUsername)
-                .orElseThrow(() -> {
-                    log.warn("Trainee '{}' not found during creating training ", traineeUsername);
-                    return new NoSuchElementException("Not found trainee with username: " + traineeUsername);
-                });
-        if (!trainer.getTrainees().contains(trainee)) {
-            trainer.getTrainees().add(trainee);
-        }
-        if (!trainee.getTrainers().contains(trainer)) {
-            trainee.getTrainers().add(trainer);
-        }
-        String newTrainingName = generateUniqueTrainingName(trainingRequestDto.getName(), training.getTrainingDate(),
-                trainerUsername);
-        training.setTrainingName(newTrainingName);
+        return trainingExecutionMetrics.record(() -> create(trainingRequestDto));     //  write Prometheus metric
+    }
 
-        trainingExecutionMetrics.record(() -> {     //  write Prometheus metric
-            trainingRepository.save(training);
-        });
-        trainerRepository.save(trainer);             // updates both trainer and trainee
 
-        // notification of 2nd microservice
-        TrainingUpdateRequest update = converter.trainingAndActionToUpdateRequest(training, ActionType.ADD);
-        trainerHoursPublisher.publishUpdate(update);
+    // One query resolves both users, the link is a conditional insert and the training is inserted once;
+    // trainer, trainee and type are only referenced by id, none of them is loaded. Each step has its own timer
+    private String create(TrainingRequestDto dto) {
+        TrainingParties parties = trainingExecutionMetrics.record(Phase.RESOLVE,
+                () -> resolveParties(dto.getTrainerName(), dto.getTraineeName()));
+        trainingExecutionMetrics.record(Phase.LINK, () -> {
+            List<Long> traineeIds = List.of(parties.traineeId());
+            if (trainerRepository.linkTrainees(parties.trainerId(), traineeIds) > 0) {    //  no-op if linked
+                trainerRepository.evictTrainerLinks(parties.trainerId(), traineeIds);
+            }
+        });
+        String trainingName = trainingExecutionMetrics.record(Phase.NAME,
+                () -> trainingNameSequence.nextName(dto.getName(), dto.getDate(), parties.trainerUsername()));
+        Training training = Training.builder()
+                .trainingName(trainingName)
+                .trainingDate(dto.getDate())
+                .trainingDuration(dto.getDuration())
+                .trainer(trainerRepository.getReferenceById(parties.trainerId()))
+                .trainee(traineeRepository.getReferenceById(parties.traineeId()))
+                .trainingType(trainingTypeRepository.getReferenceById(parties.specializationId()))
+                .build();
+        trainingExecutionMetrics.record(Phase.INSERT,
+                () -> trainingRepository.saveAndFlush(training));      //  flushed, so the timer covers the INSERT
+
+        // notification of 2nd microservice - committed with the training, relayed to the broker asynchronously
+        trainingExecutionMetrics.record(Phase.ENQUEUE,
+                () -> trainerHoursOutbox.enqueueUpdate(converter.partiesToAddRequest(parties, training)));
 
         log.info("Training created: {}", training.getTrainingName());
         return "Training " + training.getTrainingName() + " with id " + training.getId() + " created successfully";
     }
 
 
-    private String generateUniqueTrainingName(String baseName, LocalDate date, String trainerUsername) {
-        String datePrefix = date + "#";
-        List<Training> existingTrainings = trainingRepository
-                .findByTrainer_UsernameAndTrainingDate(trainerUsername, date);
-        int maxIndex = existingTrainings.stream()
-                .map(Training::getTrainingName)
-                .map(name -> {                          // Parsing index: "2024-08-01#3 - Power Yoga"
-                    try {
-                        String indexPart = name.substring(datePrefix.length(), name.indexOf(" - ")).trim();
-                        return Integer.parseInt(indexPart);
-                    } catch (Exception e) {
-                        log.warn("Failed to parse index from training name: {}", name, e);
-                        return 0;                       // invalid index - return 0
-                    }
-                })
-                .max(Integer::compareTo)
-                .orElse(0);                        // if there are no records at all or all errors - start from 0
-        return date + "#" + (maxIndex + 1) + " - " + baseName;
+    private TrainingParties resolveParties(String trainerUsername, String traineeUsername) {
+        return trainerRepository.findTrainingParties(trainerUsername, traineeUsername).orElseThrow(() -> {
+            String message = trainerRepository.existsByUsername(trainerUsername)   //  which one is missing
+                    ? "Not found trainee with username: " + traineeUsername
+                    : "Not found trainer with username: " + trainerUsername;
+            log.warn("{} during creating training", message);
+            return new NoSuchElementException(message);
+        });
     }
 
 
@@ -122,7 +108,7 @@ public class TrainingServiceImpl implements TrainingService {
 
         trainingRepository.delete(training);
         TrainingUpdateRequest updateRequest = converter.trainingAndActionToUpdateRequest(training, ActionType.DELETE);
-        trainerHoursPublisher.publishUpdate(updateRequest);
+        trainerHoursOutbox.enqueueUpdate(updateRequest);
 
         log.info("Training deleted: {} by trainer {}", trainingName, training.getTrainer().getUsername());
     }
@@ -3,20 +3,30 @@ package org.example.trainingapp.service.impl;
 import lombok.RequiredArgsConstructor;
 import org.example.trainingapp.converter.Converter;
 import org.example.trainingapp.dto.ActionType;
+import org.example.trainingapp.dto.SyncMode;
 import org.example.trainingapp.dto.SyncResult;
+import org.example.trainingapp.dto.TrainerMonthHours;
+import org.example.trainingapp.dto.TrainingHoursRow;
 import org.example.trainingapp.dto.TrainingUpdateRequest;
-import org.example.trainingapp.entity.Training;
+import org.example.trainingapp.repository.OutboxEventRepository;
+import org.example.trainingapp.repository.OutboxRelayLockRepository;
 import org.example.trainingapp.repository.TrainingRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
 
 
 @Service
@@ -26,41 +36,40 @@ public class TrainingSyncService {
     private final TrainingRepository trainingRepository;
     private final TrainerHoursPublisher trainerHoursPublisher;
     private final Converter converter;
+    private final TrainerHoursSyncPipeline trainerHoursSyncPipeline;
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxRelayLockRepository outboxRelayLockRepository;
+    private final PlatformTransactionManager transactionManager;
     private final Logger log = LoggerFactory.getLogger(TrainingSyncService.class);
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_RESYNC_ATTEMPTS = 3;
+
+    @Value("${sync.page-size:500}")
+    private int pageSize = DEFAULT_PAGE_SIZE;                                   //  trainings per keyset page
 
 
-    @Transactional(readOnly = true)
     public SyncResult syncTrainerHours() {
+        return syncTrainerHours(SyncMode.SEQUENTIAL);
+    }
+
+
+    public SyncResult syncTrainerHours(SyncMode mode) {
         final String txId = Optional.ofNullable(MDC.get("txId"))        //  generating txId for initialization of 2nd service
                 .orElseGet(() -> {
                     String id = UUID.randomUUID().toString();
                     MDC.put("txId", id);
                     return id;
                 });
-        log.info("Starting on-demand trainer-hours sync, txId={}", txId);
+        log.info("Starting on-demand trainer-hours sync, mode={}, txId={}", mode, txId);
 
         try {
-            long started = System.currentTimeMillis();
-            trainerHoursPublisher.publishClearAll(txId);                        // cleaning up old records
-            log.info("Trainer-hours microservice cleared successfully. txId={}", txId);
-            List<Training> allTrainings = trainingRepository.findAll();         // loading all trainings to mongo
-            int total = allTrainings.size();                                    //  trainings to sync counter
-            AtomicInteger success = new AtomicInteger();                        //  successful updates
-
-            for (Training training : allTrainings) {
-                try {
-                    TrainingUpdateRequest update = converter.trainingAndActionToUpdateRequest(training, ActionType.ADD);
-                    trainerHoursPublisher.publishUpdate(update, txId);
-                    success.incrementAndGet();
-                } catch (Exception e) {
-                    log.warn("Failed to initialize training '{}': {}", training.getTrainingName(), e.getMessage(), e);
-                }
-            }
-            long took = System.currentTimeMillis() - started;
-            int successfulCount = success.get();
-            log.info("Trainer-hours microservice initialization complete: {}/{} trainings sent, took {} ms. txId={}",
-                    successfulCount, total, took, txId);
-            return new SyncResult(txId, total, successfulCount, took);
+            SyncResult result = resync(txId, mode);
+            log.info("Trainer-hours microservice initialization complete: {}/{} {} sent, took {} ms " +
+                            "(read {} ms, convert {} ms, publish {} ms, {} msg/s). txId={}", result.sent(), result.total(),
+                    mode == SyncMode.AGGREGATED ? "trainer-months" : "trainings",
+                    result.tookMs(), result.readMs(), result.convertMs(), result.publishMs(),
+                    String.format("%.1f", result.messagesPerSecond()), txId);
+            return result;
         } catch (Exception e) {
             log.error("Initialization failed: {}", e.getMessage(), e);
             throw e;
@@ -68,5 +77,122 @@ public class TrainingSyncService {
             MDC.remove("txId");
         }
     }
-}
 
+
+    // The outbox purge, CLEAR_ALL and the recount share one snapshot. Outbox events are written in the transaction
+    // of their training change, so the purged events are exactly the changes the recount sees, and a change
+    // committed later - whatever its training id - is invisible to both and reaches the consumer through the relay.
+    // SERIALIZABLE because REPEATABLE READ is a snapshot in PostgreSQL but not in H2; the writers stay at
+    // READ COMMITTED, so it adds no aborts there. The relay lock keeps the relay out until the snapshot is sent,
+    // so no later event overtakes CLEAR_ALL. Pages are read as DTO projections: the persistence context stays empty
+    private SyncResult resync(String txId, SyncMode mode) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.execute(status -> {
+                    clearAll(txId);
+                    return switch (mode) {
+                        case SEQUENTIAL -> sendSequentially(txId);
+                        case PIPELINED -> trainerHoursSyncPipeline.run(txId);
+                        case AGGREGATED -> sendMonthSnapshots(txId);
+                    };
+                });
+            } catch (ConcurrencyFailureException e) {               //  relay deleted purged rows first; CLEAR_ALL
+                if (attempt == MAX_RESYNC_ATTEMPTS) {                //  makes a repeated resync harmless
+                    throw e;
+                }
+                log.warn("Trainer-hours resync conflicted with the outbox relay, retrying: {}. txId={}",
+                        e.getMessage(), txId);
+            }
+        }
+    }
+
+
+    // Resync barrier: waits for a relay batch in flight (it reaches the consumer before CLEAR_ALL), then drops
+    // the outbox events the recount covers. A failed send rolls the purge back
+    private void clearAll(String txId) {
+        outboxRelayLockRepository.lockForResync();
+        int discarded = outboxEventRepository.deletePending();
+        trainerHoursPublisher.publishClearAll(txId);
+        if (discarded > 0) {
+            log.info("Discarded {} outbox events covered by the resync. txId={}", discarded, txId);
+        }
+        log.info("Trainer-hours microservice cleared successfully. txId={}", txId);
+    }
+
+
+    private SyncResult sendSequentially(String txId) {
+        long started = System.currentTimeMillis();
+        int total = 0;                                                      //  trainings to sync counter
+        int sent = 0;                                                       //  successful updates
+        long readNanos = 0;
+        long convertNanos = 0;
+        long publishNanos = 0;
+        long lastId = 0L;
+        List<TrainingHoursRow> page;
+
+        do {                                                                // walking trainings by id pages
+            long pageStarted = System.nanoTime();
+            page = trainingRepository.findHoursPageAfterId(lastId, Limit.of(pageSize));
+            long converting = System.nanoTime();
+            readNanos += converting - pageStarted;
+            List<TrainingUpdateRequest> updates = new ArrayList<>(page.size());
+            for (TrainingHoursRow row : page) {
+                try {
+                    updates.add(converter.rowAndActionToUpdateRequest(row, ActionType.ADD));
+                } catch (Exception e) {
+                    log.warn("Failed to initialize training with id {}: {}", row.id(), e.getMessage(), e);
+                }
+            }
+            long publishing = System.nanoTime();
+            convertNanos += publishing - converting;
+            if (!updates.isEmpty()) {
+                try {
+                    trainerHoursPublisher.publishUpdates(updates, txId);    // one JMS session per page
+                    sent += updates.size();
+                } catch (Exception e) {
+                    log.warn("Failed to initialize page of {} trainings after id {}: {}", updates.size(), lastId,
+                            e.getMessage(), e);
+                } finally {
+                    publishNanos += System.nanoTime() - publishing;
+                }
+            }
+            total += page.size();
+            if (!page.isEmpty()) {
+                lastId = page.getLast().id();
+            }
+        } while (page.size() == pageSize);
+
+        long took = System.currentTimeMillis() - started;
+        return new SyncResult(txId, total, sent, took, TimeUnit.NANOSECONDS.toMillis(readNanos),
+                TimeUnit.NANOSECONDS.toMillis(convertNanos), TimeUnit.NANOSECONDS.toMillis(publishNanos),
+                SyncResult.perSecond(sent, took));
+    }
+
+
+    // One MONTH_SNAPSHOT per trainer-month: the DB sums the durations, so messages scale with
+    // trainers x active months instead of with the number of trainings
+    private SyncResult sendMonthSnapshots(String txId) {
+        long started = System.currentTimeMillis();
+        long readStarted = System.nanoTime();
+        List<TrainerMonthHours> months = trainingRepository.sumDurationsByTrainerAndMonth();
+        long readNanos = System.nanoTime() - readStarted;
+        int sent = 0;
+        long publishStarted = System.nanoTime();
+        for (int from = 0; from < months.size(); from += pageSize) {          //  batches of pageSize per JMS session
+            List<TrainerMonthHours> batch = months.subList(from, Math.min(from + pageSize, months.size()));
+            try {
+                trainerHoursPublisher.publishMonthSnapshots(batch, txId);
+                sent += batch.size();
+            } catch (Exception e) {
+                log.warn("Failed to send {} trainer-month totals starting from trainer {}: {}", batch.size(),
+                        batch.getFirst().trainerUsername(), e.getMessage(), e);
+            }
+        }
+        long publishNanos = System.nanoTime() - publishStarted;
+        long took = System.currentTimeMillis() - started;
+        return new SyncResult(txId, months.size(), sent, took, TimeUnit.NANOSECONDS.toMillis(readNanos), 0,
+                TimeUnit.NANOSECONDS.toMillis(publishNanos), SyncResult.perSecond(sent, took));
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.trainingapp.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.example.trainingapp.entity.TrainingType;
+import org.example.trainingapp.entity.TrainingTypeEnum;
+import org.example.trainingapp.repository.TrainingTypeRepository;
+import org.example.trainingapp.service.TrainingTypeRegistry;
+import org.example.trainingapp.util.ValidationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+
+// Training types are a handful of rows mirroring TrainingTypeEnum. They are read once into an immutable EnumMap,
+// so lookups by name, the type list and the health check never query the DB. refresh() swaps in a new snapshot;
+// a supported name missing from the snapshot (row inserted after the last load) triggers one as well, but at most
+// once per training.types.miss-refresh-interval: until then lookups of a type absent from the DB stay empty.
+// An empty snapshot (startup load failed) is reloaded the same way by the type list and the health check.
+// The cached entities are shared between requests and are only used as references - do not modify them.
+@Service
+@RequiredArgsConstructor
+public class TrainingTypeRegistryImpl implements TrainingTypeRegistry {
+
+    private final TrainingTypeRepository trainingTypeRepository;
+    private static final Logger log = LoggerFactory.getLogger(TrainingTypeRegistryImpl.class);
+
+    @Value("${training.types.miss-refresh-interval:PT30S}")
+    private Duration missRefreshInterval = Duration.ofSeconds(30);
+
+    private volatile Map<TrainingTypeEnum, TrainingType> types =
+            Collections.unmodifiableMap(new EnumMap<>(TrainingTypeEnum.class));
+    private volatile long nextMissRefresh = System.nanoTime();            //  first miss refreshes at once
+
+
+    @PostConstruct
+    public void load() {
+        try {
+            refresh();
+        } catch (DataAccessException e) {                       //  first lookup retries, startup goes on
+            log.warn("Training types not loaded at startup: {}", e.getMessage());
+        }
+    }
+
+
+    @Override
+    public synchronized void refresh() {
+        Map<TrainingTypeEnum, TrainingType> loaded = new EnumMap<>(TrainingTypeEnum.class);
+        for (TrainingType type : trainingTypeRepository.findAll()) {
+            if (ValidationUtils.isValidTrainingTypeEnum(type.getName())) {
+                loaded.put(type.getTypeEnum(), type);
+            } else {
+                log.warn("Training type '{}' has no TrainingTypeEnum constant, skipped", type.getName());
+            }
+        }
+        types = Collections.unmodifiableMap(loaded);
+        log.info("Training types loaded: {}", loaded.keySet());
+    }
+
+
+    // Case-insensitive like ValidationUtils.isValidTrainingTypeEnum; empty for unsupported or missing types
+    @Override
+    public Optional<TrainingType> find(String name) {
+        if (!ValidationUtils.isValidTrainingTypeEnum(name)) {
+            return Optional.empty();
+        }
+        TrainingTypeEnum key = TrainingTypeEnum.valueOf(name.toUpperCase(Locale.ROOT));
+        TrainingType type = types.get(key);
+        if (type == null && System.nanoTime() - nextMissRefresh >= 0) {
+            refreshAfterMiss(loaded -> loaded.containsKey(key));
+            type = types.get(key);
+        }
+        return Optional.ofNullable(type);
+    }
+
+
+    // In TrainingTypeEnum order
+    @Override
+    public List<TrainingType> getAll() {
+        refreshIfEmpty();
+        return List.copyOf(types.values());
+    }
+
+
+    @Override
+    public int size() {
+        refreshIfEmpty();
+        return types.size();
+    }
+
+
+    // Startup load failed or found no rows: retried like a miss. While the DB is down the list stays empty
+    // (the health check reports it) instead of failing
+    private void refreshIfEmpty() {
+        if (types.isEmpty() && System.nanoTime() - nextMissRefresh >= 0) {
+            try {
+                refreshAfterMiss(loaded -> !loaded.isEmpty());
+            } catch (DataAccessException e) {
+                log.warn("Training types still not loaded: {}", e.getMessage());
+            }
+        }
+    }
+
+
+    // Threads that missed together wait here and reuse the snapshot the first one loaded
+    private synchronized void refreshAfterMiss(Predicate<Map<TrainingTypeEnum, TrainingType>> found) {
+        long now = System.nanoTime();
+        if (found.test(types) || now - nextMissRefresh < 0) {
+            return;
+        }
+        nextMissRefresh = now + missRefreshInterval.toNanos();  //  also when the DB is down
+        refresh();
+    }
+}
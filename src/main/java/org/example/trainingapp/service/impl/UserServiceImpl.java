@@ -23,12 +23,15 @@ import org.example.trainingapp.util.CredentialsUtil;
 import org.example.trainingapp.util.ValidationUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.NoSuchElementException;
-import java.util.Set;
+import java.util.function.Consumer;
 
 
 @Service
@@ -45,10 +48,12 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final Converter converter;
     private final PasswordEncoder passwordEncoder;
+    private final UsernameAllocator usernameAllocator;
+    private final PlatformTransactionManager transactionManager;
+    private static final int MAX_USERNAME_ATTEMPTS = 5;
 
 
     @Override
-    @Transactional
     public CredentialsDto createTrainer(TrainerRegisterDto trainerRegisterDto) {
         ValidationUtils.validateTrainer(trainerRegisterDto);
         Trainer trainer;
@@ -58,16 +63,10 @@ public class UserServiceImpl implements UserService {
             log.warn("Failed to convert TrainerRegisterDto to Trainer: {}", e.getMessage(), e);
             throw new RuntimeException(e);
         }
-        Set<String> existingUsernames = userRepository.findUsernamesByFirstNameAndLastName(trainer.getFirstName(),
-                trainer.getLastName());
-        String generatedUsername = CredentialsUtil.generateUsername(trainer.getFirstName(), trainer.getLastName(),
-                existingUsernames);
         String password = CredentialsUtil.generatePassword(10);
-        trainer.setUsername(generatedUsername);
-        trainer.setPassword(password);
         trainer.setPassword(passwordEncoder.encode(password));
         trainer.setActive(true);
-        trainerRepository.save(trainer);
+        saveWithFreeUsername(trainer, trainerRepository::saveAndFlush);
         log.info("Trainer created: {}", trainer.getUsername());
         registrationMetrics.incrementTrainer();         //  add to Prometheus metric
         return CredentialsDto.builder()
@@ -78,19 +77,13 @@ public class UserServiceImpl implements UserService {
 
 
     @Override
-    @Transactional
     public CredentialsDto createTrainee(TraineeRegisterDto traineeRegisterDto) {
         ValidationUtils.validateTrainee(traineeRegisterDto);
         Trainee trainee = converter.dtoToEntity(traineeRegisterDto);
-        Set<String> existingUsernames = userRepository.findUsernamesByFirstNameAndLastName(trainee.getFirstName(),
-                trainee.getLastName());
-        String generatedUsername = CredentialsUtil.generateUsername(trainee.getFirstName(), trainee.getLastName(),
-                existingUsernames);
         String password = CredentialsUtil.generatePassword(10);
-        trainee.setUsername(generatedUsername);
         trainee.setPassword(passwordEncoder.encode(password));
         trainee.setActive(true);
-        traineeRepository.save(trainee);
+        saveWithFreeUsername(trainee, traineeRepository::saveAndFlush);
         log.info("Trainee created: {}", trainee.getUsername());
         registrationMetrics.incrementTrainee();         //  add to Prometheus metric
         return CredentialsDto.builder()
@@ -118,4 +111,27 @@ public class UserServiceImpl implements UserService {
         }
         log.info("Password changed for user: {}", changePasswordDto.getUsername());
     }
+
+
+    // The allocator only checks that a username is free, so a concurrent registration can still insert it first:
+    // ux_users_username rejects the row and the user is saved again, in a new transaction, under the next suffix
+    private <U extends User> void saveWithFreeUsername(U user, Consumer<U> save) {
+        for (int attempt = 1; ; attempt++) {
+            user.setId(null);                                   //  id from the rolled back insert is not reused
+            user.setUsername(usernameAllocator.allocate(user.getFirstName(), user.getLastName()));
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> save.accept(user));
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (!userRepository.existsByUsername(user.getUsername())) {
+                    throw e;                                    //  not a username clash
+                }
+                if (attempt == MAX_USERNAME_ATTEMPTS) {
+                    throw new IllegalStateException("Unable to register unique username for "
+                            + user.getFirstName() + "." + user.getLastName(), e);
+                }
+                log.warn("Username {} was taken by a concurrent registration, trying next", user.getUsername());
+            }
+        }
+    }
 }
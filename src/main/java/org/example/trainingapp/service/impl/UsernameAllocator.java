@@ -0,0 +1,116 @@
+package org.example.trainingapp.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.example.trainingapp.repository.UserRepository;
+import org.example.trainingapp.util.CredentialsUtil;
+import org.example.trainingapp.util.RedisCounterUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+
+// Usernames are "First.Last", then "First.Last1", "First.Last2"... for namesakes. One Redis INCR per base name hands
+// out the next suffix, so registration cost does not depend on the number of namesakes and concurrent registrations
+// of one name never get the same username. A missing counter is first set, in the same script, past the namesakes
+// in the DB; without Redis the namesakes are scanned as before. A username taken anyway (another base ending in
+// digits, registrations during a Redis outage) is skipped.
+@Service
+@RequiredArgsConstructor
+public class UsernameAllocator {
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final UserRepository userRepository;
+    private static final Logger log = LoggerFactory.getLogger(UsernameAllocator.class);
+    private static final String COUNTER_PREFIX = "username-suffix:";
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Value("${registration.username-counter.ttl-days:30}")
+    private long ttlDays = 30;
+
+
+    public String allocate(String firstName, String lastName) {
+        String base = firstName + "." + lastName;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            String candidate = nextCandidates(base, firstName, lastName, 1).getFirst();
+            if (!userRepository.existsByUsername(candidate)) {  //  unique username index, no namesakes read
+                return candidate;
+            }
+            log.warn("Allocated username {} is already taken, trying next", candidate);
+        }
+        throw new IllegalStateException("Unable to generate unique username for " + base);
+    }
+
+
+    // Bulk registration: one INCRBY reserves the whole range for a name, one IN query checks it
+    public List<String> allocate(String firstName, String lastName, int count) {
+        List<String> candidates = nextCandidates(firstName + "." + lastName, firstName, lastName, count);
+        Set<String> taken = userRepository.findExistingUsernames(candidates);
+        if (taken.isEmpty()) {
+            return candidates;
+        }
+        log.warn("Allocated usernames {} are already taken, allocating others", taken);
+        return candidates.stream()
+                .map(candidate -> taken.contains(candidate) ? allocate(firstName, lastName) : candidate)
+                .toList();
+    }
+
+
+    private List<String> nextCandidates(String base, String firstName, String lastName, int count) {
+        long last;
+        try {
+            last = reserve(base, firstName, lastName, count);
+        } catch (DataAccessException e) {
+            log.warn("Username counter not available, scanning namesakes of {}: {}", base, e.getMessage());
+            Set<String> existing = new HashSet<>(userRepository.findUsernamesByFirstNameAndLastName(firstName,
+                    lastName));
+            List<String> usernames = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String username = CredentialsUtil.generateUsername(firstName, lastName, existing);
+                existing.add(username);
+                usernames.add(username);
+            }
+            return usernames;
+        }
+        List<String> usernames = new ArrayList<>(count);
+        for (long n = last - count + 1; n <= last; n++) {
+            usernames.add(n == 1 ? base : base + (n - 1));      //  n-th user of a name gets suffix n-1
+        }
+        return usernames;
+    }
+
+
+    // Returns the last of the count reserved positions
+    private long reserve(String base, String firstName, String lastName, int count) {
+        LongSupplier usedPositions = () ->                      //  n-th namesake has suffix n-1
+                maxStoredSuffix(base, userRepository.findUsernamesByFirstNameAndLastName(firstName, lastName)) + 1;
+        return RedisCounterUtil.incrementSeeded(redisTemplate, COUNTER_PREFIX + base, count, Duration.ofDays(ttlDays),
+                usedPositions);                                 //  names not registered for a while leave Redis
+    }
+
+
+    // -1 when there are no namesakes, 0 for the bare base name
+    private static long maxStoredSuffix(String base, Set<String> usernames) {
+        long max = -1;
+        for (String username : usernames) {
+            if (username.equals(base)) {
+                max = Math.max(max, 0);
+            } else if (username.startsWith(base)) {
+                String suffix = username.substring(base.length());
+                if (suffix.chars().allMatch(Character::isDigit) && suffix.length() < 19) {
+                    max = Math.max(max, Long.parseLong(suffix));
+                }
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.trainingapp.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+
+public class NdjsonUtil {
+
+    private NdjsonUtil() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+
+    // Each block of results is written as one JSON line per result and flushed at once, so the client of a bulk
+    // endpoint sees results while its upload is still being processed
+    public static <T> Consumer<List<T>> lines(HttpServletResponse response, ObjectMapper objectMapper) {
+        return results -> {
+            try {
+                OutputStream out = response.getOutputStream();
+                for (T result : results) {
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                }
+                response.flushBuffer();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+}
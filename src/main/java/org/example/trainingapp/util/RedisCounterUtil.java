@@ -0,0 +1,50 @@
+package org.example.trainingapp.util;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+
+// Counter kept in Redis but seeded from the DB. Seed-if-absent, INCRBY and the expiry run in one Lua script, so
+// callers never see a half-created counter and a key expiring between the steps cannot come back without a TTL.
+// The DB seed is read only after the script reported a missing key, then the script runs once more with it.
+public class RedisCounterUtil {
+
+    private static final long NO_SEED = -1;
+    private static final RedisScript<Long> INCREMENT_SEEDED = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                if tonumber(ARGV[2]) < 0 then
+                    return -1
+                end
+                redis.call('SET', KEYS[1], ARGV[2])
+            end
+            local last = redis.call('INCRBY', KEYS[1], ARGV[1])
+            redis.call('EXPIRE', KEYS[1], ARGV[3])
+            return last
+            """, Long.class);
+
+
+    public static long incrementSeeded(RedisTemplate<String, String> redisTemplate, String key, long count,
+                                       Duration ttl, LongSupplier seed) {
+        long last = increment(redisTemplate, key, count, NO_SEED, ttl);
+        if (last < 0) {                                         //  missing or expired key: one DB read
+            last = increment(redisTemplate, key, count, Math.max(seed.getAsLong(), 0), ttl);
+        }
+        return last;
+    }
+
+
+    private static long increment(RedisTemplate<String, String> redisTemplate, String key, long count, long seed,
+                                  Duration ttl) {
+        Long last = redisTemplate.execute(INCREMENT_SEEDED, List.of(key), String.valueOf(count), String.valueOf(seed),
+                String.valueOf(ttl.toSeconds()));
+        if (last == null) {                                     //  only inside a Redis pipeline or transaction
+            throw new IllegalStateException("Redis counter not available: " + key);
+        }
+        return last;
+    }
+}
@@ -15,6 +15,9 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Locale;
 
+import static org.example.trainingapp.constant.Constant.DEFAULT_PAGE_SIZE;
+import static org.example.trainingapp.constant.Constant.MAX_PAGE_SIZE;
+
 
 public class ValidationUtils {
 
@@ -168,6 +171,25 @@ public class ValidationUtils {
     }
 
 
+    public static void validatePageSize(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            log.error("Validation failed: Page size {} is out of range", size);
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+    }
+
+
+    // Training histories: neither size nor cursor means the whole history in one response (null), as before
+    // paging was added; a cursor without size continues with the default page size
+    public static Integer validateOptionalPageSize(Integer size, boolean hasCursor) {
+        if (size == null) {
+            return hasCursor ? DEFAULT_PAGE_SIZE : null;
+        }
+        validatePageSize(size);
+        return size;
+    }
+
+
     public static void validateUpdateTrainerList(UpdateTrainerListDto dto) {
         if (dto.getUsername() == null || dto.getUsername().isBlank()) {
             log.error("Validation failed: Username is missing for updating trainers list");
@@ -0,0 +1,6 @@
+-- Like users_id_seq in V9: Hibernate takes ids in blocks of 50 (allocationSize on the entities, pooled-lo
+-- optimizer), so trainings, training types and outbox events are inserted in JDBC batches. Column defaults keep
+-- working for plain SQL inserts.
+ALTER SEQUENCE trainings_id_seq INCREMENT BY 50;
+ALTER SEQUENCE training_types_id_seq INCREMENT BY 50;
+ALTER SEQUENCE trainer_hours_outbox_id_seq INCREMENT BY 50;
@@ -0,0 +1,6 @@
+-- One row locked by every outbox relay batch (shared) and by a trainer-hours resync (exclusive), see OutboxRelayLock
+CREATE TABLE trainer_hours_outbox_lock (
+    id BIGINT PRIMARY KEY
+);
+
+INSERT INTO trainer_hours_outbox_lock (id) VALUES (1);
@@ -0,0 +1,6 @@
+CREATE TABLE trainer_hours_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    tx_id VARCHAR(64) NOT NULL,
+    payload VARCHAR(4000) NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
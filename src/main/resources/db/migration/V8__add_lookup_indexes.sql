@@ -0,0 +1,17 @@
+-- Built CONCURRENTLY so writes to users/trainings are not blocked; the script runs outside a transaction
+-- (V8__add_lookup_indexes.sql.conf). IF NOT EXISTS lets a failed run be repeated after dropping an INVALID index.
+
+-- login, ownership checks, username lookups; also enforces the uniqueness declared on the entity
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS ux_users_username ON users (username);
+
+-- candidate usernames for a first/last name pair
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_users_first_name_last_name ON users (first_name, last_name);
+
+-- findByTrainingName / existsByTrainingName / deleteByTrainingName (names repeat across trainers, not unique)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_trainings_training_name ON trainings (training_name);
+
+-- trainer's trainings of a day (training name index) and trainer history pages ordered by (training_date, id)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_trainings_trainer_date ON trainings (trainer_id, training_date, id);
+
+-- trainee history pages ordered by (training_date, id)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_trainings_trainee_date ON trainings (trainee_id, training_date, id);
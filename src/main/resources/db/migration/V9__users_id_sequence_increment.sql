@@ -0,0 +1,4 @@
+-- User ids are taken from users_id_seq by Hibernate in blocks of 50 (allocationSize on the entity), so inserts of
+-- many users can go out as JDBC batches instead of one IDENTITY round-trip per row. The column default keeps
+-- working for plain SQL inserts; it just skips ahead by 50.
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
@@ -10,11 +10,13 @@ import org.example.trainingapp.entity.TrainingType;
 import org.example.trainingapp.repository.TraineeRepository;
 import org.example.trainingapp.repository.TrainerRepository;
 import org.example.trainingapp.repository.TrainingTypeRepository;
+import org.example.trainingapp.service.impl.CustomUserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
 
 import static org.example.trainingapp.constant.Constant.DEFAULT_PW;
 
@@ -27,6 +29,7 @@ public class CommonGivenSteps {
     private final TraineeRepository traineeRepository;
     private final TrainerRepository trainerRepository;
     private final TrainingTypeRepository trainingTypeRepository;
+    private final CustomUserDetailsService userDetailsService;            //  steps write users directly
 
 
     @Before
@@ -46,6 +49,7 @@ public class CommonGivenSteps {
     // Given a user "trainee1" with password "old" exists
     @Given("a user {string} with password {string} exists")
     public void userWithPasswordExists(String username, String rawPassword) {
+        userDetailsService.evict(username);
         traineeRepository.findByUsername(username).ifPresentOrElse(t -> {
             t.setPassword(passwordEncoder.encode(rawPassword));
             traineeRepository.save(t);
@@ -94,6 +98,7 @@ public class CommonGivenSteps {
             traineeRepository.delete(t);
             traineeRepository.flush();
         });
+        userDetailsService.evict(username);
     }
 
     // And trainer "NotExist" is removed from DB
@@ -104,6 +109,7 @@ public class CommonGivenSteps {
             trainerRepository.delete(t);
             trainerRepository.flush();
         });
+        userDetailsService.evict(username);
     }
 
     // trainer.feature and training.feature
@@ -129,7 +135,7 @@ public class CommonGivenSteps {
                         .active(true)
                         .specialization(spec)
                         .trainings(new ArrayList<>())
-                        .trainees(new ArrayList<>())
+                        .trainees(new HashSet<>())
                         .build();
                 trainerRepository.save(trainer);
             }
@@ -143,7 +149,7 @@ public class CommonGivenSteps {
                         .dateOfBirth(LocalDate.of(1990, 1, 1)) // заглушка
                         .address("Unknown")
                         .trainings(new ArrayList<>())
-                        .trainers(new ArrayList<>())
+                        .trainers(new HashSet<>())
                         .build();
                 traineeRepository.save(trainee);
                 context.setLastTrainee(trainee);
@@ -185,7 +191,7 @@ public class CommonGivenSteps {
                     .active(true)
                     .specialization(spec)
                     .trainings(new ArrayList<>())
-                    .trainees(new ArrayList<>())
+                    .trainees(new HashSet<>())
                     .build();
             context.rememberRawPassword(username, org.example.trainingapp.constant.Constant.DEFAULT_PW);
             return trainerRepository.saveAndFlush(tr);
@@ -209,7 +215,7 @@ public class CommonGivenSteps {
                     .dateOfBirth(LocalDate.of(1990, 1, 1))
                     .address("Almaty")
                     .trainings(new ArrayList<>())
-                    .trainers(new ArrayList<>())
+                    .trainers(new HashSet<>())
                     .build();
             context.rememberRawPassword(username, org.example.trainingapp.constant.Constant.DEFAULT_PW);
             return traineeRepository.saveAndFlush(t);
@@ -2,10 +2,12 @@ package org.example.trainingapp.bdd.steps;
 
 import io.cucumber.java.en.Then;
 import lombok.RequiredArgsConstructor;
+import org.example.trainingapp.service.impl.TrainerHoursOutboxRelay;
 import org.example.trainingapp.service.impl.TrainerHoursPublisher;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 
 
@@ -13,10 +15,12 @@ import static org.mockito.Mockito.verify;
 public class JmsThenSteps {
 
     private final TrainerHoursPublisher trainerHoursPublisher;
+    private final TrainerHoursOutboxRelay trainerHoursOutboxRelay;
 
     // And a JMS event should be published
     @Then("a JMS event should be published")
     public void jmsEventPublished() {
-        verify(trainerHoursPublisher, atLeastOnce()).publishUpdate(any());
+        trainerHoursOutboxRelay.relay();            // events go through the outbox, scheduled relay may be faster
+        verify(trainerHoursPublisher, timeout(2000).atLeastOnce()).publishEvents(any());
     }
 }
@@ -22,6 +22,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -120,7 +121,7 @@ public class TraineeControllerSteps {
                     .firstName(names[0]).lastName(names[1])
                     .active(true)
                     .specialization(type)
-                    .trainings(new ArrayList<>()).trainees(new ArrayList<>())
+                    .trainings(new ArrayList<>()).trainees(new HashSet<>())
                     .build());
         });
         var training = Training.builder()
@@ -179,7 +180,7 @@ public class TraineeControllerSteps {
                     .active(true)
                     .dateOfBirth(LocalDate.of(1990,1,1))
                     .address("Almaty")
-                    .trainings(new ArrayList<>()).trainers(new ArrayList<>())
+                    .trainings(new ArrayList<>()).trainers(new HashSet<>())
                     .build());
         });
         var trainer1 = ensureTrainer("Elena.Sokolova");
@@ -294,7 +295,7 @@ public class TraineeControllerSteps {
                     .firstName(names[0]).lastName(names[1])
                     .active(true)
                     .specialization(type)
-                    .trainings(new ArrayList<>()).trainees(new ArrayList<>())
+                    .trainings(new ArrayList<>()).trainees(new HashSet<>())
                     .build());
         });
     }
@@ -22,6 +22,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -187,7 +188,7 @@ public class TrainerControllerSteps {
                     .lastName(n[1])
                     .active(true)
                     .dateOfBirth(LocalDate.of(1990, 1, 1))
-                    .trainers(new ArrayList<>())
+                    .trainers(new HashSet<>())
                     .trainings(new ArrayList<>())
                     .build());
         });
@@ -313,7 +314,7 @@ public class TrainerControllerSteps {
                     .active(true)
                     .specialization(type)
                     .trainings(new ArrayList<>())
-                    .trainees(new ArrayList<>())
+                    .trainees(new HashSet<>())
                     .build());
         });
     }
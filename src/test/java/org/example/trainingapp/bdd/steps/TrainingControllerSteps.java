@@ -19,6 +19,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
 
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.anonymous;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -242,7 +243,7 @@ public class TrainingControllerSteps {
                     .active(true)
                     .specialization(type)
                     .trainings(new ArrayList<>())
-                    .trainees(new ArrayList<>())
+                    .trainees(new HashSet<>())
                     .build());
         });
     }
@@ -258,7 +259,7 @@ public class TrainingControllerSteps {
                     .active(true)
                     .dateOfBirth(LocalDate.of(1990, 1, 1))
                     .trainings(new ArrayList<>())
-                    .trainers(new ArrayList<>())
+                    .trainers(new HashSet<>())
                     .build());
         });
     }
@@ -6,6 +6,7 @@ import lombok.RequiredArgsConstructor;
 import org.example.trainingapp.bdd.TestContext;
 import org.example.trainingapp.entity.TrainingType;
 import org.example.trainingapp.repository.TrainingTypeRepository;
+import org.example.trainingapp.service.TrainingTypeRegistry;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,6 +21,7 @@ public class TrainingTypeControllerSteps {
     private final TestContext context;
     private final MockMvc mockMvc;
     private final TrainingTypeRepository trainingTypeRepository;
+    private final TrainingTypeRegistry trainingTypeRegistry;
 
 
     // Given the application test context and authentication are prepared - defined in CommonHttpSteps
@@ -30,6 +32,7 @@ public class TrainingTypeControllerSteps {
     public void trainingTypesExist(String t1, String t2) {
         ensureType(t1);
         ensureType(t2);
+        trainingTypeRegistry.refresh();                     //  types inserted after the registry was loaded
     }
 
     // And I am authenticated as "Elena.Sokolova" with role "TRAINER" - defined in CommonHttpSteps
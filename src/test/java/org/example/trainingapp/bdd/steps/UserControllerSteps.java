@@ -161,6 +161,38 @@ public class UserControllerSteps {
     // And the response body should contain "Dina.Aliyeva" - defined in CommonHttpSteps
 
     
+    // When I register trainees in bulk with first names "Olga,Olga," and last name "Bulkina"
+    @When("I register trainees in bulk with first names {string} and last name {string}")
+    public void registerTraineesInBulk(String firstNames, String last) {
+        try {
+            StringBuilder ndjson = new StringBuilder();
+            for (String first : firstNames.split(",", -1)) {                // empty name - invalid row
+                ensureUsernameBaseFree(first + "." + last);
+                ndjson.append(objectMapper.writeValueAsString(TraineeRegisterDto.builder()
+                        .firstName(first)
+                        .lastName(last)
+                        .build())).append('\n');
+            }
+            var builder = post("/api/users/register-trainees")
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .content(ndjson.toString());
+            String token = context.getAuthJwt();                            //  bulk upload needs a trainer
+            if (token != null && !token.isBlank()) {
+                builder.header(HttpHeaders.AUTHORIZATION, BEARER + token);
+            }
+            var mvcRes = mockMvc.perform(builder).andReturn();
+            context.setLastStatus(mvcRes.getResponse().getStatus());
+            context.setLastBody(mvcRes.getResponse().getContentAsString());
+            context.setLastError(null);
+        } catch (Exception e) {
+            context.setLastError(e);
+        }
+    }
+
+    // Then response status should be 200 - defined in CommonHttpSteps
+    // And the response body should contain "Olga.Bulkina1" - defined in CommonHttpSteps
+
+    
     // Given a user "trainee1" with password "old" exists - defined in CommonGivenSteps
     // And I am authenticated as "trainee1" with role "TRAINEE" - defined in CommonHttpSteps
 
@@ -6,6 +6,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.example.trainingapp.jwt.JwtTokenUtil;
 import org.example.trainingapp.jwt.TokenBlacklistUtil;
+import org.example.trainingapp.jwt.VerifiedTokenCache;
 import org.example.trainingapp.service.impl.CustomUserDetailsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,6 +19,7 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.util.Date;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -28,6 +30,7 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 
@@ -43,6 +46,9 @@ class AuthTokenFilterTest {
     @Mock
     private TokenBlacklistUtil tokenBlacklistUtil;
 
+    @Mock
+    private VerifiedTokenCache verifiedTokenCache;
+
     @Mock
     private HttpServletRequest request;
 
@@ -72,8 +78,10 @@ class AuthTokenFilterTest {
         doReturn("Bearer " + token).when(request).getHeader("Authorization");
         doReturn(false).when(tokenBlacklistUtil).isTokenBlacklisted(token);
         DecodedJWT mockJwt = mock(DecodedJWT.class);
+        Date expiresAt = new Date(System.currentTimeMillis() + 60_000);
         doReturn(mockJwt).when(jwtTokenUtil).validateAndParseToken(token);
-        doReturn(username).when(jwtTokenUtil).getUsernameFromToken(token);
+        doReturn(username).when(mockJwt).getSubject();
+        doReturn(expiresAt).when(mockJwt).getExpiresAt();
         doReturn(userDetails).when(userDetailsService).loadUserByUsername(username);
         doReturn(List.of(new SimpleGrantedAuthority("ROLE_TRAINER"))).when(userDetails).getAuthorities();
         // when
@@ -83,6 +91,23 @@ class AuthTokenFilterTest {
         assertNotNull(auth);
         assertEquals(userDetails, auth.getPrincipal());
         assertTrue(auth.getAuthorities().stream().anyMatch(a -> "ROLE_TRAINER".equals(a.getAuthority())));
+        verify(verifiedTokenCache).put(token, userDetails, expiresAt.toInstant());
+        verify(filterChain).doFilter(request, response);
+    }
+
+
+    @Test
+    void whenDoFilterInternal_tokenAlreadyVerified_shouldAuthenticateFromCache() throws Exception {
+        // given
+        String token = "valid.jwt.token";
+        doReturn("Bearer " + token).when(request).getHeader("Authorization");
+        doReturn(userDetails).when(verifiedTokenCache).get(token);
+        doReturn(List.of(new SimpleGrantedAuthority("ROLE_TRAINER"))).when(userDetails).getAuthorities();
+        // when
+        authTokenFilter.doFilterInternal(request, response, filterChain);
+        // then
+        assertEquals(userDetails, SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+        verifyNoInteractions(tokenBlacklistUtil, jwtTokenUtil, userDetailsService);
         verify(filterChain).doFilter(request, response);
     }
 
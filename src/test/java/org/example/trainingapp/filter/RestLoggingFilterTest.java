@@ -59,6 +59,46 @@ class RestLoggingFilterTest {
     }
 
 
+    @Test
+    void whenDoFilterInternal_bulkRegistrationUnderContextPath_shouldHideAndStreamBodies() throws Exception {
+        // given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/trainingapp/api/users/register-trainees");
+        request.setContextPath("/trainingapp");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> {
+            assertThat(req).isSameAs(request);                              // not wrapped for caching
+            res.getWriter().write("{\"username\":\"Ivan.Petrov\",\"password\":\"secret\"}");
+        };
+        // when
+        filter.doFilterInternal(request, response, chain);
+        // then
+        assertThat(logCaptor.getInfoLogs())
+                .anyMatch(m -> m.contains("RES:<hidden>"))
+                .noneMatch(m -> m.contains("secret"));
+        assertThat(response.getContentAsString()).contains("Ivan.Petrov");
+    }
+
+
+    @Test
+    void whenDoFilterInternal_trainingImport_shouldNotCacheUpload() throws Exception {
+        // given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/trainings/import");
+        request.setContent("name,date,duration,traineeName".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> {
+            assertThat(req).isSameAs(request);                              // not wrapped for caching
+            res.getWriter().write("{\"row\":1}");
+        };
+        // when
+        filter.doFilterInternal(request, response, chain);
+        // then
+        assertThat(logCaptor.getInfoLogs())
+                .anyMatch(m -> m.contains("REQ:<streamed>"))
+                .noneMatch(m -> m.contains("traineeName"));
+        assertEquals("{\"row\":1}", response.getContentAsString());
+    }
+
+
     @Test
     void whenDoFilterInternal_errorStatus_shouldLogWarn() throws Exception {
         // given
@@ -1,5 +1,6 @@
 package org.example.trainingapp.jwt;
 
+import com.auth0.jwt.JWT;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,10 +11,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -91,6 +95,69 @@ class JwtTokenUtilTest {
     }
 
 
+    @Test
+    void whenKeysRotated_oldAndNewTokensShouldBothVerify() throws Exception {
+        // given
+        String oldToken = generateTestToken();
+        new RsaKeyGenerator(tempDir.toString()).generateKeyPair();
+        // when
+        jwtTokenUtil.reloadKeys();
+        String newToken = generateTestToken();
+        // then
+        assertNotEquals(JWT.decode(oldToken).getKeyId(), JWT.decode(newToken).getKeyId());
+        assertEquals("Dina.Aliyeva", jwtTokenUtil.getUsernameFromToken(oldToken));
+        assertEquals("Dina.Aliyeva", jwtTokenUtil.getUsernameFromToken(newToken));
+    }
+
+
+    @Test
+    void whenReloadKeys_filesFromDifferentPairs_shouldKeepCurrentKey(@TempDir Path otherDir) throws Exception {
+        // given
+        String kid = JWT.decode(generateTestToken()).getKeyId();
+        new RsaKeyGenerator(otherDir.toString()).generateKeyPair();
+        Files.copy(otherDir.resolve("public.key"), tempDir.resolve("public.key"), StandardCopyOption.REPLACE_EXISTING);
+        // when
+        jwtTokenUtil.reloadKeys();
+        String token = generateTestToken();
+        // then
+        assertEquals(kid, JWT.decode(token).getKeyId());
+        assertEquals("Dina.Aliyeva", jwtTokenUtil.getUsernameFromToken(token));
+    }
+
+
+    @Test
+    void whenValidateAndParseToken_unknownKeyId_shouldThrowException(@TempDir Path otherDir) throws Exception {
+        // given
+        new RsaKeyGenerator(otherDir.toString()).generateKeyPair();
+        String foreignToken = new JwtTokenUtil(otherDir.toString(), 3600000).generateToken(
+                User.withUsername("Dina.Aliyeva").password("pw123").roles("TRAINER").build());
+        // when + then
+        assertThrows(JWTVerificationException.class, () -> jwtTokenUtil.validateAndParseToken(foreignToken));
+    }
+
+
+    @Test
+    void whenKeyFilesChange_watcherShouldSwitchSigningKey() throws Exception {
+        // given
+        String kid = JWT.decode(generateTestToken()).getKeyId();
+        jwtTokenUtil.watchKeys();
+        try {
+            // when
+            new RsaKeyGenerator(tempDir.toString()).generateKeyPair();
+            // then
+            long deadline = System.currentTimeMillis() + 5000;
+            String newKid = kid;
+            while (newKid.equals(kid) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+                newKid = JWT.decode(generateTestToken()).getKeyId();
+            }
+            assertNotEquals(kid, newKid);
+        } finally {
+            jwtTokenUtil.stopWatching();
+        }
+    }
+
+
     private String generateTestToken() throws Exception {
         UserDetails userDetails = User.withUsername("Dina.Aliyeva")
                 .password("pw123")
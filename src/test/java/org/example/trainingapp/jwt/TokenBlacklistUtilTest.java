@@ -2,17 +2,35 @@ package org.example.trainingapp.jwt;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.ValueOperations;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 
@@ -25,31 +43,46 @@ class TokenBlacklistUtilTest {
     @Mock
     private ValueOperations<String, String> valueOperations;
 
+    @Mock
+    private VerifiedTokenCache verifiedTokenCache;
+
     @InjectMocks
     private TokenBlacklistUtil tokenBlacklistUtil;
 
     private static final String TOKEN = "test.jwt.token";
     private static final String PREFIX = "blacklisted:";
+    private static final String DIGEST = TokenDigest.sha256Hex(TOKEN);
 
 
     @Test
-    void whenBlacklistToken_shouldStoreInRedis() {
+    void whenBlacklistToken_shouldStoreDigestWithRemainingLifetimeAndPublishIt() {
         // given
         Instant expirationTime = Instant.now().plusSeconds(3600);
-        String expectedKey = PREFIX + TOKEN;
         when(redisTemplate.opsForValue()).thenReturn(valueOperations);
         // when
         tokenBlacklistUtil.blacklistToken(TOKEN, expirationTime);
         // then
-        verify(valueOperations).set(expectedKey, expirationTime.toString());
+        verify(valueOperations).set(eq(PREFIX + DIGEST), eq(expirationTime.toString()),
+                argThat((Duration ttl) ->
+                        ttl.compareTo(Duration.ofSeconds(3590)) > 0 && ttl.compareTo(Duration.ofSeconds(3600)) <= 0));
+        verify(redisTemplate).convertAndSend(TokenBlacklistUtil.BLACKLIST_CHANNEL, DIGEST);
+        verify(verifiedTokenCache).invalidateDigest(DIGEST);
+    }
+
+
+    @Test
+    void whenBlacklistToken_alreadyExpired_shouldSkipRedis() {
+        // when
+        tokenBlacklistUtil.blacklistToken(TOKEN, Instant.now().minusSeconds(1));
+        // then
+        verifyNoInteractions(redisTemplate);
     }
 
 
     @Test
     void whenIsTokenBlacklisted_inBlacklist_shouldReturnTrue() {
         // given
-        String key = PREFIX + TOKEN;
-        when(redisTemplate.hasKey(key)).thenReturn(true);
+        when(redisTemplate.hasKey(PREFIX + DIGEST)).thenReturn(true);
         // when
         boolean result = tokenBlacklistUtil.isTokenBlacklisted(TOKEN);
         // then
@@ -60,8 +93,7 @@ class TokenBlacklistUtilTest {
     @Test
     void whenIsTokenBlacklisted_isNotInBlacklist_shouldReturnFalse() {
         // given
-        String key = PREFIX + TOKEN;
-        when(redisTemplate.hasKey(key)).thenReturn(false);
+        when(redisTemplate.hasKey(PREFIX + DIGEST)).thenReturn(false);
         // when
         boolean result = tokenBlacklistUtil.isTokenBlacklisted(TOKEN);
         // then
@@ -72,11 +104,213 @@ class TokenBlacklistUtilTest {
     @Test
     void whenIsTokenBlacklisted_redisReturnsNull_shouldReturnFalse() {
         // given
-        String key = PREFIX + TOKEN;
-        when(redisTemplate.hasKey(key)).thenReturn(null);
+        when(redisTemplate.hasKey(PREFIX + DIGEST)).thenReturn(null);
         // when
         boolean result = tokenBlacklistUtil.isTokenBlacklisted(TOKEN);
         // then
         assertFalse(result);
     }
+
+
+    @Test
+    void whenIsTokenBlacklisted_seededFilterWithoutToken_shouldNotAskRedis() {
+        // given
+        seedWith();
+        // when
+        boolean result = tokenBlacklistUtil.isTokenBlacklisted(TOKEN);
+        // then
+        assertFalse(result);
+        verify(redisTemplate, never()).hasKey(anyString());
+    }
+
+
+    @Test
+    void whenIsTokenBlacklisted_seededFilterWithToken_shouldConfirmInRedis() {
+        // given
+        seedWith(PREFIX + DIGEST);
+        when(redisTemplate.hasKey(PREFIX + DIGEST)).thenReturn(true);
+        // when
+        boolean result = tokenBlacklistUtil.isTokenBlacklisted(TOKEN);
+        // then
+        assertTrue(result);
+    }
+
+
+    @Test
+    void whenOnMessage_fromOtherNode_shouldAddDigestToFilter() {
+        // given
+        seedWith();
+        when(redisTemplate.hasKey(PREFIX + DIGEST)).thenReturn(true);
+        // when
+        tokenBlacklistUtil.onMessage(new DefaultMessage(
+                TokenBlacklistUtil.BLACKLIST_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                DIGEST.getBytes(StandardCharsets.UTF_8)), null);
+        // then
+        assertTrue(tokenBlacklistUtil.isTokenBlacklisted(TOKEN));
+        verify(verifiedTokenCache).invalidateDigest(DIGEST);    // cached on this node, must be verified again
+    }
+
+
+    @Test
+    void whenOnMessage_userInvalidatedOnOtherNode_shouldDropUsersCachedTokens() {
+        // when
+        tokenBlacklistUtil.onMessage(new DefaultMessage(
+                TokenBlacklistUtil.BLACKLIST_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "user:Dina.Aliyeva".getBytes(StandardCharsets.UTF_8)), null);
+        // then
+        verify(verifiedTokenCache).invalidateUserLocally("Dina.Aliyeva");
+        verify(verifiedTokenCache, never()).invalidateDigest(anyString());
+    }
+
+
+    @Test
+    void whenOnMessage_notADigest_shouldIgnoreIt() {
+        // when
+        tokenBlacklistUtil.onMessage(new DefaultMessage(
+                TokenBlacklistUtil.BLACKLIST_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                TOKEN.getBytes(StandardCharsets.UTF_8)), null);
+        // then
+        verifyNoInteractions(verifiedTokenCache);
+    }
+
+
+    @Test
+    void whenSeedBloomFilter_legacyRawTokenKey_shouldMoveItToDigestKeyBeforeDeleting() {
+        // given
+        String legacyKey = PREFIX + TOKEN;
+        Instant expirationTime = Instant.now().plusSeconds(600);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.getExpire(legacyKey)).thenReturn(-1L);           // written without TTL
+        when(valueOperations.get(legacyKey)).thenReturn(expirationTime.toString());
+        when(redisTemplate.hasKey(PREFIX + DIGEST)).thenReturn(true);
+        // when
+        seedWith(legacyKey);
+        // then
+        InOrder order = inOrder(valueOperations, redisTemplate);
+        order.verify(valueOperations).set(eq(PREFIX + DIGEST), eq(expirationTime.toString()),
+                argThat((Duration ttl) ->
+                        ttl.compareTo(Duration.ofSeconds(590)) > 0 && ttl.compareTo(Duration.ofSeconds(600)) <= 0));
+        order.verify(redisTemplate).delete(legacyKey);
+        assertTrue(tokenBlacklistUtil.isTokenBlacklisted(TOKEN));           // seeded under its digest
+    }
+
+
+    @Test
+    void whenSeedBloomFilter_legacyKeyWithTtl_shouldKeepRemainingLifetime() {
+        // given
+        String legacyKey = PREFIX + TOKEN;
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.getExpire(legacyKey)).thenReturn(120L);
+        // when
+        seedWith(legacyKey);
+        // then
+        verify(valueOperations).set(eq(PREFIX + DIGEST), anyString(),
+                argThat((Duration ttl) ->
+                        ttl.compareTo(Duration.ofSeconds(110)) > 0 && ttl.compareTo(Duration.ofSeconds(120)) <= 0));
+        verify(valueOperations, never()).get(anyString());
+        verify(redisTemplate).delete(legacyKey);
+    }
+
+
+    @Test
+    void whenSeedBloomFilter_legacyKeyOfExpiredToken_shouldOnlyDeleteIt() {
+        // given
+        String legacyKey = PREFIX + TOKEN;
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.getExpire(legacyKey)).thenReturn(-1L);
+        when(valueOperations.get(legacyKey)).thenReturn(Instant.now().minusSeconds(60).toString());
+        // when
+        seedWith(legacyKey);
+        // then
+        verify(valueOperations, never()).set(anyString(), anyString(), any(Duration.class));
+        verify(redisTemplate).delete(legacyKey);
+    }
+
+
+    @Test
+    void whenSeedBloomFilter_migratedKeyNotStored_shouldKeepLegacyKey() {
+        // given
+        String legacyKey = PREFIX + TOKEN;
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.getExpire(legacyKey)).thenReturn(120L);
+        doThrow(new IllegalStateException("connection lost")).when(valueOperations)
+                .set(eq(PREFIX + DIGEST), anyString(), any(Duration.class));
+        // when
+        seedWith(legacyKey);
+        // then
+        verify(redisTemplate, never()).delete(anyString());
+    }
+
+
+    @Test
+    void whenSeedBloomFilter_legacyKeyWithoutReadableExpiration_shouldKeepIt() {
+        // given
+        String legacyKey = PREFIX + TOKEN;
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.getExpire(legacyKey)).thenReturn(-1L);
+        when(valueOperations.get(legacyKey)).thenReturn("not a date");
+        // when
+        seedWith(legacyKey, PREFIX + DIGEST);
+        // then
+        verify(valueOperations, never()).set(anyString(), anyString(), any(Duration.class));
+        verify(redisTemplate, never()).delete(anyString());
+    }
+
+
+    @Test
+    void whenSeedBloomFilter_scanFails_shouldKeepCheckingRedis() {
+        // given
+        when(redisTemplate.scan(any(ScanOptions.class))).thenThrow(new IllegalStateException("unsupported SCAN"));
+        when(redisTemplate.hasKey(PREFIX + DIGEST)).thenReturn(false);
+        // when
+        tokenBlacklistUtil.seedBloomFilter();
+        boolean result = tokenBlacklistUtil.isTokenBlacklisted(TOKEN);
+        // then
+        assertFalse(result);
+        verify(redisTemplate).hasKey(PREFIX + DIGEST);
+    }
+
+
+    @Test
+    void whenBloomFilter_manyDigests_shouldKeepFalsePositivesNearConfiguredRate() {
+        // given
+        BlacklistBloomFilter filter = new BlacklistBloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.put(TokenDigest.sha256Hex("blacklisted-" + i));
+        }
+        // when
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain(TokenDigest.sha256Hex("valid-" + i))) {
+                falsePositives++;
+            }
+        }
+        // then
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+        assertEquals(0, countMisses(filter));
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private void seedWith(String... keys) {
+        Cursor<String> cursor = mock(Cursor.class);
+        Iterator<String> iterator = List.of(keys).iterator();
+        when(cursor.hasNext()).thenAnswer(inv -> iterator.hasNext());
+        if (keys.length > 0) {
+            when(cursor.next()).thenAnswer(inv -> iterator.next());
+        }
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+        tokenBlacklistUtil.seedBloomFilter();
+    }
+
+
+    private static int countMisses(BlacklistBloomFilter filter) {
+        int misses = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (!filter.mightContain(TokenDigest.sha256Hex("blacklisted-" + i))) {
+                misses++;
+            }
+        }
+        return misses;
+    }
 }
@@ -0,0 +1,135 @@
+package org.example.trainingapp.jwt;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+
+class VerifiedTokenCacheTest {
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(redisTemplate);
+    private final UserDetails dina = User.withUsername("Dina.Aliyeva").password("pw").roles("TRAINER").build();
+
+
+    @Test
+    void whenPut_shouldReturnPrincipalUntilExpiry() {
+        // given
+        cache.put("a.b.c", dina, Instant.now().plusSeconds(60));
+        cache.put("d.e.f", dina, Instant.now().minusSeconds(1));
+        // when + then
+        assertSame(dina, cache.get("a.b.c"));
+        assertNull(cache.get("d.e.f"));                         // expired token is never served
+        assertNull(cache.get("x.y.z"));
+    }
+
+
+    @Test
+    void whenInvalidate_shouldForgetToken() {
+        // given
+        cache.put("a.b.c", dina, Instant.now().plusSeconds(60));
+        // when
+        cache.invalidate("a.b.c");
+        // then
+        assertNull(cache.get("a.b.c"));
+    }
+
+
+    @Test
+    void whenInvalidateDigest_shouldForgetToken() {
+        // given
+        cache.put("a.b.c", dina, Instant.now().plusSeconds(60));
+        // when
+        cache.invalidateDigest(TokenDigest.sha256Hex("a.b.c"));
+        // then
+        assertNull(cache.get("a.b.c"));
+    }
+
+
+    @Test
+    void whenInvalidateUser_shouldForgetAllTokensOfUser() {
+        // given
+        UserDetails anna = User.withUsername("Anna.Ivanova").password("pw").roles("TRAINEE").build();
+        cache.put("a.b.c", dina, Instant.now().plusSeconds(60));
+        cache.put("d.e.f", dina, Instant.now().plusSeconds(60));
+        cache.put("g.h.i", anna, Instant.now().plusSeconds(60));
+        // when
+        cache.invalidateUser("Dina.Aliyeva");
+        // then
+        assertNull(cache.get("a.b.c"));
+        assertNull(cache.get("d.e.f"));
+        assertSame(anna, cache.get("g.h.i"));
+    }
+
+
+    @Test
+    void whenInvalidateUser_inTransaction_shouldForgetTokensCachedBeforeCommit() {
+        // given
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidateUser("Dina.Aliyeva");
+            cache.put("a.b.c", dina, Instant.now().plusSeconds(60));      // verified again before commit
+            verify(redisTemplate, never()).convertAndSend(anyString(), anyString());   // not committed yet
+            // when
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        // then
+        assertNull(cache.get("a.b.c"));
+        verify(redisTemplate).convertAndSend(TokenBlacklistUtil.BLACKLIST_CHANNEL, "user:Dina.Aliyeva");
+    }
+
+
+    @Test
+    void whenInvalidateUser_onOtherNode_shouldForgetTokensCachedHere() {
+        // given
+        VerifiedTokenCache otherNode = new VerifiedTokenCache(redisTemplate);
+        @SuppressWarnings("unchecked")
+        TokenBlacklistUtil listener = new TokenBlacklistUtil(mock(RedisTemplate.class), cache);
+        cache.put("a.b.c", dina, Instant.now().plusSeconds(60));
+        otherNode.invalidateUser("Dina.Aliyeva");
+        ArgumentCaptor<String> published = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq(TokenBlacklistUtil.BLACKLIST_CHANNEL), published.capture());
+        // when
+        listener.onMessage(new DefaultMessage(TokenBlacklistUtil.BLACKLIST_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                published.getValue().getBytes(StandardCharsets.UTF_8)), null);
+        // then
+        assertNull(cache.get("a.b.c"));
+    }
+
+
+    @Test
+    void whenFull_shouldDropExpiredEntriesAndNotGrowPastMaxSize() {
+        // given
+        ReflectionTestUtils.setField(cache, "maxSize", 2);
+        cache.put("old.token.1", dina, Instant.now().minusSeconds(1));
+        cache.put("live.token.2", dina, Instant.now().plusSeconds(60));
+        // when
+        cache.put("live.token.3", dina, Instant.now().plusSeconds(60));    // expired one is purged
+        cache.put("live.token.4", dina, Instant.now().plusSeconds(60));    // no room left
+        // then
+        assertSame(dina, cache.get("live.token.2"));
+        assertSame(dina, cache.get("live.token.3"));
+        assertNull(cache.get("live.token.4"));
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.trainingapp.repository;
+
+import org.example.trainingapp.entity.TrainingType;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+// Ids come from sequences in blocks of allocationSize (pooled-lo): a batch of inserts costs one sequence call
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "org.example.trainingapp.repository.EntityIdAllocationTest$SqlRecorder")
+@ActiveProfiles("test")
+class EntityIdAllocationTest {
+
+    @Autowired
+    private TrainingTypeRepository trainingTypeRepository;
+
+
+    @BeforeEach
+    void setUp() {
+        SqlRecorder.STATEMENTS.clear();
+    }
+
+
+    @Test
+    void whenSavingSeveralEntities_shouldTakeIdsFromOneSequenceCall() {
+        // when
+        List<TrainingType> saved = trainingTypeRepository.saveAllAndFlush(List.of(
+                new TrainingType("Pilates"), new TrainingType("Boxing"), new TrainingType("Swimming")));
+        // then
+        assertThat(SqlRecorder.STATEMENTS).filteredOn(sql -> sql.contains("training_types_id_seq")).hasSize(1);
+        Long first = saved.getFirst().getId();
+        assertThat(saved).extracting(TrainingType::getId).containsExactly(first, first + 1, first + 2);
+    }
+
+
+    public static class SqlRecorder implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
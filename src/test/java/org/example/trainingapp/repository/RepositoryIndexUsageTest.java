@@ -0,0 +1,249 @@
+package org.example.trainingapp.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.metamodel.EntityType;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+// Runs each hot repository query, takes the SQL Hibernate sent and checks that its EXPLAIN plan uses the expected index.
+// Indexes come from V8__add_lookup_indexes.sql and are declared on the entities too, so the H2 schema has them.
+// H2 also indexes every foreign key, PostgreSQL does not: the trainer/trainee ones are dropped, as in production.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "org.example.trainingapp.repository.RepositoryIndexUsageTest$SqlRecorder")
+@ActiveProfiles("test")
+class RepositoryIndexUsageTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TrainingRepository trainingRepository;
+
+    @Autowired
+    private TrainerRepository trainerRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private static final LocalDate DATE = LocalDate.of(2024, 5, 10);
+    private static final String V8_MIGRATION = "db/migration/V8__add_lookup_indexes.sql";
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "CREATE (UNIQUE )?INDEX CONCURRENTLY IF NOT EXISTS (\\w+) ON (\\w+) \\(([^)]+)\\)");
+
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dropForeignKeyIndexes("TRAINER_ID", "TRAINEE_ID");
+        SqlRecorder.STATEMENTS.clear();
+    }
+
+
+    @Test
+    void whenFindingByUsername_shouldUseUsernameIndex() throws Exception {
+        // when
+        userRepository.findByUsername("Dina.Aliyeva");
+        // then
+        assertIndexScan(explainLast(), "ux_users_username");
+    }
+
+
+    @Test
+    void whenFindingCredentialsByUsername_shouldUseUsernameIndex() throws Exception {
+        // when
+        userRepository.findCredentialsByUsername("Dina.Aliyeva");
+        // then
+        assertIndexScan(explainLast(), "ux_users_username");
+    }
+
+
+    @Test
+    void whenFindingUsernamesByName_shouldUseNameIndex() throws Exception {
+        // when
+        userRepository.findUsernamesByFirstNameAndLastName("Dina", "Aliyeva");
+        // then
+        assertIndexScan(explainLast(), "ix_users_first_name_last_name");
+    }
+
+
+    @Test
+    void whenFindingByTrainingName_shouldUseTrainingNameIndex() throws Exception {
+        // when
+        trainingRepository.findByTrainingName("2024-05-10#1 - Yoga");
+        // then
+        assertIndexScan(explainLast(), "ix_trainings_training_name");
+    }
+
+
+    @Test
+    void whenCheckingTrainingNameExists_shouldUseTrainingNameIndex() throws Exception {
+        // when
+        trainingRepository.existsByTrainingName("2024-05-10#1 - Yoga");
+        // then
+        assertIndexScan(explainLast(), "ix_trainings_training_name");
+    }
+
+
+    @Test
+    void whenFindingTrainingNamesOfDay_shouldLookUpTrainingsByTrainer() throws Exception {
+        // when
+        trainingRepository.findNamesByTrainerAndDate("Elena.Sokolova", DATE);
+        // then
+        assertIndexScan(explainLast(), "ix_trainings_trainer_date");
+    }
+
+
+    @Test
+    void whenPagingTrainerTrainings_shouldLookUpTrainingsByTrainer() throws Exception {
+        // when
+        trainingRepository.findTrainerTrainings("Elena.Sokolova", DATE, null, null, DATE, 1L, Limit.of(10));
+        // then
+        assertIndexScan(explainLast(), "ix_trainings_trainer_date");
+    }
+
+
+    @Test
+    void whenPagingTraineeTrainings_shouldLookUpTrainingsByTrainee() throws Exception {
+        // when
+        trainingRepository.findTraineeTrainings("Dina.Aliyeva", DATE, null, null, null, DATE, 1L, Limit.of(10));
+        // then
+        assertIndexScan(explainLast(), "ix_trainings_trainee_date");
+    }
+
+
+    @Test
+    void whenFindingTrainersNotAssignedToTrainee_shouldProbeAssignmentsByIndex() throws Exception {
+        // when
+        trainerRepository.findNotAssignedToTrainee("Dina.Aliyeva", "Yoga", true, "Anna.Borisova", Limit.of(10));
+        // then
+        assertThat(explainLast()).contains("NOT EXISTS").doesNotContain("TRAINERS_TRAINEES.tableScan");
+    }
+
+
+    @Test
+    void whenResolvingTrainingParties_shouldLookUpBothUsersByUsernameIndex() throws Exception {
+        // when
+        trainerRepository.findTrainingParties("Elena.Sokolova", "Dina.Aliyeva");
+        // then
+        assertIndexScan(explainLast(), "ux_users_username");
+    }
+
+
+    @Test
+    void whenComparingEntityIndexes_shouldMatchV8Migration() throws Exception {
+        // given
+        Set<IndexSpec> migrated = new HashSet<>();
+        try (InputStream sql = new ClassPathResource(V8_MIGRATION).getInputStream()) {
+            Matcher index = CREATE_INDEX.matcher(new String(sql.readAllBytes(), StandardCharsets.UTF_8));
+            while (index.find()) {
+                migrated.add(IndexSpec.of(index.group(2), index.group(3), index.group(4), index.group(1) != null));
+            }
+        }
+        // when
+        Set<IndexSpec> declared = new HashSet<>();
+        for (EntityType<?> entity : entityManager.getMetamodel().getEntities()) {
+            Table table = entity.getJavaType().getAnnotation(Table.class);
+            if (table != null) {
+                for (Index index : table.indexes()) {
+                    declared.add(IndexSpec.of(index.name(), table.name(), index.columnList(), index.unique()));
+                }
+            }
+        }
+        // then
+        assertThat(migrated).hasSize(5);
+        assertThat(declared).containsExactlyInAnyOrderElementsOf(migrated);
+    }
+
+
+    // H2 marks full scans as "tableScan"; index lookups name the index and the indexed condition
+    private static void assertIndexScan(String plan, String expectedLookup) {
+        assertThat(plan).doesNotContainIgnoringCase("tableScan").containsIgnoringCase(expectedLookup);
+    }
+
+
+    private String explainLast() throws Exception {
+        assertThat(SqlRecorder.STATEMENTS).isNotEmpty();
+        String sql = SqlRecorder.STATEMENTS.getLast();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql);
+             ResultSet plan = explain.executeQuery()) {               //  H2 explains with unbound parameters
+            StringBuilder text = new StringBuilder();
+            while (plan.next()) {
+                text.append(plan.getString(1)).append('\n');
+            }
+            return text.toString();
+        }
+    }
+
+
+    private void dropForeignKeyIndexes(String... columns) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement find = connection.prepareStatement("SELECT CONSTRAINT_NAME " +
+                     "FROM INFORMATION_SCHEMA.KEY_COLUMN_USAGE WHERE TABLE_NAME = 'TRAININGS' AND COLUMN_NAME = ? " +
+                     "AND CONSTRAINT_NAME IN (SELECT CONSTRAINT_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS " +
+                     "WHERE CONSTRAINT_TYPE = 'FOREIGN KEY')");
+             Statement drop = connection.createStatement()) {
+            for (String column : columns) {
+                find.setString(1, column);
+                List<String> constraints = new ArrayList<>();
+                try (ResultSet found = find.executeQuery()) {
+                    while (found.next()) {
+                        constraints.add(found.getString(1));
+                    }
+                }
+                for (String constraint : constraints) {                 //  its index goes with it
+                    drop.execute("ALTER TABLE TRAININGS DROP CONSTRAINT \"" + constraint + "\"");
+                }
+            }
+        }
+    }
+
+
+    private record IndexSpec(String name, String table, List<String> columns, boolean unique) {
+        static IndexSpec of(String name, String table, String columnList, boolean unique) {
+            return new IndexSpec(name.toLowerCase(), table.toLowerCase(),
+                    Arrays.stream(columnList.split(",")).map(column -> column.trim().toLowerCase()).toList(), unique);
+        }
+    }
+
+
+    public static class SqlRecorder implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
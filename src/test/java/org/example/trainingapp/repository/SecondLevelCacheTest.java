@@ -0,0 +1,274 @@
+package org.example.trainingapp.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.trainingapp.entity.Trainee;
+import org.example.trainingapp.entity.Trainer;
+import org.example.trainingapp.entity.Training;
+import org.example.trainingapp.entity.TrainingType;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.trainingapp.dto.UpdateTrainerListDto;
+import org.example.trainingapp.service.TraineeService;
+import org.example.trainingapp.service.impl.TrainerHoursPublisher;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+// Profile reads go through the natural-id, entity and trainer-trainee collection caches: the first read of a
+// profile loads them, a repeated read (ownership check included) must not send any SQL
+@SpringBootTest(properties = {
+        "database.url=jdbc:h2:mem:second-level-cache;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+        "outbox.relay.interval-ms=3600000",                                 //  relay polling would show up as SQL
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "org.example.trainingapp.repository.SecondLevelCacheTest$SqlRecorder"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SecondLevelCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TrainerRepository trainerRepository;
+
+    @Autowired
+    private TraineeRepository traineeRepository;
+
+    @Autowired
+    private TrainingTypeRepository trainingTypeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TraineeService traineeService;
+
+    @Autowired
+    private TrainingRepository trainingRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @MockitoBean
+    private TrainerHoursPublisher trainerHoursPublisher;
+
+    private static final String TRAINER = "Cache.Trainer";
+    private static final String TRAINER_2 = "Cache.Trainer2";
+    private static final String TRAINEE = "Cache.Trainee";
+
+
+    @BeforeEach
+    void setUp() {
+        if (!trainerRepository.existsByUsername(TRAINER)) {
+            saveTrainerWithTrainee();
+        }
+        entityManagerFactory.getCache().evictAll();                         //  every test starts cold
+        SqlRecorder.STATEMENTS.clear();
+    }
+
+
+    @Test
+    void whenReadingTrainerProfileAgain_shouldNotQueryDb() throws Exception {
+        // given
+        readProfile("/api/trainers/" + TRAINER, "TRAINER", TRAINEE);
+        assertThat(SqlRecorder.STATEMENTS).isNotEmpty();                  //  cold read loads the caches
+        SqlRecorder.STATEMENTS.clear();
+        // when
+        readProfile("/api/trainers/" + TRAINER, "TRAINER", TRAINEE);
+        // then
+        assertThat(SqlRecorder.STATEMENTS).isEmpty();
+        assertThat(meterRegistry.find("hibernate.cache.natural.id.requests").tag("result", "hit").functionCounter())
+                .isNotNull()
+                .satisfies(hits -> assertThat(hits.count()).isPositive());
+    }
+
+
+    @Test
+    void whenReadingTraineeProfileAgain_shouldNotQueryDb() throws Exception {
+        // given
+        readProfile("/api/trainees/" + TRAINEE, "TRAINEE", TRAINER);
+        assertThat(SqlRecorder.STATEMENTS).isNotEmpty();
+        SqlRecorder.STATEMENTS.clear();
+        // when
+        readProfile("/api/trainees/" + TRAINEE, "TRAINEE", TRAINER);
+        // then
+        assertThat(SqlRecorder.STATEMENTS).isEmpty();
+    }
+
+
+    @Test
+    void whenLoadingTrainerByTraineeUsername_shouldFindNothing() {
+        // given
+        traineeRepository.findByNaturalId(TRAINEE);
+        // when / then
+        assertThat(trainerRepository.findByNaturalId(TRAINEE)).isEmpty();
+    }
+
+
+    @Test
+    void whenUpdatingTraineeTrainers_shouldWriteOnlyDeltaAndRefreshCachedLinks() throws Exception {
+        // given
+        readProfile("/api/trainees/" + TRAINEE, "TRAINEE", TRAINER);
+        readProfile("/api/trainers/" + TRAINER, "TRAINER", TRAINEE);
+        SqlRecorder.STATEMENTS.clear();
+        // when
+        traineeService.updateTraineeTrainers(new UpdateTrainerListDto(TRAINEE, List.of(TRAINER, TRAINER_2)));
+        // then
+        assertThat(joinTableWrites()).singleElement().satisfies(sql -> assertThat(sql).startsWith("INSERT"));
+        readProfile("/api/trainers/" + TRAINER_2, "TRAINER", TRAINEE);
+        // when
+        SqlRecorder.STATEMENTS.clear();
+        traineeService.updateTraineeTrainers(new UpdateTrainerListDto(TRAINEE, List.of(TRAINER)));
+        // then
+        assertThat(joinTableWrites()).singleElement().satisfies(sql -> assertThat(sql).startsWith("DELETE"));
+        mockMvc.perform(get("/api/trainees/" + TRAINEE).with(user(TRAINEE).roles("TRAINEE")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(not(containsString(TRAINER_2))));
+    }
+
+
+    private void saveTrainerWithTrainee() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            TrainingType yoga = trainingTypeRepository.findByName("Yoga")
+                    .orElseGet(() -> trainingTypeRepository.save(new TrainingType("Yoga")));
+            Trainee trainee = traineeRepository.save(Trainee.builder().firstName("Cache").lastName("Trainee")
+                    .username(TRAINEE).password("pw").active(true).trainers(new HashSet<>()).build());
+            Trainer trainer = trainerRepository.save(Trainer.builder().firstName("Cache").lastName("Trainer")
+                    .username(TRAINER).password("pw").active(true).specialization(yoga)
+                    .trainees(new HashSet<>(List.of(trainee))).build());
+            trainee.getTrainers().add(trainer);
+            trainerRepository.save(Trainer.builder().firstName("Cache").lastName("Trainer")
+                    .username(TRAINER_2).password("pw").active(true).specialization(yoga)
+                    .trainees(new HashSet<>()).build());
+        });
+    }
+
+
+    @Test
+    void whenLinkingAlreadyLinkedTrainee_shouldSkipRowWithoutLoadingCollections() {
+        // given
+        Long trainerId = trainerRepository.findByNaturalId(TRAINER).orElseThrow().getId();
+        Long traineeId = traineeRepository.findByNaturalId(TRAINEE).orElseThrow().getId();
+        SqlRecorder.STATEMENTS.clear();
+        // when
+        Integer inserted = new TransactionTemplate(transactionManager).execute(status ->
+                trainerRepository.linkTrainees(trainerId, List.of(traineeId)));
+        // then
+        assertThat(inserted).isZero();
+        assertThat(SqlRecorder.STATEMENTS).singleElement()
+                .satisfies(sql -> assertThat(sql).endsWith("ON CONFLICT DO NOTHING"));
+    }
+
+
+    @Test
+    void whenLinkingOtherTrainer_shouldKeepUnrelatedCachedLinks() throws Exception {
+        // given
+        String other = "Cache.Other";
+        Long trainer2Id = trainerRepository.findByNaturalId(TRAINER_2).orElseThrow().getId();
+        Long otherId = traineeRepository.findByNaturalId(other)
+                .orElseGet(() -> traineeRepository.save(Trainee.builder().firstName("Cache").lastName("Other")
+                        .username(other).password("pw").active(true).trainers(new HashSet<>()).build()))
+                .getId();
+        readProfile("/api/trainers/" + TRAINER, "TRAINER", TRAINEE);
+        SqlRecorder.STATEMENTS.clear();
+        // when
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            trainerRepository.linkTrainees(trainer2Id, List.of(otherId));
+            trainerRepository.evictTrainerLinks(trainer2Id, List.of(otherId));
+        });
+        SqlRecorder.STATEMENTS.clear();
+        readProfile("/api/trainers/" + TRAINER, "TRAINER", TRAINEE);
+        // then
+        assertThat(SqlRecorder.STATEMENTS).isEmpty();
+    }
+
+
+    @Test
+    void whenDeletingTraineeWithTrainings_shouldDeleteInBulkAndDropCachedLinks() throws Exception {
+        // given
+        String leaving = "Cache.Leaving";
+        saveTraineeWithTrainings(leaving, 3);
+        readProfile("/api/trainers/" + TRAINER, "TRAINER", leaving);
+        long queuedBefore = outboxEventRepository.count();
+        SqlRecorder.STATEMENTS.clear();
+        // when
+        mockMvc.perform(delete("/api/trainees/" + leaving).with(user(leaving).roles("TRAINEE")))
+                .andExpect(status().isOk());
+        // then
+        assertThat(SqlRecorder.STATEMENTS).filteredOn(sql -> sql.startsWith("delete from trainings")).hasSize(1);
+        assertThat(outboxEventRepository.count()).isEqualTo(queuedBefore + 1);      //  one trainer-month
+        assertThat(traineeRepository.existsByUsername(leaving)).isFalse();
+        mockMvc.perform(get("/api/trainers/" + TRAINER).with(user(TRAINER).roles("TRAINER")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(not(containsString(leaving))));
+    }
+
+
+    private static List<String> joinTableWrites() {
+        return SqlRecorder.STATEMENTS.stream()
+                .filter(sql -> sql.contains("trainers_trainees") && !sql.startsWith("select"))
+                .toList();
+    }
+
+
+    private void saveTraineeWithTrainings(String username, int trainings) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Trainer trainer = trainerRepository.findByUsername(TRAINER).orElseThrow();
+            Trainee trainee = traineeRepository.save(Trainee.builder().firstName("Cache").lastName("Leaving")
+                    .username(username).password("pw").active(true).trainers(new HashSet<>()).build());
+            trainerRepository.linkTrainees(trainer.getId(), List.of(trainee.getId()));
+            for (int i = 1; i <= trainings; i++) {
+                trainingRepository.save(Training.builder().trainingName(username + " #" + i)
+                        .trainingDate(LocalDate.of(2024, 5, i)).trainingDuration(60)
+                        .trainingType(trainer.getSpecialization()).trainer(trainer).trainee(trainee).build());
+            }
+        });
+    }
+
+
+    private void readProfile(String path, String role, String linkedUser) throws Exception {
+        String username = path.substring(path.lastIndexOf('/') + 1);
+        mockMvc.perform(get(path).with(user(username).roles(role)))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(linkedUser)));
+    }
+
+
+    public static class SqlRecorder implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
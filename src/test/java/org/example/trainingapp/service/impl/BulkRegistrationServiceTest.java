@@ -0,0 +1,326 @@
+package org.example.trainingapp.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.trainingapp.converter.Converter;
+import org.example.trainingapp.dto.BulkRegistrationResult;
+import org.example.trainingapp.dto.TraineeRegisterDto;
+import org.example.trainingapp.dto.TrainerRegisterDto;
+import org.example.trainingapp.entity.Trainee;
+import org.example.trainingapp.entity.Trainer;
+import org.example.trainingapp.entity.TrainingType;
+import org.example.trainingapp.exception.PayloadTooLargeException;
+import org.example.trainingapp.metrics.RegistrationMetrics;
+import org.example.trainingapp.repository.TraineeRepository;
+import org.example.trainingapp.repository.TrainerRepository;
+import org.example.trainingapp.repository.UserRepository;
+import org.example.trainingapp.service.TrainingTypeRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@ExtendWith(MockitoExtension.class)
+class BulkRegistrationServiceTest {
+
+    @Mock
+    private Converter converter;
+
+    @Mock
+    private UsernameAllocator usernameAllocator;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private TraineeRepository traineeRepository;
+
+    @Mock
+    private TrainerRepository trainerRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TrainingTypeRegistry trainingTypeRegistry;
+
+    @Mock
+    private RegistrationMetrics registrationMetrics;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private BulkRegistrationService service;
+
+    private final List<List<BulkRegistrationResult>> chunks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        service = new BulkRegistrationService(objectMapper, converter, usernameAllocator, passwordEncoder,
+                traineeRepository, trainerRepository, userRepository, trainingTypeRegistry, registrationMetrics, transactionManager);
+        service.startHashPool();
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(passwordEncoder.encode(anyString())).thenAnswer(inv -> "hashed-" + inv.getArgument(0));
+        lenient().when(converter.dtoToEntity(any(TraineeRegisterDto.class))).thenAnswer(inv -> {
+            TraineeRegisterDto dto = inv.getArgument(0);
+            return Trainee.builder().firstName(dto.getFirstName()).lastName(dto.getLastName()).build();
+        });
+    }
+
+
+    @AfterEach
+    void tearDown() {
+        service.stopHashPool();
+    }
+
+
+    @Test
+    void whenRegisterTrainees_ndjsonWithInvalidRow_shouldSaveValidRowsAndReportEveryRow() throws Exception {
+        // given
+        String body = """
+                {"firstName":"Ivan","lastName":"Petrov"}
+                {"firstName":"","lastName":"Petrov"}
+                {"firstName":"Ivan","lastName":"Petrov"}
+                """;
+        when(usernameAllocator.allocate("Ivan", "Petrov", 2)).thenReturn(List.of("Ivan.Petrov", "Ivan.Petrov1"));
+        // when
+        service.registerTrainees(stream(body), chunks::add);
+        // then
+        assertThat(chunks).hasSize(1);
+        List<BulkRegistrationResult> results = chunks.getFirst();
+        assertThat(results).extracting(BulkRegistrationResult::row).containsExactly(1, 2, 3);
+        assertThat(results.get(0).username()).isEqualTo("Ivan.Petrov");
+        assertThat(results.get(1).error()).isEqualTo("First name is required.");
+        assertThat(results.get(2).username()).isEqualTo("Ivan.Petrov1");
+        assertThat(results.get(2).password()).hasSize(10);
+        ArgumentCaptor<List<Trainee>> saved = captor();
+        verify(traineeRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).hasSize(2).allSatisfy(trainee -> {
+            assertThat(trainee.getPassword()).startsWith("hashed-");
+            assertThat(trainee.isActive()).isTrue();
+        });
+        verify(registrationMetrics, times(2)).incrementTrainee();
+    }
+
+
+    @Test
+    void whenRegisterTrainers_jsonArray_shouldResolveSpecializationsFromRegistry() throws Exception {
+        // given
+        String body = """
+                [{"firstName":"Dina","lastName":"Aliyeva","specializationName":"Yoga"},
+                 {"firstName":"Oleg","lastName":"Smirnov","specializationName":"Yoga"},
+                 {"firstName":"Max","lastName":"Kim","specializationName":"Chess"}]
+                """;
+        TrainingType yoga = new TrainingType("Yoga");
+        when(trainingTypeRegistry.find("Yoga")).thenReturn(Optional.of(yoga));
+        when(converter.dtoToEntity(any(TrainerRegisterDto.class), eq(yoga))).thenAnswer(inv -> {
+            TrainerRegisterDto dto = inv.getArgument(0);
+            return Trainer.builder().firstName(dto.getFirstName()).lastName(dto.getLastName()).specialization(yoga)
+                    .build();
+        });
+        when(usernameAllocator.allocate("Dina", "Aliyeva", 1)).thenReturn(List.of("Dina.Aliyeva"));
+        when(usernameAllocator.allocate("Oleg", "Smirnov", 1)).thenReturn(List.of("Oleg.Smirnov"));
+        // when
+        service.registerTrainers(stream(body), chunks::add);
+        // then
+        List<BulkRegistrationResult> results = chunks.getFirst();
+        assertThat(results).extracting(BulkRegistrationResult::username)
+                .containsExactly("Dina.Aliyeva", "Oleg.Smirnov", null);
+        assertThat(results.get(2).error()).isEqualTo("TrainingType 'Chess' is not supported.");
+        verify(trainingTypeRegistry, never()).find("Chess");
+        verify(registrationMetrics, times(2)).incrementTrainer();
+    }
+
+
+    @Test
+    void whenRegisterTrainees_moreRowsThanChunk_shouldSaveAndReportPerChunk() throws Exception {
+        // given
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        String body = """
+                {"firstName":"A","lastName":"One"}
+                {"firstName":"B","lastName":"Two"}
+                {"firstName":"C","lastName":"Three"}
+                """;
+        when(usernameAllocator.allocate(anyString(), anyString(), eq(1)))
+                .thenAnswer(inv -> List.of(inv.getArgument(0) + "." + inv.getArgument(1)));
+        // when
+        service.registerTrainees(stream(body), chunks::add);
+        // then
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(1)).extracting(BulkRegistrationResult::row).containsExactly(3);
+        verify(traineeRepository, times(2)).saveAll(any());
+    }
+
+
+    @Test
+    void whenRegisterTrainees_malformedRow_shouldRegisterPreviousRowsAndStop() throws Exception {
+        // given
+        String body = """
+                {"firstName":"Ivan","lastName":"Petrov"}
+                {"firstName":
+                """;
+        when(usernameAllocator.allocate("Ivan", "Petrov", 1)).thenReturn(List.of("Ivan.Petrov"));
+        // when
+        service.registerTrainees(stream(body), chunks::add);
+        // then
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(0).getFirst().username()).isEqualTo("Ivan.Petrov");
+        BulkRegistrationResult failed = chunks.get(1).getFirst();
+        assertThat(failed.row()).isEqualTo(2);
+        assertThat(failed.error()).startsWith("Malformed row");
+    }
+
+
+    @Test
+    void whenRegisterTrainees_chunkNotSaved_shouldReportRowsAsFailed() throws Exception {
+        // given
+        when(usernameAllocator.allocate("Ivan", "Petrov", 1)).thenReturn(List.of("Ivan.Petrov"));
+        doThrow(new DataIntegrityViolationException("duplicate key")).when(traineeRepository).saveAll(any());
+        // when
+        service.registerTrainees(stream("{\"firstName\":\"Ivan\",\"lastName\":\"Petrov\"}"), chunks::add);
+        // then
+        BulkRegistrationResult result = chunks.getFirst().getFirst();
+        assertThat(result.username()).isNull();
+        assertThat(result.error()).isEqualTo("Not saved, please retry the row.");
+        verify(registrationMetrics, never()).incrementTrainee();
+    }
+
+
+    @Test
+    void whenRegisterTrainees_usernameTakenConcurrently_shouldReallocateItAndSaveChunkAgain() throws Exception {
+        // given
+        String body = """
+                {"firstName":"Ivan","lastName":"Petrov"}
+                {"firstName":"Olga","lastName":"Ivanova"}
+                """;
+        when(usernameAllocator.allocate("Ivan", "Petrov", 1))
+                .thenReturn(List.of("Ivan.Petrov"), List.of("Ivan.Petrov1"));
+        when(usernameAllocator.allocate("Olga", "Ivanova", 1)).thenReturn(List.of("Olga.Ivanova"));
+        when(traineeRepository.saveAll(any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"))
+                .thenAnswer(inv -> inv.getArgument(0));
+        when(userRepository.findExistingUsernames(List.of("Ivan.Petrov", "Olga.Ivanova")))
+                .thenReturn(Set.of("Ivan.Petrov"));
+        // when
+        service.registerTrainees(stream(body), chunks::add);
+        // then
+        assertThat(chunks.getFirst()).extracting(BulkRegistrationResult::username)
+                .containsExactly("Ivan.Petrov1", "Olga.Ivanova");
+        verify(traineeRepository, times(2)).saveAll(any());
+        verify(usernameAllocator).allocate("Olga", "Ivanova", 1);           //  only the clashing name again
+        verify(registrationMetrics, times(2)).incrementTrainee();
+    }
+
+
+    @Test
+    void whenRegisterTrainees_moreRowsThanLimitAfterFirstChunk_shouldRegisterUpToLimitAndReportCut() throws Exception {
+        // given
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.setField(service, "maxRows", 3);
+        String body = """
+                {"firstName":"A","lastName":"One"}
+                {"firstName":"B","lastName":"Two"}
+                {"firstName":"C","lastName":"Three"}
+                {"firstName":"D","lastName":"Four"}
+                {"firstName":"E","lastName":"Five"}
+                """;
+        when(usernameAllocator.allocate(anyString(), anyString(), eq(1)))
+                .thenAnswer(inv -> List.of(inv.getArgument(0) + "." + inv.getArgument(1)));
+        // when
+        service.registerTrainees(stream(body), chunks::add);
+        // then
+        assertThat(chunks).hasSize(3);
+        assertThat(chunks.get(1)).extracting(BulkRegistrationResult::row).containsExactly(3);
+        BulkRegistrationResult cut = chunks.get(2).getFirst();
+        assertThat(cut.row()).isEqualTo(4);
+        assertThat(cut.error()).startsWith("Upload exceeds 3 rows.");
+        verify(registrationMetrics, times(3)).incrementTrainee();
+    }
+
+
+    @Test
+    void whenRegisterTrainees_moreRowsThanLimitInFirstChunk_shouldRejectWithoutRegistering() {
+        // given
+        ReflectionTestUtils.setField(service, "maxRows", 1);
+        String body = """
+                {"firstName":"A","lastName":"One"}
+                {"firstName":"B","lastName":"Two"}
+                """;
+        // when + then
+        assertThatThrownBy(() -> service.registerTrainees(stream(body), chunks::add))
+                .isInstanceOf(PayloadTooLargeException.class)
+                .hasMessage("Upload exceeds 1 rows.");
+        assertThat(chunks).isEmpty();
+        verify(traineeRepository, never()).saveAll(any());
+    }
+
+
+    @Test
+    void whenRegisterTrainees_streamedBodyOverSizeLimit_shouldRejectWithoutRegistering() {
+        // given
+        ReflectionTestUtils.setField(service, "maxBodySize", DataSize.ofBytes(50));
+        String body = """
+                {"firstName":"Ivan","lastName":"Petrov"}
+                {"firstName":"Ivan","lastName":"Petrov"}
+                """;
+        // when + then
+        assertThatThrownBy(() -> service.registerTrainees(stream(body), chunks::add))
+                .isInstanceOf(PayloadTooLargeException.class)
+                .hasMessage("Upload exceeds 50 bytes.");
+        verify(traineeRepository, never()).saveAll(any());
+    }
+
+
+    @Test
+    void whenCheckUploadSize_declaredLengthOverLimit_shouldThrowPayloadTooLarge() {
+        // given
+        ReflectionTestUtils.setField(service, "maxBodySize", DataSize.ofKilobytes(1));
+        // when + then
+        service.checkUploadSize(-1);                                        //  chunked upload, counted later
+        service.checkUploadSize(1024);
+        assertThatThrownBy(() -> service.checkUploadSize(1025)).isInstanceOf(PayloadTooLargeException.class);
+    }
+
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <T> ArgumentCaptor<List<T>> captor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
@@ -1,9 +1,7 @@
 package org.example.trainingapp.service.impl;
 
-import org.example.trainingapp.entity.Trainee;
-import org.example.trainingapp.entity.Trainer;
-import org.example.trainingapp.repository.TraineeRepository;
-import org.example.trainingapp.repository.TrainerRepository;
+import org.example.trainingapp.dto.UserCredentialsRow;
+import org.example.trainingapp.repository.UserRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -11,11 +9,15 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -23,10 +25,7 @@ import static org.mockito.Mockito.when;
 class CustomUserDetailsServiceTest {
 
     @Mock
-    private TrainerRepository trainerRepository;
-
-    @Mock
-    private TraineeRepository traineeRepository;
+    private UserRepository userRepository;
 
     @InjectMocks
     private CustomUserDetailsService userDetailsService;
@@ -35,15 +34,14 @@ class CustomUserDetailsServiceTest {
     @Test
     void whenLoadUserByUsername_trainerExists_shouldReturnUserDetailsWithTrainerRole() {
         // given
-        Trainer trainer = new Trainer();
-        trainer.setUsername("trainer1");
-        trainer.setPassword("pass");
-        when(trainerRepository.findByUsername("trainer1")).thenReturn(Optional.of(trainer));
+        when(userRepository.findCredentialsByUsername("trainer1"))
+                .thenReturn(Optional.of(new UserCredentialsRow("trainer1", "pass", "TRAINER")));
         // when
         UserDetails details = userDetailsService.loadUserByUsername("trainer1");
         // then
         assertThat(details.getUsername()).isEqualTo("trainer1");
         assertThat(details.getPassword()).isEqualTo("pass");
+        assertThat(details.isEnabled()).isTrue();
         assertThat(details.getAuthorities()).anyMatch(a -> a.getAuthority().equals("ROLE_TRAINER"));
     }
 
@@ -51,28 +49,66 @@ class CustomUserDetailsServiceTest {
     @Test
     void whenLoadUserByUsername_traineeExists_shouldReturnUserDetailsWithTraineeRole() {
         // given
-        when(trainerRepository.findByUsername("trainee1")).thenReturn(Optional.empty());
-        Trainee trainee = new Trainee();
-        trainee.setUsername("trainee1");
-        trainee.setPassword("pass");
-        when(traineeRepository.findByUsername("trainee1")).thenReturn(Optional.of(trainee));
+        when(userRepository.findCredentialsByUsername("trainee1"))
+                .thenReturn(Optional.of(new UserCredentialsRow("trainee1", "pass", "TRAINEE")));
         // when
         UserDetails details = userDetailsService.loadUserByUsername("trainee1");
         // then
         assertThat(details.getUsername()).isEqualTo("trainee1");
         assertThat(details.getPassword()).isEqualTo("pass");
+        assertThat(details.isEnabled()).isTrue();                   // inactive users still log in, as before
         assertThat(details.getAuthorities()).anyMatch(a -> a.getAuthority().equals("ROLE_TRAINEE"));
     }
 
     @Test
     void whenLoadUserByUsername_userNotFound_shouldThrowException() {
         // given
-        when(trainerRepository.findByUsername("unknown")).thenReturn(Optional.empty());
-        when(traineeRepository.findByUsername("unknown")).thenReturn(Optional.empty());
+        when(userRepository.findCredentialsByUsername("unknown")).thenReturn(Optional.empty());
         // when + then
         assertThatThrownBy(() -> userDetailsService.loadUserByUsername("unknown"))
                 .isInstanceOf(UsernameNotFoundException.class)
                 .hasMessageContaining("User not found");
     }
-}
 
+
+    @Test
+    void whenLoadUserByUsername_calledTwice_shouldQueryOnce() {
+        // given
+        when(userRepository.findCredentialsByUsername("trainer1"))
+                .thenReturn(Optional.of(new UserCredentialsRow("trainer1", "pass", "TRAINER")));
+        // when
+        UserDetails first = userDetailsService.loadUserByUsername("trainer1");
+        UserDetails second = userDetailsService.loadUserByUsername("trainer1");
+        // then
+        assertThat(second).isSameAs(first);
+        verify(userRepository, times(1)).findCredentialsByUsername("trainer1");
+    }
+
+
+    @Test
+    void whenEvict_shouldReloadOnNextLookup() {
+        // given
+        when(userRepository.findCredentialsByUsername("trainer1"))
+                .thenReturn(Optional.of(new UserCredentialsRow("trainer1", "old", "TRAINER")))
+                .thenReturn(Optional.of(new UserCredentialsRow("trainer1", "new", "TRAINER")));
+        userDetailsService.loadUserByUsername("trainer1");
+        // when
+        userDetailsService.evict("trainer1");
+        // then
+        assertThat(userDetailsService.loadUserByUsername("trainer1").getPassword()).isEqualTo("new");
+    }
+
+
+    @Test
+    void whenCachedEntryExpired_shouldReload() {
+        // given
+        ReflectionTestUtils.setField(userDetailsService, "ttl", Duration.ZERO);
+        when(userRepository.findCredentialsByUsername("trainer1"))
+                .thenReturn(Optional.of(new UserCredentialsRow("trainer1", "pass", "TRAINER")));
+        // when
+        userDetailsService.loadUserByUsername("trainer1");
+        userDetailsService.loadUserByUsername("trainer1");
+        // then
+        verify(userRepository, times(2)).findCredentialsByUsername("trainer1");
+    }
+}
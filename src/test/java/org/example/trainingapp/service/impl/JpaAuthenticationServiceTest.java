@@ -10,6 +10,7 @@ import org.example.trainingapp.entity.User;
 import org.example.trainingapp.filter.AuthTokenFilter;
 import org.example.trainingapp.jwt.JwtTokenUtil;
 import org.example.trainingapp.jwt.TokenBlacklistUtil;
+import org.example.trainingapp.jwt.VerifiedTokenCache;
 import org.example.trainingapp.repository.UserRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -32,8 +33,10 @@ import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -65,6 +68,9 @@ class JpaAuthenticationServiceTest {
     @Mock
     private TokenBlacklistUtil tokenBlacklistUtil;
 
+    @Mock
+    private VerifiedTokenCache verifiedTokenCache;
+
     @InjectMocks
     private JpaAuthenticationService authService;
 
@@ -147,19 +153,36 @@ class JpaAuthenticationServiceTest {
         user.setPassword("hashed");
         user.setFailedAttempts(1);
         user.setLastFailedLogin(LocalDateTime.now().minusMinutes(1));
-        UserDetails userDetails = org.springframework.security.core.userdetails.User
-                .withUsername("user1")
-                .password("hashed")
-                .roles("TRAINEE")
-                .build();
         when(userRepository.findByUsername("user1")).thenReturn(Optional.of(user));
-        when(userDetailsService.loadUserByUsername("user1")).thenReturn(userDetails);
         when(passwordEncoder.matches("wrong", "hashed")).thenReturn(false);
         // when + then
         assertThatThrownBy(() -> authService.authorize("user1", "wrong"))
                 .isInstanceOf(SecurityException.class)
                 .hasMessageContaining("Invalid credentials");
         verify(userRepository).save(argThat(saved -> saved.getFailedAttempts() == 2));
+        verify(userDetailsService, never()).loadUserByUsername(any());
+    }
+
+
+    @Test
+    void whenAuthorize_cachedDetailsHaveOldPassword_shouldCheckAgainstUserRow() {
+        // given
+        User user = new Trainee();
+        user.setUsername("user1");
+        user.setPassword("new-hash");                                   //  changed on another node
+        UserDetails cached = org.springframework.security.core.userdetails.User
+                .withUsername("user1")
+                .password("old-hash")
+                .roles("TRAINEE")
+                .build();
+        when(userRepository.findByUsername("user1")).thenReturn(Optional.of(user));
+        when(userDetailsService.loadUserByUsername("user1")).thenReturn(cached);
+        when(passwordEncoder.matches("new", "new-hash")).thenReturn(true);
+        // when
+        JwtResponse response = authService.authorize("user1", "new");
+        // then
+        assertThat(response.getRole()).isEqualTo("TRAINEE");
+        verify(passwordEncoder, never()).matches(any(), eq("old-hash"));
     }
 
 
@@ -217,6 +240,7 @@ class JpaAuthenticationServiceTest {
         authService.logout();
         // then
         verify(tokenBlacklistUtil).blacklistToken(eq(token), eq(exp));
+        verify(verifiedTokenCache).invalidate(token);
     }
 }
 
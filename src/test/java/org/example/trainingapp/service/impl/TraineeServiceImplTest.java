@@ -1,41 +1,49 @@
 package org.example.trainingapp.service.impl;
 
 import org.example.trainingapp.converter.Converter;
-import org.example.trainingapp.dto.ActionType;
 import org.example.trainingapp.dto.ActiveStatusDto;
 import org.example.trainingapp.dto.TraineeRequestDto;
 import org.example.trainingapp.dto.TraineeResponseDto;
+import org.example.trainingapp.dto.TrainerMonthHours;
+import org.example.trainingapp.dto.TrainerPage;
 import org.example.trainingapp.dto.TrainerShortDto;
+import org.example.trainingapp.dto.TrainingListRow;
+import org.example.trainingapp.dto.TrainingPage;
 import org.example.trainingapp.dto.TrainingResponseDto;
 import org.example.trainingapp.dto.TrainingUpdateRequest;
 import org.example.trainingapp.dto.UpdateTrainerListDto;
 import org.example.trainingapp.entity.Trainee;
 import org.example.trainingapp.entity.Trainer;
-import org.example.trainingapp.entity.Training;
-import org.example.trainingapp.entity.TrainingType;
 import org.example.trainingapp.exception.ForbiddenAccessException;
+import org.example.trainingapp.jwt.VerifiedTokenCache;
 import org.example.trainingapp.repository.TraineeRepository;
 import org.example.trainingapp.repository.TrainerRepository;
+import org.example.trainingapp.repository.TrainingRepository;
 import org.example.trainingapp.util.AuthContextUtil;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.example.trainingapp.constant.Constant.DEFAULT_PAGE_SIZE;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -50,6 +58,9 @@ class TraineeServiceImplTest {
     @Mock
     private TrainerRepository trainerRepository;
 
+    @Mock
+    private TrainingRepository trainingRepository;
+
     @Mock
     private Converter converter;
 
@@ -60,7 +71,13 @@ class TraineeServiceImplTest {
     private PasswordEncoder passwordEncoder;
 
     @Mock
-    private TrainerHoursPublisher trainerHoursPublisher;
+    private CustomUserDetailsService userDetailsService;
+
+    @Mock
+    private TrainerHoursOutbox trainerHoursOutbox;
+
+    @Mock
+    private VerifiedTokenCache verifiedTokenCache;
 
     @InjectMocks
     private TraineeServiceImpl traineeService;
@@ -83,7 +100,7 @@ class TraineeServiceImplTest {
                 .lastName("Rakhimova")
                 .dateOfBirth(LocalDate.of(1990, 1, 1))
                 .address("Astana")
-                .trainers(new ArrayList<>())
+                .trainers(new HashSet<>())
                 .build();
         when(traineeRepository.findByUsernameWithTrainers(username)).thenReturn(Optional.of(traineeEntity));
         // when
@@ -116,8 +133,8 @@ class TraineeServiceImplTest {
         Trainee trainee = new Trainee();
         trainee.setUsername(username);
         trainee.setTrainings(new ArrayList<>());
-        trainee.setTrainers(new ArrayList<>());
-        when(traineeRepository.findByUsernameWithTrainings(username)).thenReturn(Optional.of(trainee));
+        trainee.setTrainers(new HashSet<>());
+        when(traineeRepository.findByNaturalId(username)).thenReturn(Optional.of(trainee));
         // when
         traineeService.deleteTrainee(username);
         // then
@@ -156,7 +173,7 @@ class TraineeServiceImplTest {
         // given
         String username = "Missing.User";
         when(authContextUtil.getUsername()).thenReturn(username);
-        when(traineeRepository.findByUsernameWithTrainings(username)).thenReturn(Optional.empty());
+        when(traineeRepository.findByNaturalId(username)).thenReturn(Optional.empty());
         // when + then
         assertThatThrownBy(() -> traineeService.deleteTrainee(username))
                 .isInstanceOf(NoSuchElementException.class)
@@ -172,8 +189,8 @@ class TraineeServiceImplTest {
         Trainee trainee = new Trainee();
         trainee.setUsername(username);
         trainee.setTrainings(new ArrayList<>());
-        trainee.setTrainers(new ArrayList<>());
-        when(traineeRepository.findByUsernameWithTrainings(username)).thenReturn(Optional.of(trainee));
+        trainee.setTrainers(new HashSet<>());
+        when(traineeRepository.findByNaturalId(username)).thenReturn(Optional.of(trainee));
         // when
         traineeService.deleteTrainee(username);
         // then
@@ -187,7 +204,7 @@ class TraineeServiceImplTest {
         String username = "Dina.Aliyeva";
         String password = "password123";
         Trainee trainee = new Trainee(3L, "Dina", "Aliyeva", username, password, true,
-                LocalDate.of(1992, 3, 3), "Almaty", new ArrayList<>(), new ArrayList<>());
+                LocalDate.of(1992, 3, 3), "Almaty", new ArrayList<>(), new HashSet<>());
         List<TrainerShortDto> trainerShortDtos = new ArrayList<>();
         TraineeResponseDto expectedDto = TraineeResponseDto.builder()
                 .username(username)
@@ -199,8 +216,7 @@ class TraineeServiceImplTest {
                 .trainers(trainerShortDtos)
                 .build();
         when(authContextUtil.getUsername()).thenReturn(username);
-        when(traineeRepository.findByUsername(username)).thenReturn(Optional.of(trainee));
-        when(traineeRepository.findByUsernameWithTrainers(username)).thenReturn(Optional.of(trainee));
+        when(traineeRepository.findByNaturalId(username)).thenReturn(Optional.of(trainee));
         when(converter.entityToDtoWithoutUsername(trainee, trainerShortDtos)).thenReturn(expectedDto);
         // when
         TraineeResponseDto result = traineeService.getTraineeByUsername(username);
@@ -221,7 +237,7 @@ class TraineeServiceImplTest {
         // given
         String username = "nonexistentUser";
         when(authContextUtil.getUsername()).thenReturn(username);
-        when(traineeRepository.findByUsername(username)).thenReturn(Optional.empty());
+        when(traineeRepository.findByNaturalId(username)).thenReturn(Optional.empty());
         // when + then
         assertThatThrownBy(() -> traineeService.getTraineeByUsername(username))
                 .isInstanceOf(RuntimeException.class)
@@ -235,283 +251,336 @@ class TraineeServiceImplTest {
         String username = "Azamat.Yeszhanov";
         Trainee trainee = new Trainee(20L, "Azamat", "Yeszhanov", username, "pw",
                 true, LocalDate.of(1994, 4, 4), "Astana", null, null);
-        when(traineeRepository.findByUsername(username)).thenReturn(Optional.of(trainee));
+        when(traineeRepository.findByNaturalId(username)).thenReturn(Optional.of(trainee));
         // when
         ActiveStatusDto dto = new ActiveStatusDto(username, false);
         traineeService.setTraineeActiveStatus(dto);
         // then
         assertThat(trainee.isActive()).isFalse();
         verify(traineeRepository).save(trainee);
+        verify(verifiedTokenCache).invalidateUser(username);
+        verify(userDetailsService).evict(username);
     }
 
 
     @Test
-    void whenGettingTraineeTrainings_andTraineeHasNoTrainings_shouldReturnEmptyList() {
+    void whenGettingTraineeTrainings_andTraineeHasNoTrainings_shouldReturnEmptyPage() {
         // given
         String username = "Elena.Zharkynbaeva";
-        Trainee trainee = new Trainee(40L, "Elena", "Zharkynbaeva", username, "pw",
-                true, LocalDate.of(1995, 6, 6), "Pavlodar", Collections.emptyList(),
-                new ArrayList<>());
         when(authContextUtil.getUsername()).thenReturn(username);
-        when(traineeRepository.findByUsernameWithTrainings(username)).thenReturn(Optional.of(trainee));
-
+        when(traineeRepository.existsByUsername(username)).thenReturn(true);
+        when(trainingRepository.findTraineeTrainings(username, null, null, null, null, null, null, Limit.of(11)))
+                .thenReturn(List.of());
         // when
-        List<TrainingResponseDto> result = traineeService.getTraineeTrainings(username, null, null,
-                null, null);
-
+        TrainingPage result = traineeService.getTraineeTrainings(username, null, null, null, null,
+                null, 10, false);
         // then
-        assertThat(result).isEmpty();
+        assertThat(result.trainings()).isEmpty();
+        assertThat(result.nextCursor()).isNull();
+        assertThat(result.totalCount()).isNull();
+        verify(trainingRepository, never()).countTraineeTrainings(any(), any(), any(), any(), any());
     }
 
 
     @Test
-    void whenGettingTraineeTrainings_withDateRange_shouldFilterCorrectly() {
+    void whenGettingTraineeTrainings_withFilters_shouldPassThemToQuery() {
         // given
         String username = "Dina.Aliyeva";
-        Trainee trainee = new Trainee(1L, "Dina", "Aliyeva", username, "pw", true,
-                LocalDate.of(1992, 3, 3), "Almaty", new ArrayList<>(), new ArrayList<>());
-        Training training1 = new Training();
-        training1.setTrainingDate(LocalDate.of(2024, 5, 10));
-        training1.setTrainingName("Kickboxing");
-        Trainer trainer1 = new Trainer();
-        trainer1.setUsername("Arman.Nurpeisov");
-        training1.setTrainer(trainer1);
-
-        Training training2 = new Training();
-        training2.setTrainingDate(LocalDate.of(2024, 5, 20));
-        training2.setTrainingName("Boxing Basics");
-        Trainer trainer2 = new Trainer();
-        trainer2.setUsername("Oksana.Mikhaylova");
-        training2.setTrainer(trainer2);
-
-        trainee.getTrainings().add(training1);
-        trainee.getTrainings().add(training2);
-
-        when(converter.entityToDtoWithNullTrainee(training2)).thenReturn(
-                TrainingResponseDto.builder()
-                        .name(training2.getTrainingName())
-                        .date(training2.getTrainingDate())
-                        .trainerName(training2.getTrainer().getUsername())
-                        .build()
-        );
-        when(traineeRepository.findByUsernameWithTrainings(username)).thenReturn(Optional.of(trainee));
         LocalDate fromDate = LocalDate.of(2024, 5, 15);
         LocalDate toDate = LocalDate.of(2024, 5, 25);
+        TrainingListRow row = new TrainingListRow(102L, "Boxing Basics", LocalDate.of(2024, 5, 20), "Boxing",
+                60, username, "Oksana.Mikhaylova");
+        TrainingResponseDto dto = TrainingResponseDto.builder()
+                .name("Boxing Basics")
+                .date(LocalDate.of(2024, 5, 20))
+                .trainerName("Oksana.Mikhaylova")
+                .build();
         when(authContextUtil.getUsername()).thenReturn(username);
+        when(traineeRepository.existsByUsername(username)).thenReturn(true);
+        when(trainingRepository.findTraineeTrainings(username, fromDate, toDate, "Oksana.Mikhaylova", "Boxing",
+                null, null, Limit.of(11))).thenReturn(List.of(row));
+        when(converter.rowToDtoWithNullTrainee(row)).thenReturn(dto);
         // when
-        List<TrainingResponseDto> result = traineeService.getTraineeTrainings(username, fromDate, toDate, null,
-                null);
+        TrainingPage result = traineeService.getTraineeTrainings(username, fromDate, toDate,
+                "Oksana.Mikhaylova", "Boxing", null, 10, false);
         // then
-        assertThat(result).hasSize(1);
-        assertThat(result.getFirst().getDate()).isEqualTo(training2.getTrainingDate());
-        assertThat(result.getFirst().getName()).isEqualTo("Boxing Basics");
+        assertThat(result.trainings()).containsExactly(dto);
+        assertThat(result.nextCursor()).isNull();
     }
 
 
     @Test
-    void whenGettingTraineeTrainings_withTrainerName_shouldFilterCorrectly() {
+    void whenGettingTraineeTrainings_moreRowsThanSize_shouldTrimAndReturnNextCursor() {
         // given
         String username = "Dina.Aliyeva";
-        Trainee trainee = new Trainee(2L, "Dina", "Aliyeva", username, "pw", true,
-                LocalDate.of(1992, 3, 3), "Almaty", new ArrayList<>(), new ArrayList<>());
-
-        Trainer trainer1 = new Trainer();
-        trainer1.setId(1L);
-        trainer1.setUsername("Arman.Nurpeisov");
-        Trainer trainer2 = new Trainer();
-        trainer2.setId(2L);
-        trainer2.setUsername("Oksana.Mikhaylova");
-
-        Training training1 = new Training();
-        training1.setId(101L);
-        training1.setTrainer(trainer1);
-        training1.setTrainingName("Kickboxing");
-
-        Training training2 = new Training();
-        training2.setId(102L);
-        training2.setTrainer(trainer2);
-        training2.setTrainingName("Boxing Basics");
-
-        trainee.getTrainings().add(training1);
-        trainee.getTrainings().add(training2);
-
-        when(traineeRepository.findByUsernameWithTrainings(username)).thenReturn(Optional.of(trainee));
-        when(converter.entityToDtoWithNullTrainee(training2)).thenReturn(
-                TrainingResponseDto.builder()
-                        .name("Boxing Basics")
-                        .trainerName("Oksana.Mikhaylova")
-                        .build()
-        );
+        TrainingListRow first = new TrainingListRow(7L, "Session 1", LocalDate.of(2024, 6, 1), "Yoga",
+                60, username, "Arman.Nurpeisov");
+        TrainingListRow second = new TrainingListRow(3L, "Session 2", LocalDate.of(2024, 6, 2), "Yoga",
+                60, username, "Arman.Nurpeisov");
+        TrainingListRow extra = new TrainingListRow(9L, "Session 3", LocalDate.of(2024, 6, 2), "Yoga",
+                60, username, "Arman.Nurpeisov");
         when(authContextUtil.getUsername()).thenReturn(username);
+        when(traineeRepository.existsByUsername(username)).thenReturn(true);
+        when(trainingRepository.findTraineeTrainings(username, null, null, null, null, null, null, Limit.of(3)))
+                .thenReturn(List.of(first, second, extra));
+        when(converter.rowToDtoWithNullTrainee(any(TrainingListRow.class)))
+                .thenAnswer(invocation -> TrainingResponseDto.builder()
+                        .name(invocation.<TrainingListRow>getArgument(0).name())
+                        .build());
         // when
-        List<TrainingResponseDto> result = traineeService.getTraineeTrainings(username, null, null,
-                "Oksana.Mikhaylova", null);
+        TrainingPage result = traineeService.getTraineeTrainings(username, null, null, null, null,
+                null, 2, false);
         // then
-        assertThat(result).hasSize(1);
-        assertThat(result.getFirst().getName()).isEqualTo("Boxing Basics");
-        assertThat(result.getFirst().getTrainerName()).isEqualTo("Oksana.Mikhaylova");
+        assertThat(result.trainings()).extracting(TrainingResponseDto::getName)
+                .containsExactly("Session 1", "Session 2");
+        assertThat(result.nextCursor()).isEqualTo("2024-06-02_3");
     }
 
 
     @Test
-    void whenGettingTraineeTrainings_withTrainingType_shouldFilterCorrectly() {
+    void whenGettingTraineeTrainings_withCursorAndCount_shouldContinueAfterCursorAndCount() {
         // given
         String username = "Dina.Aliyeva";
-        Trainee trainee = Trainee.builder()
-                .firstName("Dina")
-                .lastName("Aliyeva")
-                .username(username)
-                .password("pw")
-                .active(true)
-                .dateOfBirth(LocalDate.of(1992, 3, 3))
-                .address("Almaty")
-                .trainers(new ArrayList<>())
-                .trainings(new ArrayList<>())
-                .build();
-        TrainingType yoga = new TrainingType();
-        yoga.setId(1L);
-        yoga.setName("Yoga");
-        TrainingType boxing = new TrainingType();
-        boxing.setId(2L);
-        boxing.setName("Boxing");
-
-        Training training1 = new Training();
-        training1.setTrainingType(yoga);
-        Trainer arman = new Trainer();
-        arman.setUsername("Arman.Nurpeisov");
-        training1.setTrainer(arman);
-
-        Training training2 = new Training();
-        training2.setTrainingType(boxing);
-        Trainer oksana = new Trainer();
-        oksana.setUsername("Oksana.Mikhaylova");
-        training2.setTrainer(oksana);
-
-        trainee.getTrainings().add(training1);
-        trainee.getTrainings().add(training2);
-
-        when(traineeRepository.findByUsernameWithTrainings(username)).thenReturn(Optional.of(trainee));
-        when(converter.entityToDtoWithNullTrainee(training2)).thenReturn(
-                TrainingResponseDto.builder()
-                        .type("Boxing")
-                        .build()
-        );
+        LocalDate fromDate = LocalDate.of(2024, 1, 1);
+        when(authContextUtil.getUsername()).thenReturn(username);
+        when(traineeRepository.existsByUsername(username)).thenReturn(true);
+        when(trainingRepository.findTraineeTrainings(username, fromDate, null, null, null,
+                LocalDate.of(2024, 6, 2), 3L, Limit.of(3))).thenReturn(List.of());
+        when(trainingRepository.countTraineeTrainings(username, fromDate, null, null, null)).thenReturn(2L);
+        // when
+        TrainingPage result = traineeService.getTraineeTrainings(username, fromDate, null, null, null,
+                "2024-06-02_3", 2, true);
+        // then
+        assertThat(result.trainings()).isEmpty();
+        assertThat(result.totalCount()).isEqualTo(2L);
+    }
+
+
+    @Test
+    void whenGettingTraineeTrainings_noSizeAndNoCursor_shouldReturnWholeHistoryUnpaged() {
+        // given
+        String username = "Dina.Aliyeva";
+        List<TrainingListRow> rows = LongStream.rangeClosed(1, 150)
+                .mapToObj(id -> new TrainingListRow(id, "Session " + id, LocalDate.of(2024, 6, 1), "Yoga",
+                        60, username, "Arman.Nurpeisov"))
+                .toList();
         when(authContextUtil.getUsername()).thenReturn(username);
+        when(traineeRepository.existsByUsername(username)).thenReturn(true);
+        when(trainingRepository.findTraineeTrainings(username, null, null, null, null, null, null, Limit.unlimited()))
+                .thenReturn(rows);
+        when(converter.rowToDtoWithNullTrainee(any(TrainingListRow.class))).thenReturn(new TrainingResponseDto());
         // when
-        List<TrainingResponseDto> result = traineeService.getTraineeTrainings(username, null, null,
-                "Oksana.Mikhaylova", null);
+        TrainingPage result = traineeService.getTraineeTrainings(username, null, null, null, null,
+                null, null, false);
         // then
-        assertThat(result).hasSize(1);
-        assertThat(result.getFirst().getType()).isEqualTo("Boxing");
+        assertThat(result.trainings()).hasSize(150);                // old clients are not cut at a page size
+        assertThat(result.nextCursor()).isNull();
     }
 
 
     @Test
-    void whenGettingTraineeTrainings_withNoFilters_shouldReturnAll() {
+    void whenGettingTraineeTrainings_cursorWithoutSize_shouldUseDefaultPageSize() {
         // given
         String username = "Dina.Aliyeva";
-        Trainee trainee = new Trainee(4L, "Dina", "Aliyeva", username, "pw", true,
-                LocalDate.of(1992, 3, 3), "Almaty", new ArrayList<>(), new ArrayList<>());
-
-        Training training1 = new Training();
-        training1.setTrainingName("Session 1");
-        training1.setTrainingDate(LocalDate.of(2024, 6, 1));
-        Trainer arman = new Trainer();
-        arman.setUsername("Arman.Nurpeisov");
-        training1.setTrainer(arman);
-
-        Training training2 = new Training();
-        training2.setTrainingName("Session 2");
-        training2.setTrainingDate(LocalDate.of(2024, 6, 2));
-        Trainer oksana = new Trainer();
-        oksana.setUsername("Oksana.Mikhaylova");
-        training2.setTrainer(oksana);
-
-        trainee.getTrainings().add(training1);
-        trainee.getTrainings().add(training2);
-
-        when(converter.entityToDtoWithNullTrainee(any(Training.class)))
-                .thenAnswer(invocation -> {
-                    Training training = invocation.getArgument(0);
-                    return TrainingResponseDto.builder()
-                            .name(training.getTrainingName())
-                            .date(training.getTrainingDate())
-                            .build();
-                });
-        when(traineeRepository.findByUsernameWithTrainings(username)).thenReturn(Optional.of(trainee));
         when(authContextUtil.getUsername()).thenReturn(username);
+        when(traineeRepository.existsByUsername(username)).thenReturn(true);
+        when(trainingRepository.findTraineeTrainings(username, null, null, null, null,
+                LocalDate.of(2024, 6, 2), 3L, Limit.of(101))).thenReturn(List.of());
         // when
-        List<TrainingResponseDto> result = traineeService.getTraineeTrainings(username, null, null,
-                null, null);
+        TrainingPage result = traineeService.getTraineeTrainings(username, null, null, null, null,
+                "2024-06-02_3", null, false);
         // then
-        assertThat(result).hasSize(2);
-        List<String> names = result.stream().map(TrainingResponseDto::getName).toList();
-        assertThat(names).containsExactlyInAnyOrder("Session 1", "Session 2");
+        assertThat(result.trainings()).isEmpty();
+    }
+
+
+    @Test
+    void whenGettingTraineeTrainings_traineeNotFound_shouldThrow() {
+        // given
+        String username = "Not.Exist";
+        when(authContextUtil.getUsername()).thenReturn(username);
+        when(traineeRepository.existsByUsername(username)).thenReturn(false);
+        // when + then
+        assertThatThrownBy(() -> traineeService.getTraineeTrainings(username, null, null, null, null,
+                null, 10, false))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessageContaining("Not found trainee with username: " + username);
+        verify(trainingRepository, never()).findTraineeTrainings(any(), any(), any(), any(), any(), any(), any(), any());
     }
 
 
     @Test
-    void whenUpdatingTraineeTrainers_shouldSetNewTrainers() {
+    void whenGettingTraineeTrainings_invalidCursorOrSize_shouldThrow() {
+        // given
+        String username = "Dina.Aliyeva";
+        when(authContextUtil.getUsername()).thenReturn(username);
+        // when + then
+        assertThatThrownBy(() -> traineeService.getTraineeTrainings(username, null, null, null, null,
+                "not-a-cursor", 10, false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid page cursor");
+        assertThatThrownBy(() -> traineeService.getTraineeTrainings(username, null, null, null, null,
+                null, 0, false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Page size must be between 1 and");
+    }
+
+
+    @Test
+    void whenUpdatingTraineeTrainers_shouldLinkOnlyAddedAndUnlinkOnlyRemovedTrainers() {
         // given
         String username = "Aigerim.Seilkhanova";
+        Trainer kept = Trainer.builder().id(1L).username("Arman.Nurpeisov").build();
+        Trainer removed = Trainer.builder().id(2L).username("Daniyar.Zhumagulov").build();
+        Trainer added = Trainer.builder().id(3L).username("Saule.Bekova").build();
         Trainee trainee = new Trainee(50L, "Aigerim", "Seilkhanova", username, "pw",
                 true, LocalDate.of(1996, 7, 7), "Shymkent", new ArrayList<>(),
-                new ArrayList<>());
-        when(traineeRepository.findByUsernameWithTrainers(username)).thenReturn(Optional.of(trainee));
-        Trainer trainer1 = new Trainer();
-        trainer1.setId(1L);
-        trainer1.setUsername("Arman.Nurpeisov");
-        trainer1.setTrainees(new ArrayList<>());
-        when(trainerRepository.findByUsernameWithTrainees("Arman.Nurpeisov")).thenReturn(Optional.of(trainer1));
+                new HashSet<>(List.of(kept, removed)));
+        when(traineeRepository.findByNaturalId(username)).thenReturn(Optional.of(trainee));
+        when(trainerRepository.findByUsernameIn(Set.of("Saule.Bekova", "Arman.Nurpeisov")))
+                .thenReturn(List.of(kept, added));
+        when(converter.entityToShortDto(any(Trainer.class)))
+                .thenAnswer(inv -> TrainerShortDto.builder().username(inv.<Trainer>getArgument(0).getUsername()).build());
         // when
-        UpdateTrainerListDto dto = new UpdateTrainerListDto(username, List.of("Arman.Nurpeisov"));
-        traineeService.updateTraineeTrainers(dto);
+        UpdateTrainerListDto dto = new UpdateTrainerListDto(username, List.of("Saule.Bekova", "Arman.Nurpeisov"));
+        List<TrainerShortDto> result = traineeService.updateTraineeTrainers(dto);
         // then
-        assertThat(trainee.getTrainers()).contains(trainer1);
-        verify(traineeRepository).save(trainee);
+        assertThat(result).extracting(TrainerShortDto::getUsername).containsExactly("Saule.Bekova", "Arman.Nurpeisov");
+        verify(trainerRepository).unlinkTrainee(50L, List.of(2L));
+        verify(trainerRepository).linkTrainee(50L, List.of(3L));
+        verify(trainerRepository).evictTraineeLinks(50L, List.of(2L, 3L));
+        verify(traineeRepository, never()).save(any());
+    }
+
+
+    @Test
+    void whenUpdatingTraineeTrainers_sameTrainers_shouldNotTouchJoinTable() {
+        // given
+        String username = "Aigerim.Seilkhanova";
+        Trainer kept = Trainer.builder().id(1L).username("Arman.Nurpeisov").build();
+        Trainee trainee = Trainee.builder().id(50L).username(username).trainers(new HashSet<>(List.of(kept))).build();
+        when(traineeRepository.findByNaturalId(username)).thenReturn(Optional.of(trainee));
+        when(trainerRepository.findByUsernameIn(Set.of("Arman.Nurpeisov"))).thenReturn(List.of(kept));
+        // when
+        traineeService.updateTraineeTrainers(new UpdateTrainerListDto(username, List.of("Arman.Nurpeisov")));
+        // then
+        verify(trainerRepository, never()).unlinkTrainee(any(), any());
+        verify(trainerRepository, never()).linkTrainee(any(), any());
+        verify(trainerRepository, never()).evictTraineeLinks(any(), any());
+    }
+
+
+    @Test
+    void whenUpdatingTraineeTrainers_unknownTrainer_shouldThrowNoSuchElementException() {
+        // given
+        String username = "Aigerim.Seilkhanova";
+        Trainee trainee = Trainee.builder().id(50L).username(username).trainers(new HashSet<>()).build();
+        when(traineeRepository.findByNaturalId(username)).thenReturn(Optional.of(trainee));
+        when(trainerRepository.findByUsernameIn(Set.of("Ghost.Trainer"))).thenReturn(List.of());
+        // when + then
+        assertThatThrownBy(() -> traineeService.updateTraineeTrainers(
+                new UpdateTrainerListDto(username, List.of("Ghost.Trainer"))))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessageContaining("Not found trainer with username: Ghost.Trainer");
+        verify(trainerRepository, never()).linkTrainee(any(), any());
     }
 
 
     @Test
-    void whenGettingAvailableTrainersForTrainee_shouldReturnUnassignedTrainers() {
+    void whenGettingAvailableTrainersForTrainee_shouldReturnUnassignedTrainersFromQuery() {
         // given
         String username = "Bagdat.Serikbay";
-        Trainee trainee = new Trainee();
-        trainee.setId(60L);
-        trainee.setUsername(username);
+        TrainerShortDto unassigned = TrainerShortDto.builder()
+                .username("Daniyar.Zhumagulov")
+                .firstName("Daniyar")
+                .lastName("Zhumagulov")
+                .specializationName("Yoga")
+                .build();
+        when(authContextUtil.getUsername()).thenReturn(username);
+        when(traineeRepository.existsByUsername(username)).thenReturn(true);
+        when(trainerRepository.findNotAssignedToTrainee(username, "Yoga", true, null, Limit.of(11)))
+                .thenReturn(List.of(unassigned));
+        // when
+        TrainerPage result = traineeService.getAvailableTrainersForTrainee(username, "Yoga", true, null, 10);
+        // then
+        assertThat(result.trainers()).containsExactly(unassigned);
+        assertThat(result.nextCursor()).isNull();
+        verify(trainerRepository, never()).findAll();
+    }
+
 
-        Trainer assignedTrainer = new Trainer();
-        assignedTrainer.setId(1L);
-        assignedTrainer.setUsername("Anna.Borisova");
-        assignedTrainer.setFirstName("Anna");
-        assignedTrainer.setLastName("Borisova");
-
-        Trainer unassignedTrainer = new Trainer();
-        unassignedTrainer.setId(2L);
-        unassignedTrainer.setUsername("Daniyar.Zhumagulov");
-        unassignedTrainer.setFirstName("Daniyar");
-        unassignedTrainer.setLastName("Zhumagulov");
-
-        trainee.setTrainers(List.of(assignedTrainer));
-        when(traineeRepository.findByUsernameWithTrainers(username)).thenReturn(Optional.of(trainee));
-        when(trainerRepository.findAll()).thenReturn(List.of(assignedTrainer, unassignedTrainer));
-        when(converter.entityToShortDto(unassignedTrainer)).thenReturn(
-                TrainerShortDto.builder()
-                        .username(unassignedTrainer.getUsername())
-                        .firstName(unassignedTrainer.getFirstName())
-                        .lastName(unassignedTrainer.getLastName())
-                        .specializationName(null)  // или нужное значение, если задано
-                        .build()
-        );
+    @Test
+    void whenGettingAvailableTrainersForTrainee_moreThanSize_shouldReturnLastUsernameAsCursor() {
+        // given
+        String username = "Bagdat.Serikbay";
+        TrainerShortDto first = TrainerShortDto.builder().username("Anna.Borisova").build();
+        TrainerShortDto extra = TrainerShortDto.builder().username("Daniyar.Zhumagulov").build();
+        when(authContextUtil.getUsername()).thenReturn(username);
+        when(traineeRepository.existsByUsername(username)).thenReturn(true);
+        when(trainerRepository.findNotAssignedToTrainee(username, null, null, null, Limit.of(2)))
+                .thenReturn(List.of(first, extra));
+        // when
+        TrainerPage result = traineeService.getAvailableTrainersForTrainee(username, null, null, null, 1);
+        // then
+        assertThat(result.trainers()).containsExactly(first);
+        assertThat(result.nextCursor()).isEqualTo("Anna.Borisova");
+    }
+
+
+    @Test
+    void whenGettingAvailableTrainersForTrainee_noSizeNoCursor_shouldReturnAllUnpaged() {
+        // given
+        String username = "Bagdat.Serikbay";
+        TrainerShortDto trainer = TrainerShortDto.builder().username("Anna.Borisova").build();
+        when(authContextUtil.getUsername()).thenReturn(username);
+        when(traineeRepository.existsByUsername(username)).thenReturn(true);
+        when(trainerRepository.findNotAssignedToTrainee(username, null, null, null, Limit.unlimited()))
+                .thenReturn(List.of(trainer));
+        // when
+        TrainerPage result = traineeService.getAvailableTrainersForTrainee(username, null, null, null, null);
+        // then
+        assertThat(result.trainers()).containsExactly(trainer);
+        assertThat(result.nextCursor()).isNull();
+    }
+
+
+    @Test
+    void whenGettingAvailableTrainersForTrainee_cursorWithoutSize_shouldUseDefaultPageSize() {
+        // given
+        String username = "Bagdat.Serikbay";
         when(authContextUtil.getUsername()).thenReturn(username);
+        when(traineeRepository.existsByUsername(username)).thenReturn(true);
+        when(trainerRepository.findNotAssignedToTrainee(username, null, null, "Anna.Borisova",
+                Limit.of(DEFAULT_PAGE_SIZE + 1))).thenReturn(List.of());
         // when
-        List<TrainerShortDto> result = traineeService.getAvailableTrainersForTrainee(username);
+        TrainerPage result = traineeService.getAvailableTrainersForTrainee(username, null, null, "Anna.Borisova", null);
         // then
-        assertThat(result).hasSize(1);
-        TrainerShortDto trainer = result.getFirst();
-        assertThat(trainer.getUsername()).isEqualTo("Daniyar.Zhumagulov");
-        assertThat(trainer.getFirstName()).isEqualTo("Daniyar");
-        assertThat(trainer.getLastName()).isEqualTo("Zhumagulov");
+        assertThat(result.trainers()).isEmpty();
+    }
+
+
+    @Test
+    void whenGettingAvailableTrainersForTrainee_sizeOutOfRange_shouldThrow() {
+        // given
+        String username = "Bagdat.Serikbay";
+        when(authContextUtil.getUsername()).thenReturn(username);
+        // when + then
+        assertThatThrownBy(() -> traineeService.getAvailableTrainersForTrainee(username, null, null, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(trainerRepository, never()).findNotAssignedToTrainee(any(), any(), any(), any(), any());
+    }
+
+
+    @Test
+    void whenGettingAvailableTrainersForTrainee_traineeNotFound_shouldThrow() {
+        // given
+        String username = "Not.Exist";
+        when(authContextUtil.getUsername()).thenReturn(username);
+        when(traineeRepository.existsByUsername(username)).thenReturn(false);
+        // when + then
+        assertThatThrownBy(() -> traineeService.getAvailableTrainersForTrainee(username, null, null, null, 10))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessageContaining("Not found trainee with username: " + username);
     }
 
 
@@ -523,51 +592,53 @@ class TraineeServiceImplTest {
         String encodedPassword = "encodedPass123";
         Trainee trainee = new Trainee(10L, "Dina", "Aliyeva", username, "oldPass",
                 true, LocalDate.of(1992, 3, 3), "Almaty", null, null);
-        when(traineeRepository.findByUsername(username)).thenReturn(Optional.of(trainee));
+        when(traineeRepository.findByNaturalId(username)).thenReturn(Optional.of(trainee));
         when(passwordEncoder.encode(rawPassword)).thenReturn(encodedPassword);
         // when
         traineeService.setNewPassword(username, "newPass");
         // then
         assertThat(trainee.getPassword()).isEqualTo(encodedPassword);
         verify(traineeRepository).save(trainee);
+        verify(verifiedTokenCache).invalidateUser(username);
+        verify(userDetailsService).evict(username);
     }
 
 
     @Test
-    void whenDeleteTrainee_withTrainings_shouldPublishUpdateEvents() {
+    void whenDeleteTrainee_withTrainings_shouldQueueOneEventPerTrainerMonthAndDeleteInBulk() {
         // given
         String username = "Trainer.Test";
         when(authContextUtil.getUsername()).thenReturn(username);
-
-        Training training1 = new Training();
-        training1.setTrainingName("Yoga");
-        Training training2 = new Training();
-        training2.setTrainingName("Boxing");
-
-        Trainee trainee = new Trainee();
-        trainee.setUsername(username);
-        trainee.setTrainings(new ArrayList<>(List.of(training1, training2)));
-        trainee.setTrainers(new ArrayList<>());
-
-        TrainingUpdateRequest update1 = new TrainingUpdateRequest();
-        update1.setTrainerUsername("Trainer1");
-        update1.setActionType(ActionType.DELETE);
-
-        TrainingUpdateRequest update2 = new TrainingUpdateRequest();
-        update2.setTrainerUsername("Trainer2");
-        update2.setActionType(ActionType.DELETE);
-
-        when(traineeRepository.findByUsernameWithTrainings(username)).thenReturn(Optional.of(trainee));
-        when(converter.trainingAndActionToUpdateRequest(training1, ActionType.DELETE)).thenReturn(update1);
-        when(converter.trainingAndActionToUpdateRequest(training2, ActionType.DELETE)).thenReturn(update2);
-
+        Trainer trainer1 = Trainer.builder().id(1L).username("Trainer1").build();
+        Trainer trainer2 = Trainer.builder().id(2L).username("Trainer2").build();
+        Trainee trainee = Trainee.builder().id(40L).username(username)
+                .trainers(new HashSet<>(List.of(trainer1, trainer2))).build();
+        TrainerMonthHours may = new TrainerMonthHours("Trainer1", "T", "One", true, 2024, 5, 540L);
+        TrainerMonthHours june = new TrainerMonthHours("Trainer2", "T", "Two", true, 2024, 6, 90L);
+        TrainingUpdateRequest update1 = TrainingUpdateRequest.builder().trainerUsername("Trainer1").build();
+        TrainingUpdateRequest update2 = TrainingUpdateRequest.builder().trainerUsername("Trainer2").build();
+        when(traineeRepository.findByNaturalId(username)).thenReturn(Optional.of(trainee));
+        when(trainingRepository.sumDurationsByTrainerAndMonthForTrainee(40L)).thenReturn(List.of(may, june));
+        when(converter.monthHoursToDeleteRequest(may)).thenReturn(update1);
+        when(converter.monthHoursToDeleteRequest(june)).thenReturn(update2);
         // when
         traineeService.deleteTrainee(username);
-
         // then
-        verify(trainerHoursPublisher, times(1)).publishUpdate(update1);
-        verify(trainerHoursPublisher, times(1)).publishUpdate(update2);
+        verify(trainerHoursOutbox).enqueueUpdates(List.of(update1, update2));
+        verify(trainingRepository).deleteByTraineeId(40L);
+        verify(trainerRepository).unlinkTraineeFromAll(40L);
+        ArgumentCaptor<List<Long>> evicted = captor();
+        verify(trainerRepository).evictTraineeLinks(eq(40L), evicted.capture());
+        assertThat(evicted.getValue()).containsExactlyInAnyOrder(1L, 2L);
         verify(traineeRepository).delete(trainee);
+        verify(verifiedTokenCache).invalidateUser(username);
+        verify(userDetailsService).evict(username);
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <T> ArgumentCaptor<List<T>> captor() {
+        return ArgumentCaptor.forClass(List.class);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package org.example.trainingapp.service.impl;
+
+import org.example.trainingapp.dto.ActionType;
+import org.example.trainingapp.dto.EventType;
+import org.example.trainingapp.dto.TrainerHoursEvent;
+import org.example.trainingapp.dto.TrainingUpdateRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class TrainerHoursCoalescerTest {
+
+    private final TrainerHoursCoalescer coalescer = new TrainerHoursCoalescer();
+
+
+    @Test
+    void whenCoalesce_sameTrainerAndMonth_shouldMergeIntoNetDelta() {
+        // given
+        List<TrainerHoursEvent> events = List.of(
+                update("tx-1", "Elena.Sokolova", LocalDate.of(2024, 5, 10), 60, ActionType.ADD),
+                update("tx-2", "Elena.Sokolova", LocalDate.of(2024, 5, 20), 90, ActionType.DELETE),
+                update("tx-3", "Elena.Sokolova", LocalDate.of(2024, 5, 21), 15, ActionType.ADD));
+        // when
+        List<TrainerHoursEvent> result = coalescer.coalesce(events);
+        // then
+        assertThat(result).hasSize(1);
+        TrainingUpdateRequest merged = result.getFirst().getTrainingUpdate();
+        assertThat(merged.getActionType()).isEqualTo(ActionType.DELETE);
+        assertThat(merged.getTrainingDuration()).isEqualTo(15);
+        assertThat(merged.getTrainingDate()).isEqualTo(LocalDate.of(2024, 5, 10));
+        assertThat(result.getFirst().getTxId()).isEqualTo("tx-3");
+    }
+
+
+    @Test
+    void whenCoalesce_differentTrainersOrMonths_shouldKeepThemApartInFirstSeenOrder() {
+        // given
+        TrainerHoursEvent mayElena = update("tx-1", "Elena.Sokolova", LocalDate.of(2024, 5, 10), 60, ActionType.ADD);
+        TrainerHoursEvent mayIvan = update("tx-2", "Ivan.Petrov", LocalDate.of(2024, 5, 10), 45, ActionType.ADD);
+        TrainerHoursEvent juneElena = update("tx-3", "Elena.Sokolova", LocalDate.of(2024, 6, 1), 30, ActionType.ADD);
+        // when
+        List<TrainerHoursEvent> result = coalescer.coalesce(List.of(mayElena, mayIvan, juneElena));
+        // then
+        assertThat(result).containsExactly(mayElena, mayIvan, juneElena);
+    }
+
+
+    @Test
+    void whenCoalesce_addAndDeleteCancelOut_shouldDropEvent() {
+        // given
+        List<TrainerHoursEvent> events = List.of(
+                update("tx-1", "Elena.Sokolova", LocalDate.of(2024, 5, 10), 60, ActionType.ADD),
+                update("tx-2", "Elena.Sokolova", LocalDate.of(2024, 5, 10), 60, ActionType.DELETE));
+        // when + then
+        assertThat(coalescer.coalesce(events)).isEmpty();
+    }
+
+
+    @Test
+    void whenCoalesce_clearAllInBetween_shouldNotMergeAcrossIt() {
+        // given
+        TrainerHoursEvent before = update("tx-1", "Elena.Sokolova", LocalDate.of(2024, 5, 10), 60, ActionType.ADD);
+        TrainerHoursEvent clearAll = TrainerHoursEvent.builder().txId("tx-2").type(EventType.CLEAR_ALL).build();
+        TrainerHoursEvent after = update("tx-3", "Elena.Sokolova", LocalDate.of(2024, 5, 11), 30, ActionType.ADD);
+        // when
+        List<TrainerHoursEvent> result = coalescer.coalesce(List.of(before, clearAll, after));
+        // then
+        assertThat(result).containsExactly(before, clearAll, after);
+    }
+
+
+    private TrainerHoursEvent update(String txId, String trainer, LocalDate date, int duration, ActionType action) {
+        return TrainerHoursEvent.builder()
+                .txId(txId)
+                .type(EventType.UPDATE)
+                .trainingUpdate(TrainingUpdateRequest.builder()
+                        .trainerUsername(trainer)
+                        .trainingDate(date)
+                        .trainingDuration(duration)
+                        .actionType(action)
+                        .build())
+                .build();
+    }
+}
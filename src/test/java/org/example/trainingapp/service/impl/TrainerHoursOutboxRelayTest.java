@@ -0,0 +1,205 @@
+package org.example.trainingapp.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.trainingapp.dto.ActionType;
+import org.example.trainingapp.dto.EventType;
+import org.example.trainingapp.dto.TrainerHoursEvent;
+import org.example.trainingapp.dto.TrainingUpdateRequest;
+import org.example.trainingapp.entity.OutboxEvent;
+import org.example.trainingapp.entity.OutboxRelayLock;
+import org.example.trainingapp.exception.MessagingException;
+import org.example.trainingapp.repository.OutboxEventRepository;
+import org.example.trainingapp.repository.OutboxRelayLockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@ExtendWith(MockitoExtension.class)
+class TrainerHoursOutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private TrainerHoursPublisher trainerHoursPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private OutboxRelayLockRepository outboxRelayLockRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private TrainerHoursOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new TrainerHoursOutboxRelay(outboxEventRepository, trainerHoursPublisher, new TrainerHoursCoalescer(),
+                objectMapper, transactionManager, outboxRelayLockRepository);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+
+    @Test
+    void whenRelay_shouldPublishInOrderAndDeleteSentRows() throws Exception {
+        // given
+        OutboxEvent first = row(1L, "tx-1");
+        OutboxEvent second = row(2L, "tx-2");
+        when(outboxEventRepository.findBatchForRelay(any(Limit.class))).thenReturn(List.of(first, second));
+        // when
+        int relayed = relay.relay();
+        // then
+        assertThat(relayed).isEqualTo(2);
+        verify(trainerHoursPublisher).publishEvents(argThat(events -> events.size() == 2
+                && "tx-1".equals(events.get(0).getTxId()) && "tx-2".equals(events.get(1).getTxId())));
+        verify(outboxEventRepository).deleteAllInBatch(List.of(first, second));
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenRelay_fullBatch_shouldContinueWithNextBatch() throws Exception {
+        // given
+        ReflectionTestUtils.setField(relay, "batchSize", 1);
+        OutboxEvent first = row(1L, "tx-1");
+        OutboxEvent second = row(2L, "tx-2");
+        when(outboxEventRepository.findBatchForRelay(any(Limit.class)))
+                .thenReturn(List.of(first), List.of(second), List.of());
+        // when
+        int relayed = relay.relay();
+        // then
+        assertThat(relayed).isEqualTo(2);
+        verify(outboxEventRepository, times(3)).findBatchForRelay(Limit.of(1));
+    }
+
+
+    @Test
+    void whenRelay_resyncHoldsLock_shouldLeaveOutboxUntouched() throws Exception {
+        // given
+        when(outboxRelayLockRepository.lockForRelay()).thenReturn(List.of());
+        when(outboxRelayLockRepository.existsById(OutboxRelayLock.ID)).thenReturn(true);
+        // when
+        int relayed = relay.relay();
+        // then
+        assertThat(relayed).isZero();
+        verify(outboxEventRepository, never()).findBatchForRelay(any(Limit.class));
+        verify(trainerHoursPublisher, never()).publishEvents(any());
+    }
+
+
+    @Test
+    void whenRelay_brokerDown_shouldKeepWholeBatchForNextRun() throws Exception {
+        // given
+        OutboxEvent first = row(1L, "tx-1");
+        OutboxEvent second = row(2L, "tx-2");
+        when(outboxEventRepository.findBatchForRelay(any(Limit.class))).thenReturn(List.of(first, second));
+        doThrow(new MessagingException("Batch publish failed (circuit breaker fallback)", null))
+                .when(trainerHoursPublisher).publishEvents(any());
+        // when
+        int relayed = relay.relay();
+        // then
+        assertThat(relayed).isZero();
+        verify(outboxEventRepository).deleteAllInBatch(List.of());
+        verify(outboxEventRepository, times(1)).findBatchForRelay(any(Limit.class));
+    }
+
+
+    @Test
+    void whenRelay_unreadablePayload_shouldDropRowAndSendTheRest() throws Exception {
+        // given
+        OutboxEvent broken = OutboxEvent.builder().id(1L).txId("tx-1").payload("{not json")
+                .createdAt(LocalDateTime.now()).build();
+        OutboxEvent good = row(2L, "tx-2");
+        when(outboxEventRepository.findBatchForRelay(any(Limit.class))).thenReturn(List.of(broken, good));
+        // when
+        relay.relay();
+        // then
+        verify(trainerHoursPublisher).publishEvents(argThat(events -> events.size() == 1));
+        verify(outboxEventRepository).deleteAllInBatch(List.of(broken, good));
+    }
+
+
+    @Test
+    void whenRelay_createAndDeleteOfSameTrainerMonth_shouldSendNetDeltaOnly() throws Exception {
+        // given
+        OutboxEvent added = updateRow(1L, ActionType.ADD, 60);
+        OutboxEvent addedMore = updateRow(2L, ActionType.ADD, 90);
+        OutboxEvent deleted = updateRow(3L, ActionType.DELETE, 60);
+        when(outboxEventRepository.findBatchForRelay(any(Limit.class))).thenReturn(List.of(added, addedMore, deleted));
+        // when
+        relay.relay();
+        // then
+        verify(trainerHoursPublisher).publishEvents(argThat(events -> events.size() == 1
+                && events.getFirst().getTrainingUpdate().getTrainingDuration() == 90
+                && events.getFirst().getTrainingUpdate().getActionType() == ActionType.ADD));
+        verify(outboxEventRepository).deleteAllInBatch(List.of(added, addedMore, deleted));
+    }
+
+
+    @Test
+    void whenRelay_coalesceDisabled_shouldSendEveryEvent() throws Exception {
+        // given
+        ReflectionTestUtils.setField(relay, "coalesce", false);
+        OutboxEvent added = updateRow(1L, ActionType.ADD, 60);
+        OutboxEvent deleted = updateRow(2L, ActionType.DELETE, 60);
+        when(outboxEventRepository.findBatchForRelay(any(Limit.class))).thenReturn(List.of(added, deleted));
+        // when
+        relay.relay();
+        // then
+        verify(trainerHoursPublisher).publishEvents(argThat(events -> events.size() == 2));
+    }
+
+
+    private OutboxEvent updateRow(Long id, ActionType actionType, int duration) throws Exception {
+        TrainerHoursEvent event = TrainerHoursEvent.builder()
+                .txId("tx-" + id)
+                .type(EventType.UPDATE)
+                .trainingUpdate(TrainingUpdateRequest.builder()
+                        .trainerUsername("Elena.Sokolova")
+                        .trainingDate(LocalDate.of(2024, 5, id.intValue()))
+                        .trainingDuration(duration)
+                        .actionType(actionType)
+                        .build())
+                .build();
+        return OutboxEvent.builder()
+                .id(id)
+                .txId(event.getTxId())
+                .payload(objectMapper.writeValueAsString(event))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+
+    private OutboxEvent row(Long id, String txId) throws Exception {
+        TrainerHoursEvent event = TrainerHoursEvent.builder().txId(txId).type(EventType.CLEAR_ALL).build();
+        return OutboxEvent.builder()
+                .id(id)
+                .txId(txId)
+                .payload(objectMapper.writeValueAsString(event))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.trainingapp.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.trainingapp.dto.ActionType;
+import org.example.trainingapp.dto.EventType;
+import org.example.trainingapp.dto.TrainerHoursEvent;
+import org.example.trainingapp.dto.TrainingUpdateRequest;
+import org.example.trainingapp.entity.OutboxEvent;
+import org.example.trainingapp.repository.OutboxEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.MDC;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+
+@ExtendWith(MockitoExtension.class)
+class TrainerHoursOutboxTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private TrainerHoursOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        outbox = new TrainerHoursOutbox(outboxEventRepository, objectMapper);
+    }
+
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+    }
+
+
+    @Test
+    void whenEnqueueUpdate_shouldStoreSerializedEventWithRequestTxId() throws Exception {
+        // given
+        MDC.put("txId", "request-tx");
+        TrainingUpdateRequest update = TrainingUpdateRequest.builder()
+                .trainerUsername("Elena.Sokolova")
+                .trainingDate(LocalDate.of(2024, 5, 10))
+                .trainingDuration(60)
+                .actionType(ActionType.ADD)
+                .build();
+        ArgumentCaptor<OutboxEvent> captor = ArgumentCaptor.forClass(OutboxEvent.class);
+        // when
+        outbox.enqueueUpdate(update);
+        // then
+        verify(outboxEventRepository).save(captor.capture());
+        OutboxEvent stored = captor.getValue();
+        assertThat(stored.getTxId()).isEqualTo("request-tx");
+        assertThat(stored.getCreatedAt()).isNotNull();
+        TrainerHoursEvent event = objectMapper.readValue(stored.getPayload(), TrainerHoursEvent.class);
+        assertThat(event.getType()).isEqualTo(EventType.UPDATE);
+        assertThat(event.getTxId()).isEqualTo("request-tx");
+        assertThat(event.getTrainingUpdate()).isEqualTo(update);
+    }
+
+
+    @Test
+    void whenEnqueueUpdate_noTxIdInMdc_shouldGenerateOne() {
+        // given
+        TrainingUpdateRequest update = TrainingUpdateRequest.builder().trainerUsername("Elena.Sokolova").build();
+        ArgumentCaptor<OutboxEvent> captor = ArgumentCaptor.forClass(OutboxEvent.class);
+        // when
+        outbox.enqueueUpdate(update);
+        // then
+        verify(outboxEventRepository).save(captor.capture());
+        assertThat(captor.getValue().getTxId()).isNotBlank();
+        assertThat(captor.getValue().getPayload()).contains(captor.getValue().getTxId());
+    }
+
+
+    @Test
+    void whenEnqueueUpdates_shouldStoreAllEventsInOneSaveAllWithSharedTxId() {
+        // given
+        MDC.put("txId", "delete-tx");
+        List<TrainingUpdateRequest> updates = List.of(
+                TrainingUpdateRequest.builder().trainerUsername("Elena.Sokolova").actionType(ActionType.DELETE).build(),
+                TrainingUpdateRequest.builder().trainerUsername("Arman.Nurpeisov").actionType(ActionType.DELETE).build());
+        ArgumentCaptor<List<OutboxEvent>> captor = ArgumentCaptor.captor();
+        // when
+        outbox.enqueueUpdates(updates);
+        // then
+        verify(outboxEventRepository).saveAll(captor.capture());
+        assertThat(captor.getValue()).hasSize(2).allSatisfy(stored -> assertThat(stored.getTxId()).isEqualTo("delete-tx"));
+        verify(outboxEventRepository, never()).save(any());
+    }
+
+
+    @Test
+    void whenEnqueueUpdates_empty_shouldStoreNothing() {
+        // when
+        outbox.enqueueUpdates(List.of());
+        // then
+        verifyNoInteractions(outboxEventRepository);
+    }
+}
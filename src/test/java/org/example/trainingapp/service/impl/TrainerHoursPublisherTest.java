@@ -1,20 +1,40 @@
 package org.example.trainingapp.service.impl;
 
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import org.example.trainingapp.config.JmsConfig;
+import org.example.trainingapp.dto.EventType;
 import org.example.trainingapp.dto.TrainerHoursEvent;
+import org.example.trainingapp.dto.TrainerMonthHours;
 import org.example.trainingapp.dto.TrainingUpdateRequest;
 import org.example.trainingapp.exception.MessagingException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.slf4j.MDC;
 import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
 import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
 import org.springframework.jms.JmsException;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.ProducerCallback;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -22,9 +42,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 
@@ -40,6 +65,10 @@ class TrainerHoursPublisherTest {
     @Mock
     private CircuitBreaker circuitBreaker;
 
+    @Spy
+    private CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+            .slidingWindowSize(2).minimumNumberOfCalls(2).build());
+
     @InjectMocks
     private TrainerHoursPublisher publisher;
 
@@ -48,7 +77,7 @@ class TrainerHoursPublisherTest {
     @SuppressWarnings("unchecked")
     @BeforeEach
     void setup() {
-        when(cbFactory.create("trainerHoursService")).thenReturn(circuitBreaker);
+        lenient().when(cbFactory.create("trainerHoursService")).thenReturn(circuitBreaker);
         lenient().when(circuitBreaker.run(any(Supplier.class), any()))
                 .thenAnswer(invocation -> {
                     Supplier<?> supplier = invocation.getArgument(0); // Supplier<Object>
@@ -78,6 +107,118 @@ class TrainerHoursPublisherTest {
     }
 
 
+    @Test
+    void whenPublishUpdates_shouldSendAllInOneTransactedSessionAndCommitOnce() throws Exception {
+        // given
+        Session session = mockTransactedSession();
+        MessageProducer producer = session.createProducer(null);
+        TrainingUpdateRequest first = TrainingUpdateRequest.builder().trainerUsername("trainer1").build();
+        TrainingUpdateRequest second = TrainingUpdateRequest.builder().trainerUsername("trainer2").build();
+        // when
+        publisher.publishUpdates(List.of(first, second), txId);
+        // then
+        verify(producer, times(2)).send(any(Message.class));
+        verify(session, times(1)).commit();
+        verify(jmsTemplate, never()).convertAndSend(any(String.class), any(Object.class));
+        assertThat(MDC.get("txId")).isNull();
+    }
+
+
+    @Test
+    void whenPublishMonthSnapshots_shouldSendSnapshotEvents() throws Exception {
+        // given
+        Session session = mockTransactedSession();
+        MessageConverter messageConverter = jmsTemplate.getMessageConverter();
+        TrainerMonthHours snapshot = new TrainerMonthHours("trainer1", "Elena", "Sokolova", true, 2024, 5, 150L);
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        // when
+        publisher.publishMonthSnapshots(List.of(snapshot), txId);
+        // then
+        verify(messageConverter).toMessage(captor.capture(), eq(session));
+        TrainerHoursEvent event = (TrainerHoursEvent) captor.getValue();
+        assertThat(event.getType()).isEqualTo(EventType.MONTH_SNAPSHOT);
+        assertThat(event.getMonthSnapshot()).isEqualTo(snapshot);
+        assertThat(event.getTxId()).isEqualTo(txId);
+        verify(session).commit();
+    }
+
+
+    @Test
+    void whenPublishEvents_sendFails_shouldNotCommitAndThrowMessagingException() throws Exception {
+        // given
+        Session session = mockTransactedSession();
+        MessageProducer producer = session.createProducer(null);
+        doThrow(new JMSException("broker gone")).when(producer).send(any(Message.class));
+        List<TrainerHoursEvent> events = List.of(TrainerHoursEvent.builder().txId(txId).build());
+        // when + then
+        assertThatThrownBy(() -> publisher.publishEvents(events))
+                .isInstanceOf(MessagingException.class)
+                .hasMessageContaining("batch of 1 events");
+        verify(session, never()).commit();
+        verify(session).close();                                // uncommitted messages are rolled back on close
+    }
+
+
+    @Test
+    void whenPublishEvents_conversionFails_shouldNotCommitAndThrowMessagingException() throws Exception {
+        // given
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        Session session = mock(Session.class);
+        MessageConverter messageConverter = mock(MessageConverter.class);
+        when(jmsTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(jmsTemplate.getMessageConverter()).thenReturn(messageConverter);
+        when(connectionFactory.createConnection()).thenReturn(connection);
+        when(connection.createSession(true, Session.SESSION_TRANSACTED)).thenReturn(session);
+        when(session.createProducer(any())).thenReturn(mock(MessageProducer.class));
+        when(messageConverter.toMessage(any(), eq(session)))
+                .thenThrow(new MessageConversionException("cannot serialize"));
+        List<TrainerHoursEvent> events = List.of(TrainerHoursEvent.builder().txId(txId).build());
+        // when + then
+        assertThatThrownBy(() -> publisher.publishEvents(events))
+                .isInstanceOf(MessagingException.class)
+                .hasCauseInstanceOf(MessageConversionException.class);
+        verify(session, never()).commit();
+        verify(session).close();
+    }
+
+
+    @Test
+    void whenPublishEvents_shouldSendOnCallingThreadWithoutTimeLimiter() throws Exception {
+        // given
+        Session session = mockTransactedSession();
+        MessageProducer producer = session.createProducer(null);
+        Thread caller = Thread.currentThread();
+        Thread[] sender = new Thread[1];
+        doAnswer(invocation -> {
+            sender[0] = Thread.currentThread();
+            return null;
+        }).when(producer).send(any(Message.class));
+        // when
+        publisher.publishEvents(List.of(TrainerHoursEvent.builder().txId(txId).build()));
+        // then
+        assertThat(sender[0]).isSameAs(caller);
+        verify(session).commit();
+        verify(cbFactory, never()).create(any());
+    }
+
+
+    @Test
+    void whenPublishEvents_circuitOpen_shouldThrowMessagingExceptionWithoutConnecting() {
+        // given
+        circuitBreakerRegistry.circuitBreaker("trainerHoursService").transitionToOpenState();
+        List<TrainerHoursEvent> events = List.of(TrainerHoursEvent.builder().txId(txId).build());
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        when(jmsTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(jmsTemplate.getMessageConverter()).thenReturn(mock(MessageConverter.class));
+        // when + then
+        assertThatThrownBy(() -> publisher.publishEvents(events))
+                .isInstanceOf(MessagingException.class)
+                .hasMessageContaining("circuit breaker open");
+        verifyNoInteractions(connectionFactory);
+    }
+
+
     @Test
     void whenPublishUpdate_jmsException_shouldThrowMessagingException() {
         // given
@@ -121,4 +262,65 @@ class TrainerHoursPublisherTest {
         assertThat(MDC.get("txId")).isEqualTo("old-tx-id");
         MDC.clear();
     }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenPublishFromQueue_shouldSendAllEventsThroughOneProducer() throws Exception {
+        // given
+        Session session = mock(Session.class);
+        MessageProducer producer = mock(MessageProducer.class);
+        MessageConverter messageConverter = mock(MessageConverter.class);
+        when(jmsTemplate.getMessageConverter()).thenReturn(messageConverter);
+        when(messageConverter.toMessage(any(), eq(session))).thenReturn(mock(Message.class));
+        when(jmsTemplate.execute(eq(JmsConfig.TRAINING_QUEUE), any(ProducerCallback.class))).thenAnswer(invocation -> {
+            ProducerCallback<Object> callback = invocation.getArgument(1);
+            return callback.doInJms(session, producer);
+        });
+        TrainerHoursEvent end = new TrainerHoursEvent();
+        BlockingQueue<TrainerHoursEvent> queue = new ArrayBlockingQueue<>(4);
+        queue.add(TrainerHoursEvent.builder().txId(txId).build());
+        queue.add(TrainerHoursEvent.builder().txId(txId).build());
+        queue.add(end);
+        // when
+        int sent = publisher.publishFromQueue(queue, end, () -> {}, new LongAdder());
+        // then
+        assertThat(sent).isEqualTo(2);
+        verify(producer, times(2)).send(any(Message.class));
+        assertThat(queue).isEmpty();
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenPublishFromQueue_noSession_shouldDrainQueueAndReportNothingSent() throws Exception {
+        // given
+        when(jmsTemplate.execute(eq(JmsConfig.TRAINING_QUEUE), any(ProducerCallback.class)))
+                .thenThrow(new JmsException("broker down") {});
+        TrainerHoursEvent end = new TrainerHoursEvent();
+        BlockingQueue<TrainerHoursEvent> queue = new ArrayBlockingQueue<>(4);
+        queue.add(TrainerHoursEvent.builder().txId(txId).build());
+        queue.add(end);
+        // when
+        int sent = publisher.publishFromQueue(queue, end, () -> {}, new LongAdder());
+        // then
+        assertThat(sent).isZero();
+        assertThat(queue).isEmpty();
+    }
+
+
+    private Session mockTransactedSession() throws JMSException {
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        Session session = mock(Session.class);
+        MessageProducer producer = mock(MessageProducer.class);
+        MessageConverter messageConverter = mock(MessageConverter.class);
+        when(jmsTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(jmsTemplate.getMessageConverter()).thenReturn(messageConverter);
+        when(connectionFactory.createConnection()).thenReturn(connection);
+        when(connection.createSession(true, Session.SESSION_TRANSACTED)).thenReturn(session);
+        when(session.createProducer(any())).thenReturn(producer);
+        when(messageConverter.toMessage(any(), eq(session))).thenReturn(mock(Message.class));
+        return session;
+    }
 }
@@ -0,0 +1,127 @@
+package org.example.trainingapp.service.impl;
+
+import org.example.trainingapp.converter.Converter;
+import org.example.trainingapp.dto.ActionType;
+import org.example.trainingapp.dto.SyncResult;
+import org.example.trainingapp.dto.TrainerHoursEvent;
+import org.example.trainingapp.dto.TrainingHoursRow;
+import org.example.trainingapp.dto.TrainingUpdateRequest;
+import org.example.trainingapp.repository.TrainingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@ExtendWith(MockitoExtension.class)
+class TrainerHoursSyncPipelineTest {
+
+    @Mock
+    private TrainingRepository trainingRepository;
+
+    @Mock
+    private TrainerHoursPublisher trainerHoursPublisher;
+
+    @Mock
+    private Converter converter;
+
+    @InjectMocks
+    private TrainerHoursSyncPipeline pipeline;
+
+    private final Queue<TrainerHoursEvent> published = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws InterruptedException {
+        ReflectionTestUtils.setField(pipeline, "pageSize", 2);
+        ReflectionTestUtils.setField(pipeline, "workers", 3);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 1);
+        lenient().when(trainerHoursPublisher.publishFromQueue(any(BlockingQueue.class), any(), any(), any(LongAdder.class)))
+                .thenAnswer(invocation -> {                             //  fake worker: drain up to end marker
+                    BlockingQueue<TrainerHoursEvent> queue = invocation.getArgument(0);
+                    TrainerHoursEvent end = invocation.getArgument(1);
+                    int sent = 0;
+                    for (TrainerHoursEvent event = queue.take(); event != end; event = queue.take()) {
+                        published.add(event);
+                        sent++;
+                    }
+                    return sent;
+                });
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenRun_shouldPassEveryRowThroughAllStages() throws InterruptedException {
+        // given
+        when(trainingRepository.findHoursPageAfterId(eq(0L), any(Limit.class))).thenReturn(List.of(row(1), row(2)));
+        when(trainingRepository.findHoursPageAfterId(eq(2L), any(Limit.class))).thenReturn(List.of(row(5)));
+        when(converter.rowAndActionToUpdateRequest(any(), eq(ActionType.ADD)))
+                .thenAnswer(inv -> TrainingUpdateRequest.builder()
+                        .trainerUsername(((TrainingHoursRow) inv.getArgument(0)).trainerUsername())
+                        .actionType(ActionType.ADD)
+                        .build());
+        // when
+        SyncResult result = pipeline.run("tx-1");
+        // then
+        assertThat(result.total()).isEqualTo(3);
+        assertThat(result.sent()).isEqualTo(3);
+        assertThat(result.txId()).isEqualTo("tx-1");
+        assertThat(published).hasSize(3).allMatch(e -> "tx-1".equals(e.getTxId()));
+        verify(trainerHoursPublisher, times(3))
+                .publishFromQueue(any(BlockingQueue.class), any(), any(), any(LongAdder.class));
+    }
+
+
+    @Test
+    void whenRun_converterFails_shouldSkipThatRow() {
+        // given
+        when(trainingRepository.findHoursPageAfterId(eq(0L), any(Limit.class))).thenReturn(List.of(row(1), row(2)));
+        when(trainingRepository.findHoursPageAfterId(eq(2L), any(Limit.class))).thenReturn(List.of());
+        when(converter.rowAndActionToUpdateRequest(any(), eq(ActionType.ADD)))
+                .thenThrow(new RuntimeException("bad data"))
+                .thenReturn(TrainingUpdateRequest.builder().build());
+        // when
+        SyncResult result = pipeline.run("tx-2");
+        // then
+        assertThat(result.total()).isEqualTo(2);
+        assertThat(result.sent()).isEqualTo(1);
+    }
+
+
+    @Test
+    void whenRun_readerFails_shouldThrowAndStopStages() {
+        // given
+        when(trainingRepository.findHoursPageAfterId(eq(0L), any(Limit.class)))
+                .thenThrow(new IllegalStateException("db down"));
+        // when + then
+        assertThatThrownBy(() -> pipeline.run("tx-3"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("db down");
+    }
+
+
+    private TrainingHoursRow row(long id) {
+        return new TrainingHoursRow(id, "Elena.Sokolova", "Elena", "Sokolova", true, LocalDate.of(2024, 5, 10), 60);
+    }
+}
@@ -4,24 +4,27 @@ import org.example.trainingapp.converter.Converter;
 import org.example.trainingapp.dto.ActiveStatusDto;
 import org.example.trainingapp.dto.TrainerRequestDto;
 import org.example.trainingapp.dto.TrainerResponseDto;
+import org.example.trainingapp.dto.TrainingListRow;
 import org.example.trainingapp.dto.TrainingResponseDto;
-import org.example.trainingapp.entity.Trainee;
 import org.example.trainingapp.entity.Trainer;
-import org.example.trainingapp.entity.Training;
 import org.example.trainingapp.entity.TrainingType;
+import org.example.trainingapp.jwt.VerifiedTokenCache;
 import org.example.trainingapp.repository.TrainerRepository;
-import org.example.trainingapp.repository.TrainingTypeRepository;
+import org.example.trainingapp.repository.TrainingRepository;
+import org.example.trainingapp.service.TrainingTypeRegistry;
 import org.example.trainingapp.util.AuthContextUtil;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -41,7 +44,10 @@ class TrainerServiceImplTest {
     private TrainerRepository trainerRepository;
 
     @Mock
-    private TrainingTypeRepository trainingTypeRepository;
+    private TrainingRepository trainingRepository;
+
+    @Mock
+    private TrainingTypeRegistry trainingTypeRegistry;
 
     @Mock
     private Converter converter;
@@ -52,6 +58,12 @@ class TrainerServiceImplTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
+    @Mock
+    private VerifiedTokenCache verifiedTokenCache;
+
     @InjectMocks
     private TrainerServiceImpl trainerService;
 
@@ -69,7 +81,7 @@ class TrainerServiceImplTest {
                 .password("pw123")
                 .specialization(boxing)
                 .active(false)
-                .trainees(new ArrayList<>())
+                .trainees(new HashSet<>())
                 .build();
 
         TrainerRequestDto req = TrainerRequestDto.builder()
@@ -81,7 +93,7 @@ class TrainerServiceImplTest {
                 .build();
 
         when(trainerRepository.findByUsernameWithTrainees(username)).thenReturn(Optional.of(existing));
-        when(trainingTypeRepository.findByName("Boxing")).thenReturn(Optional.of(boxing));
+        when(trainingTypeRegistry.find("Boxing")).thenReturn(Optional.of(boxing));
 
         // when
         trainerService.updateTrainer(req);
@@ -123,13 +135,12 @@ class TrainerServiceImplTest {
         String username = "Oksana.Mikhaylova";
         Trainer trainer = Trainer.builder()
                 .username(username)
-                .trainees(new ArrayList<>())
+                .trainees(new HashSet<>())
                 .build();
         TrainerResponseDto dto = TrainerResponseDto.builder()
                 .username(username).firstName("Oksana").build();
 
-        when(trainerRepository.findByUsernameWithTrainees(username)).thenReturn(Optional.of(trainer));
-        when(trainerRepository.findByUsername(username)).thenReturn(Optional.of(trainer));
+        when(trainerRepository.findByNaturalId(username)).thenReturn(Optional.of(trainer));
         when(converter.entityToDtoWithoutUsername(eq(trainer), anyList())).thenReturn(dto);
         when(authContextUtil.getUsername()).thenReturn(username);
 
@@ -146,71 +157,102 @@ class TrainerServiceImplTest {
         String username = "Serik.Nurpeisov";
         Trainer trainer = Trainer.builder()
                 .id(15L).username(username).active(true).build();
-        when(trainerRepository.findByUsername(username)).thenReturn(Optional.of(trainer));
+        when(trainerRepository.findByNaturalId(username)).thenReturn(Optional.of(trainer));
         ActiveStatusDto dto = new ActiveStatusDto(username, false);
         // when
         trainerService.setTrainerActiveStatus(dto);
         // then
         assertThat(trainer.isActive()).isFalse();
         verify(trainerRepository).save(trainer);
+        verify(verifiedTokenCache).invalidateUser(username);
+        verify(userDetailsService).evict(username);
     }
 
 
     @Test
-    void whenGettingTrainerTrainings_withDateRange_shouldFilter() {
+    void whenGettingTrainerTrainings_withFilters_shouldPassThemToQuery() {
         // given
         String username = "Serik.Nurpeisov";
-        Trainer trainer = Trainer.builder().username(username).trainings(new ArrayList<>()).build();
-
-        Training t1 = new Training();                       // 10-е
-        t1.setTrainingDate(LocalDate.of(2024, 5, 10));
-        Training t2 = new Training();                       // 20-е
-        t2.setTrainingDate(LocalDate.of(2024, 5, 20));
-        t2.setTrainee(new Trainee());                       // для .getUsername()
-        t2.getTrainee().setUsername("Dina.Aliyeva");
-
-        trainer.getTrainings().addAll(List.of(t1, t2));
-
-        when(trainerRepository.findByUsernameWithTrainings(username)).thenReturn(Optional.of(trainer));
-        when(converter.entityToDtoWithNullTrainer(t2)).thenReturn(
-                TrainingResponseDto.builder().date(t2.getTrainingDate()).build()
-        );
-
+        LocalDate fromDate = LocalDate.of(2024, 5, 15);
+        LocalDate toDate = LocalDate.of(2024, 5, 25);
+        TrainingListRow row = new TrainingListRow(20L, "Sparring", LocalDate.of(2024, 5, 20), "Boxing",
+                60, "Dina.Aliyeva", username);
+        TrainingResponseDto dto = TrainingResponseDto.builder()
+                .date(LocalDate.of(2024, 5, 20))
+                .traineeName("Dina.Aliyeva")
+                .build();
         when(authContextUtil.getUsername()).thenReturn(username);
+        when(trainerRepository.existsByUsername(username)).thenReturn(true);
+        when(trainingRepository.findTrainerTrainings(username, fromDate, toDate, "Dina.Aliyeva", null, null,
+                Limit.of(11))).thenReturn(List.of(row));
+        when(converter.rowToDtoWithNullTrainer(row)).thenReturn(dto);
         // when
-        var res = trainerService.getTrainerTrainings( username, LocalDate.of(2024, 5, 15),
-                LocalDate.of(2024, 5, 25),null);
+        var res = trainerService.getTrainerTrainings(username, fromDate, toDate, "Dina.Aliyeva", null, 10);
         // then
-        assertThat(res).hasSize(1);
-        assertThat(res.getFirst().getDate()).isEqualTo(t2.getTrainingDate());
+        assertThat(res.trainings()).containsExactly(dto);
+        assertThat(res.nextCursor()).isNull();
+        assertThat(res.totalCount()).isNull();
     }
 
 
     @Test
-    void whenGettingTrainerTrainings_withTraineeName_shouldFilter() {
+    void whenGettingTrainerTrainings_fullPage_shouldReturnCursorThatContinuesAfterLastRow() {
         // given
         String username = "Serik.Nurpeisov";
-        Trainer trainer = Trainer.builder().username(username).trainings(new ArrayList<>()).build();
-
-        Trainee tr1 = new Trainee(); tr1.setUsername("Dina.Aliyeva");
-        Trainee tr2 = new Trainee(); tr2.setUsername("Aigerim.Seilkhanova");
-
-        Training tx1 = new Training(); tx1.setTrainee(tr1);
-        Training tx2 = new Training(); tx2.setTrainee(tr2);
-
-        trainer.getTrainings().addAll(List.of(tx1, tx2));
+        TrainingListRow first = new TrainingListRow(4L, "Morning", LocalDate.of(2024, 5, 10), "Boxing",
+                60, "Dina.Aliyeva", username);
+        TrainingListRow extra = new TrainingListRow(8L, "Evening", LocalDate.of(2024, 5, 10), "Boxing",
+                60, "Dina.Aliyeva", username);
+        when(authContextUtil.getUsername()).thenReturn(username);
+        when(trainerRepository.existsByUsername(username)).thenReturn(true);
+        when(trainingRepository.findTrainerTrainings(username, null, null, null, null, null, Limit.of(2)))
+                .thenReturn(List.of(first, extra));
+        when(trainingRepository.findTrainerTrainings(username, null, null, null, LocalDate.of(2024, 5, 10), 4L,
+                Limit.of(2))).thenReturn(List.of(extra));
+        when(converter.rowToDtoWithNullTrainer(any(TrainingListRow.class)))
+                .thenAnswer(invocation -> TrainingResponseDto.builder()
+                        .name(invocation.<TrainingListRow>getArgument(0).name())
+                        .build());
+        // when
+        var firstPage = trainerService.getTrainerTrainings(username, null, null, null, null, 1);
+        var secondPage = trainerService.getTrainerTrainings(username, null, null, null, firstPage.nextCursor(), 1);
+        // then
+        assertThat(firstPage.trainings()).extracting(TrainingResponseDto::getName).containsExactly("Morning");
+        assertThat(firstPage.nextCursor()).isEqualTo("2024-05-10_4");
+        assertThat(secondPage.trainings()).extracting(TrainingResponseDto::getName).containsExactly("Evening");
+        assertThat(secondPage.nextCursor()).isNull();
+    }
 
-        when(trainerRepository.findByUsernameWithTrainings(username)).thenReturn(Optional.of(trainer));
-        when(converter.entityToDtoWithNullTrainer(tx2)).thenReturn(
-                TrainingResponseDto.builder().traineeName("Aigerim.Seilkhanova").build()
-        );
 
+    @Test
+    void whenGettingTrainerTrainings_noSizeAndNoCursor_shouldNotLimitQuery() {
+        // given
+        String username = "Serik.Nurpeisov";
+        TrainingListRow row = new TrainingListRow(4L, "Morning", LocalDate.of(2024, 5, 10), "Boxing",
+                60, "Dina.Aliyeva", username);
         when(authContextUtil.getUsername()).thenReturn(username);
+        when(trainerRepository.existsByUsername(username)).thenReturn(true);
+        when(trainingRepository.findTrainerTrainings(username, null, null, null, null, null, Limit.unlimited()))
+                .thenReturn(List.of(row));
+        when(converter.rowToDtoWithNullTrainer(row)).thenReturn(new TrainingResponseDto());
         // when
-        var res = trainerService.getTrainerTrainings(username, null, null, "Aigerim.Seilkhanova");
+        var res = trainerService.getTrainerTrainings(username, null, null, null, null, null);
         // then
-        assertThat(res).hasSize(1);
-        assertThat(res.getFirst().getTraineeName()).isEqualTo("Aigerim.Seilkhanova");
+        assertThat(res.trainings()).hasSize(1);
+        assertThat(res.nextCursor()).isNull();
+    }
+
+
+    @Test
+    void whenGettingTrainerTrainings_trainerNotFound_shouldThrow() {
+        // given
+        String username = "Not.Exist";
+        when(authContextUtil.getUsername()).thenReturn(username);
+        when(trainerRepository.existsByUsername(username)).thenReturn(false);
+        // when + then
+        assertThatThrownBy(() -> trainerService.getTrainerTrainings(username, null, null, null, null, 10))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessageContaining("Not found trainer with username: " + username);
     }
 
 
@@ -220,12 +262,14 @@ class TrainerServiceImplTest {
         String rawPassword = "newPw";
         String encodedPassword = "encodedPass123";
         Trainer trainer = Trainer.builder().id(99L).username("Azamat.Yeszhanov").password("oldPw").build();
-        when(trainerRepository.findByUsername("Azamat.Yeszhanov")).thenReturn(Optional.of(trainer));
+        when(trainerRepository.findByNaturalId("Azamat.Yeszhanov")).thenReturn(Optional.of(trainer));
         when(passwordEncoder.encode(rawPassword)).thenReturn(encodedPassword);
         // when
         trainerService.setNewPassword("Azamat.Yeszhanov", "newPw");
         // then
         assertThat(trainer.getPassword()).isEqualTo("encodedPass123");
         verify(trainerRepository).save(trainer);
+        verify(verifiedTokenCache).invalidateUser("Azamat.Yeszhanov");
+        verify(userDetailsService).evict("Azamat.Yeszhanov");
     }
 }
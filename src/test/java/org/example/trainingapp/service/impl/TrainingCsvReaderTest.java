@@ -0,0 +1,65 @@
+package org.example.trainingapp.service.impl;
+
+import org.example.trainingapp.dto.TrainingRequestDto;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class TrainingCsvReaderTest {
+
+    @Test
+    void whenReadingRows_columnsInAnyOrder_shouldMapByHeader() throws Exception {
+        // given
+        TrainingCsvReader reader = reader("traineeName,duration,date,name,trainerName\n"
+                + "Dina.Aliyeva,60,2024-05-10,\"Yoga, \"\"Power\"\"\",Elena.Sokolova\n\n");
+        // when
+        TrainingRequestDto dto = reader.next();
+        // then
+        assertEquals("Yoga, \"Power\"", dto.getName());
+        assertEquals(LocalDate.of(2024, 5, 10), dto.getDate());
+        assertEquals(60, dto.getDuration());
+        assertEquals("Dina.Aliyeva", dto.getTraineeName());
+        assertEquals("Elena.Sokolova", dto.getTrainerName());
+        assertFalse(reader.hasNext());
+    }
+
+
+    @Test
+    void whenReadingRows_badValue_shouldFailOnlyThatRow() throws Exception {
+        // given
+        TrainingCsvReader reader = reader("""
+                name,date,duration,traineeName
+                Yoga,10.05.2024,60,Dina.Aliyeva
+                Yoga,2024-05-10,60,Dina.Aliyeva
+                """);
+        // when / then
+        assertThrows(IllegalArgumentException.class, reader::next);
+        assertTrue(reader.hasNext());
+        assertThat(reader.next().getTrainerName()).isNull();
+    }
+
+
+    @Test
+    void whenReadingHeader_requiredColumnMissing_shouldThrowIllegalArgument() {
+        // given
+        TrainingCsvReader reader = reader("name,date\nYoga,2024-05-10\n");
+        // when
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, reader::hasNext);
+        // then
+        assertThat(e.getMessage()).contains("duration", "traineeName");
+    }
+
+
+    private static TrainingCsvReader reader(String csv) {
+        return new TrainingCsvReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,232 @@
+package org.example.trainingapp.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.trainingapp.converter.Converter;
+import org.example.trainingapp.dto.TrainingImportResult;
+import org.example.trainingapp.dto.TrainingUpdateRequest;
+import org.example.trainingapp.entity.Trainee;
+import org.example.trainingapp.entity.Trainer;
+import org.example.trainingapp.entity.Training;
+import org.example.trainingapp.entity.TrainingType;
+import org.example.trainingapp.repository.TraineeRepository;
+import org.example.trainingapp.repository.TrainerRepository;
+import org.example.trainingapp.repository.TrainingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@ExtendWith(MockitoExtension.class)
+class TrainingImportServiceTest {
+
+    @Mock
+    private Converter converter;
+
+    @Mock
+    private TrainerRepository trainerRepository;
+
+    @Mock
+    private TraineeRepository traineeRepository;
+
+    @Mock
+    private TrainingRepository trainingRepository;
+
+    @Mock
+    private TrainingNameSequence trainingNameSequence;
+
+    @Mock
+    private TrainerHoursOutbox trainerHoursOutbox;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private TrainingImportService service;
+
+    private Trainer trainer;
+
+    private final List<List<TrainingImportResult>> chunks = new ArrayList<>();
+
+    private static final String TRAINER = "Elena.Sokolova";
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 10);
+
+    @BeforeEach
+    void setUp() {
+        service = new TrainingImportService(objectMapper, converter, trainerRepository, traineeRepository,
+                trainingRepository, trainingNameSequence, trainerHoursOutbox, transactionManager);
+        trainer = Trainer.builder().id(7L).username(TRAINER).specialization(new TrainingType("Yoga")).build();
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(trainerRepository.existsByUsername(TRAINER)).thenReturn(true);
+        lenient().when(trainerRepository.findByNaturalId(TRAINER)).thenReturn(Optional.of(trainer));
+        lenient().when(traineeRepository.getReferenceById(any()))
+                .thenAnswer(inv -> Trainee.builder().id(inv.getArgument(0)).build());
+        lenient().when(converter.trainerMonthToAddRequest(eq(trainer), any(), anyInt()))
+                .thenAnswer(inv -> new TrainingUpdateRequest());
+    }
+
+
+    @Test
+    void whenImportTrainings_csv_shouldReserveNamesPerDayAndSendOneEventPerMonth() throws Exception {
+        // given
+        String body = """
+                name,date,duration,traineeName
+                Yoga,2024-05-10,60,Dina.Aliyeva
+                Yoga,2024-05-10,30,Dina.Aliyeva
+                Stretch,2024-05-20,45,Anna.Borisova
+                """;
+        when(traineeRepository.findIdByUsername("Dina.Aliyeva")).thenReturn(Optional.of(1L));
+        when(traineeRepository.findIdByUsername("Anna.Borisova")).thenReturn(Optional.of(2L));
+        when(trainingNameSequence.reserve(DAY, TRAINER, 2)).thenReturn(3L);
+        when(trainingNameSequence.reserve(LocalDate.of(2024, 5, 20), TRAINER, 1)).thenReturn(1L);
+        when(trainerRepository.linkTrainees(7L, List.of(1L, 2L))).thenReturn(1);
+        // when
+        service.importTrainings(stream(body), true, TRAINER, chunks::add);
+        // then
+        assertThat(chunks).hasSize(1);
+        assertThat(chunks.getFirst()).extracting(TrainingImportResult::trainingName).containsExactly(
+                "2024-05-10#3 - Yoga", "2024-05-10#4 - Yoga", "2024-05-20#1 - Stretch");
+        ArgumentCaptor<List<Training>> saved = captor();
+        verify(trainingRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).hasSize(3)
+                .allSatisfy(training -> assertThat(training.getTrainingType().getName()).isEqualTo("Yoga"));
+        verify(trainerRepository).evictTrainerLinks(7L, List.of(1L, 2L));
+        verify(traineeRepository, times(1)).findIdByUsername("Dina.Aliyeva");
+        verify(converter).trainerMonthToAddRequest(trainer, YearMonth.of(2024, 5), 135);
+        verify(trainerHoursOutbox, times(1)).enqueueUpdate(any());
+    }
+
+
+    @Test
+    void whenImportTrainings_invalidRows_shouldReportThemAndImportTheRest() throws Exception {
+        // given
+        String body = """
+                {"name":"Yoga","date":"2024-05-10","duration":60,"traineeName":"Dina.Aliyeva"}
+                {"name":"Yoga","date":"2024-05-10","duration":0,"traineeName":"Dina.Aliyeva"}
+                {"name":"Yoga","date":"2024-05-10","duration":60,"traineeName":"Ghost.User"}
+                {"name":"Yoga","date":"2024-05-10","duration":60,"traineeName":"Dina.Aliyeva","trainerName":"Other.Trainer"}
+                """;
+        when(traineeRepository.findIdByUsername("Dina.Aliyeva")).thenReturn(Optional.of(1L));
+        when(traineeRepository.findIdByUsername("Ghost.User")).thenReturn(Optional.empty());
+        when(trainingNameSequence.reserve(DAY, TRAINER, 1)).thenReturn(1L);
+        // when
+        service.importTrainings(stream(body), false, TRAINER, chunks::add);
+        // then
+        List<TrainingImportResult> results = chunks.getFirst();
+        assertThat(results).extracting(TrainingImportResult::row).containsExactly(1, 2, 3, 4);
+        assertThat(results.get(0).trainingName()).isEqualTo("2024-05-10#1 - Yoga");
+        assertThat(results.get(1).error()).isEqualTo("Training duration must be positive.");
+        assertThat(results.get(2).error()).isEqualTo("Not found trainee with username: Ghost.User");
+        assertThat(results.get(3).error()).isEqualTo("Trainings can be imported only for trainer " + TRAINER);
+    }
+
+
+    @Test
+    void whenImportTrainings_moreRowsThanChunk_shouldSaveAndReportPerChunk() throws Exception {
+        // given
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        String body = """
+                [{"name":"A","date":"2024-05-10","duration":60,"traineeName":"Dina.Aliyeva"},
+                 {"name":"B","date":"2024-05-10","duration":60,"traineeName":"Dina.Aliyeva"},
+                 {"name":"C","date":"2024-06-01","duration":60,"traineeName":"Dina.Aliyeva"}]
+                """;
+        when(traineeRepository.findIdByUsername("Dina.Aliyeva")).thenReturn(Optional.of(1L));
+        when(trainingNameSequence.reserve(any(), eq(TRAINER), anyInt())).thenReturn(1L);
+        // when
+        service.importTrainings(stream(body), false, TRAINER, chunks::add);
+        // then
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(1)).extracting(TrainingImportResult::row).containsExactly(3);
+        verify(trainingRepository, times(2)).saveAll(any());
+        verify(traineeRepository, times(1)).findIdByUsername("Dina.Aliyeva");
+    }
+
+
+    @Test
+    void whenImportTrainings_malformedJson_shouldImportPreviousRowsAndStop() throws Exception {
+        // given
+        String body = """
+                {"name":"Yoga","date":"2024-05-10","duration":60,"traineeName":"Dina.Aliyeva"}
+                {"name":
+                """;
+        when(traineeRepository.findIdByUsername("Dina.Aliyeva")).thenReturn(Optional.of(1L));
+        when(trainingNameSequence.reserve(DAY, TRAINER, 1)).thenReturn(1L);
+        // when
+        service.importTrainings(stream(body), false, TRAINER, chunks::add);
+        // then
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(0).getFirst().trainingName()).isEqualTo("2024-05-10#1 - Yoga");
+        assertThat(chunks.get(1).getFirst().row()).isEqualTo(2);
+        assertThat(chunks.get(1).getFirst().error()).startsWith("Malformed row");
+    }
+
+
+    @Test
+    void whenImportTrainings_chunkNotSaved_shouldReportRowsAsFailed() throws Exception {
+        // given
+        when(traineeRepository.findIdByUsername("Dina.Aliyeva")).thenReturn(Optional.of(1L));
+        when(trainingNameSequence.reserve(DAY, TRAINER, 1)).thenReturn(1L);
+        doThrow(new DataIntegrityViolationException("fk violation")).when(trainingRepository).saveAll(any());
+        // when
+        service.importTrainings(stream("name,date,duration,traineeName\nYoga,2024-05-10,60,Dina.Aliyeva"),
+                true, TRAINER, chunks::add);
+        // then
+        TrainingImportResult result = chunks.getFirst().getFirst();
+        assertThat(result.trainingName()).isNull();
+        assertThat(result.error()).isEqualTo("Not saved, please retry the row.");
+        verify(trainerHoursOutbox, never()).enqueueUpdate(any());
+    }
+
+
+    @Test
+    void whenImportTrainings_unknownTrainer_shouldThrowNoSuchElement() {
+        // given
+        when(trainerRepository.existsByUsername(anyString())).thenReturn(false);
+        // when / then
+        assertThrows(NoSuchElementException.class,
+                () -> service.importTrainings(stream("[]"), false, "Ghost.Trainer", chunks::add));
+        assertThat(chunks).isEmpty();
+    }
+
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <T> ArgumentCaptor<List<T>> captor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
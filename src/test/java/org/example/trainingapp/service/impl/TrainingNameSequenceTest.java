@@ -0,0 +1,120 @@
+package org.example.trainingapp.service.impl;
+
+import org.example.trainingapp.repository.TrainingRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+
+@ExtendWith(MockitoExtension.class)
+class TrainingNameSequenceTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private TrainingRepository trainingRepository;
+
+    @InjectMocks
+    private TrainingNameSequence trainingNameSequence;
+
+    private static final String TRAINER = "Elena.Sokolova";
+    private static final LocalDate DATE = LocalDate.of(2024, 5, 10);
+    private static final String KEY = "training-name:Elena.Sokolova:2024-05-10";
+    private static final String TTL_SECONDS = "2592000";                   //  30 days
+
+
+    @Test
+    void whenNextName_existingCounter_shouldOnlyRunScriptOnce() {
+        // given
+        whenCounter(1, -1).thenReturn(4L);
+        // when
+        String name = trainingNameSequence.nextName("Power Yoga", DATE, TRAINER);
+        // then
+        assertThat(name).isEqualTo("2024-05-10#4 - Power Yoga");
+        verifyNoInteractions(trainingRepository);
+    }
+
+
+    @Test
+    void whenNextName_firstTrainingOfDay_shouldRerunScriptWithZeroSeed() {
+        // given
+        whenCounter(1, -1).thenReturn(-1L);
+        when(trainingRepository.findNamesByTrainerAndDate(TRAINER, DATE)).thenReturn(List.of());
+        whenCounter(1, 0).thenReturn(1L);
+        // when
+        String name = trainingNameSequence.nextName("Power Yoga", DATE, TRAINER);
+        // then
+        assertThat(name).isEqualTo("2024-05-10#1 - Power Yoga");
+    }
+
+
+    @Test
+    void whenNextName_counterLostWithStoredTrainings_shouldSeedPastStoredIndex() {
+        // given
+        whenCounter(1, -1).thenReturn(-1L);
+        when(trainingRepository.findNamesByTrainerAndDate(TRAINER, DATE))
+                .thenReturn(List.of("2024-05-10#1 - Old", "2024-05-10#3 - Older", "broken name"));
+        whenCounter(1, 3).thenReturn(4L);
+        // when
+        String name = trainingNameSequence.nextName("Power Yoga", DATE, TRAINER);
+        // then
+        assertThat(name).isEqualTo("2024-05-10#4 - Power Yoga");
+    }
+
+
+    @Test
+    void whenReserve_severalIndexes_shouldTakeThemWithOneScriptCall() {
+        // given
+        whenCounter(3, -1).thenReturn(7L);
+        // when
+        long first = trainingNameSequence.reserve(DATE, TRAINER, 3);
+        // then
+        assertThat(first).isEqualTo(5L);
+        verifyNoInteractions(trainingRepository);
+    }
+
+
+    @Test
+    void whenReserve_redisDown_shouldContinueAfterStoredIndex() {
+        // given
+        whenCounter(1, -1).thenThrow(new RedisSystemException("down", null));
+        when(trainingRepository.findNamesByTrainerAndDate(TRAINER, DATE)).thenReturn(List.of("2024-05-10#2 - Old"));
+        // when
+        long first = trainingNameSequence.reserve(DATE, TRAINER, 1);
+        // then
+        assertThat(first).isEqualTo(3L);
+    }
+
+
+    @Test
+    void whenReserve_scriptReturnsNothing_shouldThrow() {
+        // given
+        whenCounter(1, -1).thenReturn(null);
+        // when / then
+        assertThatThrownBy(() -> trainingNameSequence.reserve(DATE, TRAINER, 1))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+
+    private OngoingStubbing<Long> whenCounter(long count, long seed) {
+        return when(redisTemplate.execute(ArgumentMatchers.<RedisScript<Long>>any(), eq(List.of(KEY)),
+                eq(String.valueOf(count)), eq(String.valueOf(seed)), eq(TTL_SECONDS)));
+    }
+}
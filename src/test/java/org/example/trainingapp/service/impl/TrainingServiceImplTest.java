@@ -1,32 +1,38 @@
 package org.example.trainingapp.service.impl;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.example.trainingapp.converter.Converter;
+import org.example.trainingapp.dto.TrainingParties;
 import org.example.trainingapp.dto.TrainingRequestDto;
 import org.example.trainingapp.entity.TrainingType;
 import org.example.trainingapp.entity.Trainee;
 import org.example.trainingapp.entity.Trainer;
 import org.example.trainingapp.entity.Training;
 import org.example.trainingapp.metrics.TrainingExecutionMetrics;
+import org.example.trainingapp.metrics.TrainingExecutionMetrics.Phase;
 import org.example.trainingapp.repository.TraineeRepository;
 import org.example.trainingapp.repository.TrainerRepository;
 import org.example.trainingapp.repository.TrainingRepository;
-import org.junit.jupiter.api.BeforeEach;
+import org.example.trainingapp.repository.TrainingTypeRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -40,103 +46,115 @@ class TrainingServiceImplTest {
     @Mock
     private TrainerRepository trainerRepository;
 
+    @Mock
+    private Converter converter;
+
     @Mock
     private TraineeRepository traineeRepository;
 
     @Mock
-    private Converter converter;
+    private TrainingTypeRepository trainingTypeRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private TrainingExecutionMetrics trainingExecutionMetrics = new TrainingExecutionMetrics(meterRegistry);
 
     @Mock
-    private TrainingExecutionMetrics trainingExecutionMetrics;
+    private TrainerHoursOutbox trainerHoursOutbox;
 
     @Mock
-    private TrainerHoursPublisher trainerHoursPublisher;
+    private TrainingNameSequence trainingNameSequence;
 
     @InjectMocks
     private TrainingServiceImpl trainingService;
 
-    @BeforeEach
-    void setUp() {
-        lenient().doAnswer(inv -> { ((Runnable) inv.getArgument(0)).run(); return null; })
-                .when(trainingExecutionMetrics).record(any(Runnable.class));
-    }
+    private static final TrainingParties PARTIES =
+            new TrainingParties(10L, "Elena.Sokolova", "Elena", "Sokolova", true, 3L, 20L);
 
 
     @Test
-    void whenCreatingTraining_shouldCallDaoSave() {
+    void whenCreatingTraining_shouldLinkAndInsertTrainingByReferences() {
         // given
-        String username = "Elena.Sokolova";
-        TrainingRequestDto req = TrainingRequestDto.builder()
-                .name("Power Yoga")
-                .date(LocalDate.of(2024, 5, 10))
-                .duration(60)
-                .traineeName("Anna.Ivanova")
-                .trainerName(username)
-                .build();
-        Training entity = buildMockTraining();
-        when(converter.dtoToEntity(req)).thenReturn(entity);
-        when(trainerRepository.findByUsernameWithTrainees(username)).thenReturn(Optional.of(entity.getTrainer()));
-        when(traineeRepository.findByUsernameWithTrainers("Anna.Ivanova")).thenReturn(Optional.of(entity.getTrainee()));
+        TrainingRequestDto req = buildReq(LocalDate.of(2024, 5, 10));
+        Trainer trainer = Trainer.builder().id(10L).build();
+        Trainee trainee = Trainee.builder().id(20L).build();
+        TrainingType yoga = new TrainingType("Yoga");
+        when(trainerRepository.findTrainingParties("Elena.Sokolova", "Anna.Ivanova")).thenReturn(Optional.of(PARTIES));
+        when(trainerRepository.linkTrainees(10L, List.of(20L))).thenReturn(1);
+        when(trainerRepository.getReferenceById(10L)).thenReturn(trainer);
+        when(traineeRepository.getReferenceById(20L)).thenReturn(trainee);
+        when(trainingTypeRepository.getReferenceById(3L)).thenReturn(yoga);
+        when(trainingNameSequence.nextName("Yoga", req.getDate(), "Elena.Sokolova")).thenReturn("2024-05-10#1 - Yoga");
         // when
         String result = trainingService.createTraining(req);
         // then
-        verify(trainingRepository).save(entity);
-        assertThat(result).isEqualTo("Training 2024-05-10#1 - Power Yoga with id null created successfully");
+        ArgumentCaptor<Training> saved = ArgumentCaptor.forClass(Training.class);
+        verify(trainingRepository).saveAndFlush(saved.capture());
+        assertThat(saved.getValue().getTrainer()).isSameAs(trainer);
+        assertThat(saved.getValue().getTrainee()).isSameAs(trainee);
+        assertThat(saved.getValue().getTrainingType()).isSameAs(yoga);
+        verify(trainerRepository).evictTrainerLinks(10L, List.of(20L));
+        verify(converter).partiesToAddRequest(PARTIES, saved.getValue());
+        verify(trainerHoursOutbox).enqueueUpdate(any());
+        assertThat(result).isEqualTo("Training 2024-05-10#1 - Yoga with id null created successfully");
     }
 
 
     @Test
-    void whenCreateTraining_trainerNotFound_shouldThrowIllegalArgumentException() {
+    void whenCreatingTraining_shouldTimeEveryPhase() {
         // given
-        LocalDate d = LocalDate.of(2024, 5, 10);
-        TrainingRequestDto req = buildReq(d);
-        Training tr = buildMockTraining();
-        when(converter.dtoToEntity(req)).thenReturn(tr);
-        when(trainerRepository.findByUsernameWithTrainees("Elena.Sokolova")).thenReturn(Optional.empty());
+        TrainingRequestDto req = buildReq(LocalDate.of(2024, 5, 10));
+        when(trainerRepository.findTrainingParties("Elena.Sokolova", "Anna.Ivanova")).thenReturn(Optional.of(PARTIES));
+        // when
+        trainingService.createTraining(req);
+        // then
+        assertThat(meterRegistry.get("training.creation.timer").timer().count()).isEqualTo(1);
+        for (Phase phase : Phase.values()) {
+            assertThat(meterRegistry.get("training.creation.phase.timer")
+                    .tag("phase", phase.name().toLowerCase()).timer().count()).isEqualTo(1);
+        }
+    }
+
+
+    @Test
+    void whenCreateTraining_trainerNotFound_shouldThrowNoSuchElementException() {
+        // given
+        TrainingRequestDto req = buildReq(LocalDate.of(2024, 5, 10));
+        when(trainerRepository.findTrainingParties("Elena.Sokolova", "Anna.Ivanova")).thenReturn(Optional.empty());
+        when(trainerRepository.existsByUsername("Elena.Sokolova")).thenReturn(false);
         // when + then
-        assertThrows(NoSuchElementException.class, () -> trainingService.createTraining(req));
+        assertThatThrownBy(() -> trainingService.createTraining(req))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessage("Not found trainer with username: Elena.Sokolova");
+        verify(trainerRepository, never()).linkTrainees(any(), any());
     }
 
 
     @Test
-    void whenCreateTraining_traineeNotFound_shouldThrowIllegalArgumentException() {
+    void whenCreateTraining_traineeNotFound_shouldThrowNoSuchElementException() {
         // given
-        LocalDate d = LocalDate.of(2024, 5, 10);
-        TrainingRequestDto req = buildReq(d);
-        Training tr = buildMockTraining();
-        when(converter.dtoToEntity(req)).thenReturn(tr);
-        when(trainerRepository.findByUsernameWithTrainees("Elena.Sokolova"))
-                .thenReturn(Optional.of(tr.getTrainer()));
-        when(traineeRepository.findByUsernameWithTrainers("Anna.Ivanova"))
-                .thenReturn(Optional.empty());
+        TrainingRequestDto req = buildReq(LocalDate.of(2024, 5, 10));
+        when(trainerRepository.findTrainingParties("Elena.Sokolova", "Anna.Ivanova")).thenReturn(Optional.empty());
+        when(trainerRepository.existsByUsername("Elena.Sokolova")).thenReturn(true);
         // when + then
-        assertThrows(NoSuchElementException.class, () -> trainingService.createTraining(req));
+        assertThatThrownBy(() -> trainingService.createTraining(req))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessage("Not found trainee with username: Anna.Ivanova");
+        verify(trainingRepository, never()).saveAndFlush(any());
     }
 
 
     @Test
-    void whenCreateTraining_existingTrainings_thenNameShouldIncrementIndex() {
+    void whenCreateTraining_alreadyLinked_shouldKeepCachedLinks() {
         // given
-        String username = "Elena.Sokolova";
-        TrainingRequestDto req = TrainingRequestDto.builder()
-                .name("Power Yoga")
-                .date(LocalDate.of(2024, 5, 10))
-                .duration(60)
-                .traineeName("Anna.Ivanova")
-                .trainerName(username)
-                .build();
-        Training entity = buildMockTraining();
-        when(converter.dtoToEntity(req)).thenReturn(entity);
-        when(trainerRepository.findByUsernameWithTrainees(username)).thenReturn(Optional.of(entity.getTrainer()));
-        when(traineeRepository.findByUsernameWithTrainers("Anna.Ivanova")).thenReturn(Optional.of(entity.getTrainee()));
-        Training existing = buildMockTraining();
-        existing.setTrainingName("2024-05-10#1 - Old");
-        when(trainingRepository.findByTrainer_UsernameAndTrainingDate(username, req.getDate()))
-                .thenReturn(List.of(existing));
+        TrainingRequestDto req = buildReq(LocalDate.of(2024, 5, 10));
+        when(trainerRepository.findTrainingParties("Elena.Sokolova", "Anna.Ivanova")).thenReturn(Optional.of(PARTIES));
+        when(trainerRepository.linkTrainees(10L, List.of(20L))).thenReturn(0);
         // when
         trainingService.createTraining(req);
         // then
-        assertThat(entity.getTrainingName()).startsWith("2024-05-10#2 -");
+        verify(trainerRepository, never()).evictTrainerLinks(any(), any());
     }
 
 
@@ -152,7 +170,7 @@ class TrainingServiceImplTest {
         trainingService.deleteTrainingByName(name);
         // then
         verify(trainingRepository).delete(training);
-        verify(trainerHoursPublisher).publishUpdate(any());
+        verify(trainerHoursOutbox).enqueueUpdate(any());
     }
 
 
@@ -181,12 +199,12 @@ class TrainingServiceImplTest {
     private Training buildMockTraining() {
         LocalDate date = LocalDate.of(2024, 5, 10);
         TrainingType yoga = new TrainingType("Yoga");
-        Trainer trainer = Trainer.builder()
+        Trainer trainer = Trainer.builder().id(10L)
                 .username("Elena.Sokolova").firstName("Elena").lastName("Sokolova").specialization(yoga)
-                .trainees(new ArrayList<>()).active(true).build();
-        Trainee trainee = Trainee.builder()
+                .trainees(new HashSet<>()).active(true).build();
+        Trainee trainee = Trainee.builder().id(20L)
                 .username("Anna.Ivanova").firstName("Anna").lastName("Ivanova")
-                .trainers(new ArrayList<>()).active(true).build();
+                .trainers(new HashSet<>()).active(true).build();
         return Training.builder()
                 .trainingName("Power Yoga")
                 .trainingDate(date)
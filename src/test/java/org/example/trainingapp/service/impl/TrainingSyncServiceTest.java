@@ -2,33 +2,46 @@ package org.example.trainingapp.service.impl;
 
 import org.example.trainingapp.converter.Converter;
 import org.example.trainingapp.dto.ActionType;
+import org.example.trainingapp.dto.SyncMode;
 import org.example.trainingapp.dto.SyncResult;
+import org.example.trainingapp.dto.TrainerMonthHours;
+import org.example.trainingapp.dto.TrainingHoursRow;
 import org.example.trainingapp.dto.TrainingUpdateRequest;
-import org.example.trainingapp.entity.Trainee;
-import org.example.trainingapp.entity.Trainer;
-import org.example.trainingapp.entity.Training;
-import org.example.trainingapp.entity.TrainingType;
+import org.example.trainingapp.repository.OutboxEventRepository;
+import org.example.trainingapp.repository.OutboxRelayLockRepository;
 import org.example.trainingapp.repository.TrainingRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.slf4j.MDC;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -45,39 +58,46 @@ class TrainingSyncServiceTest {
     @Mock
     private Converter converter;
 
+    @Mock
+    private TrainerHoursSyncPipeline trainerHoursSyncPipeline;
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private OutboxRelayLockRepository outboxRelayLockRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private TrainingSyncService service;
 
-    private Training training;
+    private TrainingHoursRow row;
 
     @BeforeEach
     void setUp() {
         MDC.clear();
-        training = Training.builder()
-                .trainingName("Power Yoga")
-                .trainingDate(LocalDate.of(2024, 5, 10))
-                .trainingDuration(60)
-                .trainer(Trainer.builder().username("Elena.Sokolova").build())
-                .trainee(Trainee.builder().username("Nina.Rakhimova").build())
-                .trainingType(new TrainingType("Yoga"))
-                .build();
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        row = new TrainingHoursRow(1L, "Elena.Sokolova", "Elena", "Sokolova", true,
+                LocalDate.of(2024, 5, 10), 60);
     }
 
 
     @Test
     void whenSyncTrainerHours_successful_shouldClearAndNotifyAll() {
         // given
-        when(trainingRepository.findAll()).thenReturn(List.of(training));
+        when(trainingRepository.findHoursPageAfterId(eq(0L), any(Limit.class))).thenReturn(List.of(row));
         TrainingUpdateRequest update = TrainingUpdateRequest.builder().build();
-        when(converter.trainingAndActionToUpdateRequest(training, ActionType.ADD))
+        when(converter.rowAndActionToUpdateRequest(row, ActionType.ADD))
                 .thenReturn(update);
         // when
         service.syncTrainerHours();
         // then
         verify(trainerHoursPublisher).publishClearAll(anyString());
-        verify(trainingRepository).findAll();
-        verify(converter).trainingAndActionToUpdateRequest(training, ActionType.ADD);
-        verify(trainerHoursPublisher).publishUpdate(eq(update), anyString());
+        verify(trainingRepository).findHoursPageAfterId(eq(0L), any(Limit.class));
+        verify(converter).rowAndActionToUpdateRequest(row, ActionType.ADD);
+        verify(trainerHoursPublisher).publishUpdates(eq(List.of(update)), anyString());
         assertNull(MDC.get("txId"), "MDC txId should be cleared");
     }
 
@@ -88,38 +108,99 @@ class TrainingSyncServiceTest {
         doThrow(new RuntimeException("down")).when(trainerHoursPublisher).publishClearAll(anyString());
         // when + then
         assertThrows(RuntimeException.class, () -> service.syncTrainerHours());
-        verify(trainingRepository, never()).findAll();
+        verify(trainingRepository, never()).findHoursPageAfterId(anyLong(), any(Limit.class));
         assertNull(MDC.get("txId"));
     }
 
 
+    @Test
+    void whenSyncTrainerHours_outboxHasPendingEvents_shouldDiscardThemInTheRecountSnapshot() {
+        // given
+        when(outboxEventRepository.deletePending()).thenReturn(3);
+        when(trainingRepository.findHoursPageAfterId(eq(0L), any(Limit.class))).thenReturn(List.of(row));
+        when(converter.rowAndActionToUpdateRequest(row, ActionType.ADD)).thenReturn(TrainingUpdateRequest.builder().build());
+        // when
+        service.syncTrainerHours();
+        // then
+        InOrder order = inOrder(outboxRelayLockRepository, outboxEventRepository, trainerHoursPublisher,
+                trainingRepository, transactionManager);
+        order.verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getIsolationLevel() == TransactionDefinition.ISOLATION_SERIALIZABLE));
+        order.verify(outboxRelayLockRepository).lockForResync();
+        order.verify(outboxEventRepository).deletePending();
+        order.verify(trainerHoursPublisher).publishClearAll(anyString());
+        order.verify(trainingRepository).findHoursPageAfterId(eq(0L), any(Limit.class));
+        order.verify(transactionManager).commit(any());
+    }
+
+
+    @Test
+    void whenSyncTrainerHours_conflictsWithRelay_shouldRetryWholeResync() {
+        // given
+        when(outboxEventRepository.deletePending())
+                .thenThrow(new CannotAcquireLockException("could not serialize access due to concurrent delete"))
+                .thenReturn(0);
+        when(trainingRepository.findHoursPageAfterId(eq(0L), any(Limit.class))).thenReturn(List.of());
+        // when
+        SyncResult result = service.syncTrainerHours();
+        // then
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+        verify(trainerHoursPublisher).publishClearAll(anyString());
+        assertThat(result.total()).isZero();
+    }
+
+
+    @Test
+    void whenSyncTrainerHours_conflictPersists_shouldGiveUp() {
+        // given
+        when(outboxEventRepository.deletePending()).thenThrow(new CannotAcquireLockException("conflict"));
+        // when + then
+        assertThrows(CannotAcquireLockException.class, () -> service.syncTrainerHours());
+        verify(outboxEventRepository, times(3)).deletePending();
+        verify(trainerHoursPublisher, never()).publishClearAll(anyString());
+    }
+
+
+    @Test
+    void whenSyncTrainerHours_clearFails_shouldKeepOutboxEvents() {
+        // given
+        doThrow(new RuntimeException("down")).when(trainerHoursPublisher).publishClearAll(anyString());
+        // when + then
+        assertThrows(RuntimeException.class, () -> service.syncTrainerHours());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+
     @Test
     void whenSyncTrainerHours_converterFails_shouldSkipThatTraining() {
         // given
-        when(trainingRepository.findAll()).thenReturn(List.of(training));
-        when(converter.trainingAndActionToUpdateRequest(any(), any()))
+        when(trainingRepository.findHoursPageAfterId(eq(0L), any(Limit.class))).thenReturn(List.of(row));
+        when(converter.rowAndActionToUpdateRequest(any(), any()))
                 .thenThrow(new RuntimeException("bad data"));
         // when
         service.syncTrainerHours();
         // then
-        verify(trainingRepository).findAll();
-        verify(trainerHoursPublisher, never()).publishUpdate(any(TrainingUpdateRequest.class), anyString());
+        verify(trainingRepository).findHoursPageAfterId(eq(0L), any(Limit.class));
+        verify(trainerHoursPublisher, never()).publishUpdates(any(), anyString());
         assertNull(MDC.get("txId"));
     }
 
 
     @Test
-    void whenSyncTrainerHours_notifyFails_shouldSkipThatTraining() {
+    void whenSyncTrainerHours_notifyFails_shouldSkipThatPage() {
         // given
-        Training training = buildTraining();
         TrainingUpdateRequest update = TrainingUpdateRequest.builder().build();
-        when(trainingRepository.findAll()).thenReturn(List.of(training));
-        when(converter.trainingAndActionToUpdateRequest(training, ActionType.ADD)).thenReturn(update);
-        doThrow(new RuntimeException("down")).when(trainerHoursPublisher).publishUpdate(eq(update), anyString());
+        when(trainingRepository.findHoursPageAfterId(eq(0L), any(Limit.class))).thenReturn(List.of(row));
+        when(converter.rowAndActionToUpdateRequest(row, ActionType.ADD)).thenReturn(update);
+        doThrow(new RuntimeException("down")).when(trainerHoursPublisher).publishUpdates(eq(List.of(update)), anyString());
         // when
-        service.syncTrainerHours();
+        SyncResult result = service.syncTrainerHours();
         // then
-        verify(trainerHoursPublisher).publishUpdate(eq(update), anyString());
+        verify(trainerHoursPublisher).publishUpdates(eq(List.of(update)), anyString());
+        assertThat(result.total()).isEqualTo(1);
+        assertThat(result.sent()).isZero();
     }
 
 
@@ -128,34 +209,75 @@ class TrainingSyncServiceTest {
         // given
         String existingTxId = "existing-tx-id-123";
         MDC.put("txId", existingTxId);
-        Training training = buildTraining();
         TrainingUpdateRequest update = TrainingUpdateRequest.builder().build();
-        when(trainingRepository.findAll()).thenReturn(List.of(training));
-        when(converter.trainingAndActionToUpdateRequest(training, ActionType.ADD)).thenReturn(update);
+        when(trainingRepository.findHoursPageAfterId(eq(0L), any(Limit.class))).thenReturn(List.of(row));
+        when(converter.rowAndActionToUpdateRequest(row, ActionType.ADD)).thenReturn(update);
         // when
         SyncResult result = service.syncTrainerHours();
         // then
         verify(trainerHoursPublisher).publishClearAll(existingTxId);
-        verify(trainerHoursPublisher).publishUpdate(update, existingTxId);
+        verify(trainerHoursPublisher).publishUpdates(List.of(update), existingTxId);
         assertThat(result.txId()).isEqualTo(existingTxId);                  // should use old txId
         assertNull(MDC.get("txId"), "After method finished txId should be cleared from MDC");
     }
 
 
-    private Training buildTraining() {
-        Trainer trainer = Trainer.builder().username("Elena.Sokolova").trainees(new ArrayList<>()).build();
-        Trainee trainee = Trainee.builder().username("Nina.Rakhimova").trainers(new ArrayList<>()).build();
-        return Training.builder()
-                .trainingName("Power Yoga")
-                .trainingDate(LocalDate.now())
-                .trainingDuration(60)
-                .trainer(trainer)
-                .trainee(trainee)
-                .trainingType(new TrainingType("Yoga"))
-                .build();
+    @Test
+    void whenSyncTrainerHours_severalPages_shouldWalkByLastId() {
+        // given
+        ReflectionTestUtils.setField(service, "pageSize", 1);
+        TrainingHoursRow second = new TrainingHoursRow(7L, "Elena.Sokolova", "Elena", "Sokolova", true,
+                LocalDate.of(2024, 5, 11), 45);
+        when(trainingRepository.findHoursPageAfterId(eq(0L), any(Limit.class))).thenReturn(List.of(row));
+        when(trainingRepository.findHoursPageAfterId(eq(1L), any(Limit.class))).thenReturn(List.of(second));
+        when(trainingRepository.findHoursPageAfterId(eq(7L), any(Limit.class))).thenReturn(List.of());
+        when(converter.rowAndActionToUpdateRequest(any(), eq(ActionType.ADD)))
+                .thenReturn(TrainingUpdateRequest.builder().build());
+        // when
+        SyncResult result = service.syncTrainerHours();
+        // then
+        verify(trainerHoursPublisher, times(2)).publishUpdates(any(), anyString());
+        assertThat(result.total()).isEqualTo(2);
+        assertThat(result.sent()).isEqualTo(2);
     }
 
 
+    @Test
+    void whenSyncTrainerHours_pipelinedMode_shouldClearAndDelegateToPipeline() {
+        // given
+        SyncResult pipelined = new SyncResult("tx", 10, 10, 5, 1, 1, 3, 2000.0);
+        when(trainerHoursSyncPipeline.run(anyString())).thenReturn(pipelined);
+        // when
+        SyncResult result = service.syncTrainerHours(SyncMode.PIPELINED);
+        // then
+        verify(trainerHoursPublisher).publishClearAll(anyString());
+        verify(trainingRepository, never()).findHoursPageAfterId(anyLong(), any(Limit.class));
+        assertThat(result).isSameAs(pipelined);
+        assertNull(MDC.get("txId"));
+    }
 
-}
 
+    @Test
+    void whenSyncTrainerHours_aggregatedMode_shouldSendTrainerMonthTotalsInBatches() {
+        // given
+        ReflectionTestUtils.setField(service, "pageSize", 2);
+        TrainerMonthHours may = new TrainerMonthHours("Elena.Sokolova", "Elena", "Sokolova", true, 2024, 5, 150L);
+        TrainerMonthHours june = new TrainerMonthHours("Elena.Sokolova", "Elena", "Sokolova", true, 2024, 6, 60L);
+        TrainerMonthHours july = new TrainerMonthHours("Elena.Sokolova", "Elena", "Sokolova", true, 2024, 7, 45L);
+        when(trainingRepository.sumDurationsByTrainerAndMonth()).thenReturn(List.of(may, june, july));
+        doNothing().when(trainerHoursPublisher).publishMonthSnapshots(eq(List.of(may, june)), anyString());
+        doThrow(new RuntimeException("down")).when(trainerHoursPublisher)
+                .publishMonthSnapshots(eq(List.of(july)), anyString());
+        // when
+        SyncResult result = service.syncTrainerHours(SyncMode.AGGREGATED);
+        // then
+        verify(trainerHoursPublisher).publishClearAll(anyString());
+        verify(trainerHoursPublisher).publishMonthSnapshots(eq(List.of(may, june)), anyString());
+        verify(trainerHoursPublisher, never()).publishUpdates(any(), anyString());
+        verify(trainingRepository, never()).findHoursPageAfterId(anyLong(), any(Limit.class));
+        assertThat(result.total()).isEqualTo(3);
+        assertThat(result.sent()).isEqualTo(2);
+        assertNull(MDC.get("txId"));
+    }
+
+}
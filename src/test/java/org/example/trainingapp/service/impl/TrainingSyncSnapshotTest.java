@@ -0,0 +1,136 @@
+package org.example.trainingapp.service.impl;
+
+import org.example.trainingapp.converter.Converter;
+import org.example.trainingapp.dto.ActionType;
+import org.example.trainingapp.dto.SyncMode;
+import org.example.trainingapp.dto.SyncResult;
+import org.example.trainingapp.dto.TrainingHoursRow;
+import org.example.trainingapp.dto.TrainingUpdateRequest;
+import org.example.trainingapp.entity.OutboxEvent;
+import org.example.trainingapp.entity.Trainee;
+import org.example.trainingapp.entity.Trainer;
+import org.example.trainingapp.entity.Training;
+import org.example.trainingapp.entity.TrainingType;
+import org.example.trainingapp.repository.OutboxEventRepository;
+import org.example.trainingapp.repository.OutboxRelayLockRepository;
+import org.example.trainingapp.repository.TraineeRepository;
+import org.example.trainingapp.repository.TrainerRepository;
+import org.example.trainingapp.repository.TrainingRepository;
+import org.example.trainingapp.repository.TrainingTypeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+// The resync against a real DB: a training committed after the barrier, with an id lower than the ones already
+// counted (an id block taken earlier by another instance), must reach the consumer once - through its outbox event
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)                     //  sync and the late writer commit
+@ActiveProfiles("test")
+class TrainingSyncSnapshotTest {
+
+    @Autowired
+    private TrainingRepository trainingRepository;
+
+    @Autowired
+    private TrainerRepository trainerRepository;
+
+    @Autowired
+    private TraineeRepository traineeRepository;
+
+    @Autowired
+    private TrainingTypeRepository trainingTypeRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxRelayLockRepository outboxRelayLockRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final TrainerHoursPublisher trainerHoursPublisher = mock(TrainerHoursPublisher.class);
+    private final Converter converter = mock(Converter.class);
+    private final List<Long> recounted = new CopyOnWriteArrayList<>();
+    private TrainingSyncService service;
+    private Training counted;
+
+
+    @BeforeEach
+    void setUp() {
+        TrainingType yoga = trainingTypeRepository.save(new TrainingType("Yoga"));
+        Trainer trainer = trainerRepository.save(Trainer.builder().firstName("Elena").lastName("Sokolova")
+                .username("Elena.Sokolova").password("secret").active(true).specialization(yoga).build());
+        Trainee trainee = traineeRepository.save(Trainee.builder().firstName("Dina").lastName("Aliyeva")
+                .username("Dina.Aliyeva").password("secret").active(true).build());
+        counted = trainingRepository.save(Training.builder().trainingName("2024-05-10#1 - Yoga").trainingType(yoga)
+                .trainingDate(LocalDate.of(2024, 5, 10)).trainingDuration(60).trainer(trainer).trainee(trainee)
+                .build());
+        outboxEventRepository.save(outboxRow("tx-counted"));
+        when(converter.rowAndActionToUpdateRequest(any(TrainingHoursRow.class), eq(ActionType.ADD)))
+                .thenAnswer(invocation -> {
+                    recounted.add(invocation.<TrainingHoursRow>getArgument(0).id());
+                    return TrainingUpdateRequest.builder().build();
+                });
+        service = new TrainingSyncService(trainingRepository, trainerHoursPublisher, converter,
+                mock(TrainerHoursSyncPipeline.class), outboxEventRepository, outboxRelayLockRepository,
+                transactionManager);
+    }
+
+
+    @Test
+    void whenLowerIdTrainingCommitsAfterBarrier_shouldLeaveItToTheOutboxOnly() {
+        // given
+        long lateId = counted.getId() - 1;
+        doAnswer(invocation -> {                                            //  commits while CLEAR_ALL is sent
+            TransactionTemplate late = new TransactionTemplate(transactionManager);
+            late.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            late.executeWithoutResult(status -> {
+                new JdbcTemplate(dataSource).update("INSERT INTO trainings (id, training_name, training_type_id, "
+                                + "training_date, training_duration, trainee_id, trainer_id) "
+                                + "SELECT ?, '2024-05-11#1 - Yoga', training_type_id, DATE '2024-05-11', 45, "
+                                + "trainee_id, trainer_id FROM trainings WHERE id = ?", lateId, counted.getId());
+                outboxEventRepository.save(outboxRow("tx-late"));
+            });
+            return null;
+        }).when(trainerHoursPublisher).publishClearAll(anyString());
+        // when
+        SyncResult result = service.syncTrainerHours(SyncMode.SEQUENTIAL);
+        // then
+        assertThat(recounted).containsExactly(counted.getId());
+        assertThat(result.total()).isEqualTo(1);
+        assertThat(trainingRepository.existsById(lateId)).isTrue();
+        assertThat(outboxEventRepository.findAll()).extracting(OutboxEvent::getTxId).containsExactly("tx-late");
+    }
+
+
+    private static OutboxEvent outboxRow(String txId) {
+        return OutboxEvent.builder().txId(txId).payload("{}").createdAt(LocalDateTime.now()).build();
+    }
+}
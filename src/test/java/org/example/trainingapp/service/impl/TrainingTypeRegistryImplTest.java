@@ -0,0 +1,150 @@
+package org.example.trainingapp.service.impl;
+
+import org.example.trainingapp.entity.TrainingType;
+import org.example.trainingapp.repository.TrainingTypeRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+
+@ExtendWith(MockitoExtension.class)
+class TrainingTypeRegistryImplTest {
+
+    @Mock
+    private TrainingTypeRepository trainingTypeRepository;
+
+    @InjectMocks
+    private TrainingTypeRegistryImpl trainingTypeRegistry;
+
+
+    @Test
+    void whenFindingLoadedType_shouldNotQueryRepositoryAgain() {
+        // given
+        TrainingType yoga = new TrainingType("Yoga");
+        when(trainingTypeRepository.findAll()).thenReturn(List.of(yoga, new TrainingType("Boxing")));
+        trainingTypeRegistry.load();
+        // when
+        var first = trainingTypeRegistry.find("Yoga");
+        var second = trainingTypeRegistry.find("yoga");
+        // then
+        assertThat(first).containsSame(yoga);
+        assertThat(second).containsSame(yoga);
+        assertThat(trainingTypeRegistry.size()).isEqualTo(2);
+        verify(trainingTypeRepository, times(1)).findAll();
+    }
+
+
+    @Test
+    void whenFindingUnsupportedType_shouldReturnEmptyWithoutQuery() {
+        // when
+        var result = trainingTypeRegistry.find("JiuJutsu");
+        // then
+        assertThat(result).isEmpty();
+        verifyNoInteractions(trainingTypeRepository);
+    }
+
+
+    @Test
+    void whenFindingTypeInsertedAfterLoad_shouldRefreshOnce() {
+        // given
+        TrainingType pilates = new TrainingType("Pilates");
+        when(trainingTypeRepository.findAll()).thenReturn(List.of()).thenReturn(List.of(pilates));
+        trainingTypeRegistry.load();
+        // when
+        var result = trainingTypeRegistry.find("Pilates");
+        // then
+        assertThat(result).containsSame(pilates);
+        verify(trainingTypeRepository, times(2)).findAll();
+    }
+
+
+    @Test
+    void whenFindingTypeMissingFromDbRepeatedly_shouldRefreshOncePerInterval() {
+        // given
+        when(trainingTypeRepository.findAll()).thenReturn(List.of(new TrainingType("Yoga")));
+        trainingTypeRegistry.load();
+        // when
+        var first = trainingTypeRegistry.find("Pilates");
+        var second = trainingTypeRegistry.find("Pilates");
+        var third = trainingTypeRegistry.find("Boxing");
+        // then
+        assertThat(first).isEmpty();
+        assertThat(second).isEmpty();
+        assertThat(third).isEmpty();
+        verify(trainingTypeRepository, times(2)).findAll();                //  load + first miss
+    }
+
+
+    @Test
+    void whenFindingTypeMissingFromDb_intervalPassed_shouldRefreshAgain() {
+        // given
+        ReflectionTestUtils.setField(trainingTypeRegistry, "missRefreshInterval", Duration.ZERO);
+        TrainingType pilates = new TrainingType("Pilates");
+        when(trainingTypeRepository.findAll()).thenReturn(List.of()).thenReturn(List.of())
+                .thenReturn(List.of(pilates));
+        trainingTypeRegistry.load();
+        // when
+        var first = trainingTypeRegistry.find("Pilates");
+        var second = trainingTypeRegistry.find("Pilates");
+        // then
+        assertThat(first).isEmpty();
+        assertThat(second).containsSame(pilates);
+        verify(trainingTypeRepository, times(3)).findAll();
+    }
+
+
+    @Test
+    void whenRefreshing_shouldListTypesInEnumOrderAndSkipUnknownRows() {
+        // given
+        TrainingType boxing = new TrainingType("Boxing");
+        TrainingType yoga = new TrainingType("Yoga");
+        when(trainingTypeRepository.findAll()).thenReturn(List.of(boxing, new TrainingType("Stretching"), yoga));
+        // when
+        trainingTypeRegistry.refresh();
+        // then
+        assertThat(trainingTypeRegistry.getAll()).containsExactly(yoga, boxing);
+    }
+
+
+    @Test
+    void whenLoadingAtStartup_dbUnavailable_shouldStartEmptyAndRetryOncePerInterval() {
+        // given
+        when(trainingTypeRepository.findAll()).thenThrow(new DataAccessResourceFailureException("down"));
+        // when
+        trainingTypeRegistry.load();
+        // then
+        assertThat(trainingTypeRegistry.getAll()).isEmpty();
+        assertThat(trainingTypeRegistry.size()).isZero();
+        verify(trainingTypeRepository, times(2)).findAll();                //  load + first retry
+    }
+
+
+    @Test
+    void whenStartupLoadFailed_dbBackLater_shouldReloadForListAndHealthCheck() {
+        // given
+        TrainingType yoga = new TrainingType("Yoga");
+        when(trainingTypeRepository.findAll()).thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(List.of(yoga));
+        trainingTypeRegistry.load();
+        // when
+        int size = trainingTypeRegistry.size();
+        List<TrainingType> all = trainingTypeRegistry.getAll();
+        // then
+        assertThat(size).isEqualTo(1);
+        assertThat(all).containsExactly(yoga);
+        verify(trainingTypeRepository, times(2)).findAll();
+    }
+}
@@ -17,20 +17,26 @@ import org.example.trainingapp.repository.UserRepository;
 import org.example.trainingapp.service.AuthenticationService;
 import org.example.trainingapp.service.TraineeService;
 import org.example.trainingapp.service.TrainerService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 
 import java.time.LocalDate;
-import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -66,10 +72,20 @@ class UserServiceImplTest {
     @Mock
     private RegistrationMetrics registrationMetrics;
 
+    @Mock
+    private UsernameAllocator usernameAllocator;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private UserServiceImpl userService;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
 
     @Test
     void whenChangingPassword_forTrainer_shouldCallTrainerService() {
@@ -113,13 +129,13 @@ class UserServiceImplTest {
                 .address("Almaty")
                 .build();
         when(converter.dtoToEntity(traineeDto)).thenReturn(traineeEntity);
-        when(userRepository.findUsernamesByFirstNameAndLastName("Ivan", "Petrov")).thenReturn(Set.of());
+        when(usernameAllocator.allocate("Ivan", "Petrov")).thenReturn("Ivan.Petrov");
         when(passwordEncoder.encode(anyString())).thenReturn("encoded123");
         // when
         userService.createTrainee(traineeDto);
         // then
         ArgumentCaptor<Trainee> captor = ArgumentCaptor.forClass(Trainee.class);
-        verify(traineeRepository).save(captor.capture());
+        verify(traineeRepository).saveAndFlush(captor.capture());
         verify(registrationMetrics).incrementTrainee();
         Trainee saved = captor.getValue();
         assertThat(saved.getUsername()).isEqualTo("Ivan.Petrov");
@@ -144,13 +160,13 @@ class UserServiceImplTest {
                 .specialization(yoga)
                 .build();
         when(converter.dtoToEntity(dto)).thenReturn(entity);
-        when(userRepository.findUsernamesByFirstNameAndLastName("Dina", "Aliyeva")).thenReturn(Set.of());
+        when(usernameAllocator.allocate("Dina", "Aliyeva")).thenReturn("Dina.Aliyeva");
         when(passwordEncoder.encode(anyString())).thenReturn("encoded123");
         // when
         CredentialsDto creds = userService.createTrainer(dto);
         // then
         ArgumentCaptor<Trainer> captor = ArgumentCaptor.forClass(Trainer.class);
-        verify(trainerRepository).save(captor.capture());
+        verify(trainerRepository).saveAndFlush(captor.capture());
         verify(registrationMetrics).incrementTrainer();
         Trainer saved = captor.getValue();
         assertThat(saved.getUsername()).isEqualTo("Dina.Aliyeva");
@@ -163,6 +179,65 @@ class UserServiceImplTest {
     }
 
 
+    @Test
+    void whenCreatingTrainee_usernameTakenConcurrently_shouldRetryWithNextSuffix() {
+        // given
+        TraineeRegisterDto dto = TraineeRegisterDto.builder().firstName("Ivan").lastName("Petrov").build();
+        Trainee entity = Trainee.builder().firstName("Ivan").lastName("Petrov").build();
+        when(converter.dtoToEntity(dto)).thenReturn(entity);
+        when(passwordEncoder.encode(anyString())).thenReturn("encoded123");
+        when(usernameAllocator.allocate("Ivan", "Petrov")).thenReturn("Ivan.Petrov", "Ivan.Petrov1");
+        when(traineeRepository.saveAndFlush(entity))
+                .thenThrow(new DataIntegrityViolationException("ux_users_username"))
+                .thenReturn(entity);
+        when(userRepository.existsByUsername("Ivan.Petrov")).thenReturn(true);
+        // when
+        CredentialsDto creds = userService.createTrainee(dto);
+        // then
+        assertThat(creds.getUsername()).isEqualTo("Ivan.Petrov1");
+        verify(traineeRepository, times(2)).saveAndFlush(entity);
+        verify(transactionManager).rollback(any());
+        verify(registrationMetrics).incrementTrainee();
+    }
+
+
+    @Test
+    void whenCreatingTrainee_otherConstraintViolated_shouldNotRetry() {
+        // given
+        TraineeRegisterDto dto = TraineeRegisterDto.builder().firstName("Ivan").lastName("Petrov").build();
+        Trainee entity = Trainee.builder().firstName("Ivan").lastName("Petrov").build();
+        when(converter.dtoToEntity(dto)).thenReturn(entity);
+        when(passwordEncoder.encode(anyString())).thenReturn("encoded123");
+        when(usernameAllocator.allocate("Ivan", "Petrov")).thenReturn("Ivan.Petrov");
+        when(traineeRepository.saveAndFlush(entity)).thenThrow(new DataIntegrityViolationException("not null"));
+        when(userRepository.existsByUsername("Ivan.Petrov")).thenReturn(false);
+        // when + then
+        assertThatThrownBy(() -> userService.createTrainee(dto)).isInstanceOf(DataIntegrityViolationException.class);
+        verify(traineeRepository, times(1)).saveAndFlush(entity);
+        verifyNoInteractions(registrationMetrics);
+    }
+
+
+    @Test
+    void whenCreatingTrainer_usernameAlwaysTakenConcurrently_shouldGiveUpWithIllegalState() {
+        // given
+        TrainerRegisterDto dto = TrainerRegisterDto.builder().firstName("Dina").lastName("Aliyeva")
+                .specializationName("Yoga").build();
+        Trainer entity = Trainer.builder().firstName("Dina").lastName("Aliyeva").build();
+        when(converter.dtoToEntity(dto)).thenReturn(entity);
+        when(passwordEncoder.encode(anyString())).thenReturn("encoded123");
+        when(usernameAllocator.allocate("Dina", "Aliyeva")).thenReturn("Dina.Aliyeva");
+        when(trainerRepository.saveAndFlush(entity)).thenThrow(new DataIntegrityViolationException("ux_users_username"));
+        when(userRepository.existsByUsername("Dina.Aliyeva")).thenReturn(true);
+        // when + then
+        assertThatThrownBy(() -> userService.createTrainer(dto))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Dina.Aliyeva");
+        verify(trainerRepository, times(5)).saveAndFlush(entity);
+        verifyNoInteractions(registrationMetrics);
+    }
+
+
     @Test
     void whenChangingPassword_withInvalidCredentials_shouldThrow() {
         // given
@@ -189,6 +264,6 @@ class UserServiceImplTest {
                 .isInstanceOf(RuntimeException.class)
                 .hasCauseInstanceOf(EntityNotFoundException.class)
                 .hasMessageContaining("Training type not found");
-        verifyNoInteractions(userRepository, trainerRepository, registrationMetrics);
+        verifyNoInteractions(usernameAllocator, trainerRepository, registrationMetrics);
     }
 }
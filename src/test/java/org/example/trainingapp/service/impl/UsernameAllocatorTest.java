@@ -0,0 +1,144 @@
+package org.example.trainingapp.service.impl;
+
+import org.example.trainingapp.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@ExtendWith(MockitoExtension.class)
+class UsernameAllocatorTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private UsernameAllocator usernameAllocator;
+
+    private static final String KEY = "username-suffix:Ivan.Petrov";
+    private static final String TTL_SECONDS = "2592000";                   //  30 days
+
+
+    @Test
+    void whenAllocate_existingCounter_shouldNotReadNamesakes() {
+        // given
+        whenCounter(1, -1).thenReturn(3L);
+        when(userRepository.existsByUsername("Ivan.Petrov2")).thenReturn(false);
+        // when
+        String username = usernameAllocator.allocate("Ivan", "Petrov");
+        // then
+        assertThat(username).isEqualTo("Ivan.Petrov2");
+        verify(userRepository, never()).findUsernamesByFirstNameAndLastName(anyString(), anyString());
+    }
+
+
+    @Test
+    void whenAllocate_firstOfName_shouldRerunScriptWithZeroSeedAndReturnBaseName() {
+        // given
+        whenCounter(1, -1).thenReturn(-1L);
+        when(userRepository.findUsernamesByFirstNameAndLastName("Ivan", "Petrov")).thenReturn(Set.of());
+        whenCounter(1, 0).thenReturn(1L);
+        when(userRepository.existsByUsername("Ivan.Petrov")).thenReturn(false);
+        // when
+        String username = usernameAllocator.allocate("Ivan", "Petrov");
+        // then
+        assertThat(username).isEqualTo("Ivan.Petrov");
+    }
+
+
+    @Test
+    void whenAllocate_missingCounterWithStoredNamesakes_shouldSeedPastHighestSuffix() {
+        // given
+        whenCounter(1, -1).thenReturn(-1L);
+        when(userRepository.findUsernamesByFirstNameAndLastName("Ivan", "Petrov"))
+                .thenReturn(Set.of("Ivan.Petrov", "Ivan.Petrov4", "Ivan.Petrovich"));
+        whenCounter(1, 5).thenReturn(6L);
+        when(userRepository.existsByUsername("Ivan.Petrov5")).thenReturn(false);
+        // when
+        String username = usernameAllocator.allocate("Ivan", "Petrov");
+        // then
+        assertThat(username).isEqualTo("Ivan.Petrov5");
+    }
+
+
+    @Test
+    void whenAllocate_candidateTaken_shouldTakeNextSuffix() {
+        // given
+        whenCounter(1, -1).thenReturn(2L).thenReturn(3L);
+        when(userRepository.existsByUsername("Ivan.Petrov1")).thenReturn(true);
+        when(userRepository.existsByUsername("Ivan.Petrov2")).thenReturn(false);
+        // when
+        String username = usernameAllocator.allocate("Ivan", "Petrov");
+        // then
+        assertThat(username).isEqualTo("Ivan.Petrov2");
+    }
+
+
+    @Test
+    void whenAllocate_redisDown_shouldFallBackToNamesakeScan() {
+        // given
+        whenCounter(1, -1).thenThrow(new RedisConnectionFailureException("down"));
+        when(userRepository.findUsernamesByFirstNameAndLastName("Ivan", "Petrov"))
+                .thenReturn(Set.of("Ivan.Petrov", "Ivan.Petrov1"));
+        when(userRepository.existsByUsername("Ivan.Petrov2")).thenReturn(false);
+        // when
+        String username = usernameAllocator.allocate("Ivan", "Petrov");
+        // then
+        assertThat(username).isEqualTo("Ivan.Petrov2");
+    }
+
+
+    @Test
+    void whenAllocate_everyCandidateTaken_shouldThrowIllegalState() {
+        // given
+        whenCounter(1, -1).thenReturn(2L).thenReturn(3L).thenReturn(4L).thenReturn(5L).thenReturn(6L);
+        when(userRepository.existsByUsername(anyString())).thenReturn(true);
+        // when + then
+        assertThatThrownBy(() -> usernameAllocator.allocate("Ivan", "Petrov"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Ivan.Petrov");
+    }
+
+
+    @Test
+    void whenAllocateBulk_shouldReserveRangeWithOneScriptCallAndCheckItOnce() {
+        // given
+        whenCounter(3, -1).thenReturn(5L);
+        when(userRepository.findExistingUsernames(List.of("Ivan.Petrov2", "Ivan.Petrov3", "Ivan.Petrov4")))
+                .thenReturn(Set.of("Ivan.Petrov3"));
+        whenCounter(1, -1).thenReturn(6L);
+        when(userRepository.existsByUsername("Ivan.Petrov5")).thenReturn(false);
+        // when
+        List<String> usernames = usernameAllocator.allocate("Ivan", "Petrov", 3);
+        // then
+        assertThat(usernames).containsExactly("Ivan.Petrov2", "Ivan.Petrov5", "Ivan.Petrov4");
+        verify(userRepository, never()).findUsernamesByFirstNameAndLastName(anyString(), anyString());
+    }
+
+
+    private OngoingStubbing<Long> whenCounter(long count, long seed) {
+        return when(redisTemplate.execute(ArgumentMatchers.<RedisScript<Long>>any(), eq(List.of(KEY)),
+                eq(String.valueOf(count)), eq(String.valueOf(seed)), eq(TTL_SECONDS)));
+    }
+}
@@ -35,6 +35,18 @@ Feature: Authentication & Users API (controller level)
     Then response status should be 201
     And the response body should contain "Dina.Aliyeva"
 
+  Scenario: Register trainees in bulk
+    Given a trainer "Elena.Sokolova" exists
+    And I am authenticated as "Elena.Sokolova" with role "TRAINER"
+    When I register trainees in bulk with first names "Olga,Olga," and last name "Bulkina"
+    Then response status should be 200
+    And the response body should contain "Olga.Bulkina"
+    And the response body should contain "First name is required."
+
+  Scenario: Reject bulk registration without authentication
+    When I register trainees in bulk with first names "Olga" and last name "Bulkina"
+    Then response status should be 401
+
   Scenario: Change password successfully
     Given a user "trainee1" with password "old" exists
     And I am authenticated as "trainee1" with role "TRAINEE"